@@ -27,6 +27,7 @@ import unity.assets.type.g3d.*;
 import unity.async.*;
 import unity.content.*;
 import unity.editor.*;
+import unity.entities.*;
 import unity.gen.*;
 import unity.map.*;
 import unity.map.cinematic.*;
@@ -38,6 +39,7 @@ import unity.ui.*;
 import unity.ui.dialogs.*;
 import unity.util.*;
 import unity.world.*;
+import unity.world.blocks.exp.*;
 import younggamExperimental.*;
 
 import static mindustry.Vars.*;
@@ -80,6 +82,8 @@ public class Unity extends Mod{
     public static LightProcess lights;
     /** Asynchronous process revolving around content scoring system. */
     public static ContentScoreProcess scoring;
+    /** Tick process stepping all {@link unity.world.graph.BaseGraph} networks. */
+    public static GraphProcess graphs;
 
     /** All Unity's defined non-anonymous classes; the elements of this array will be generated. */
     @ListClasses
@@ -186,6 +190,8 @@ public class Unity extends Mod{
         Utils.init();
         TimeStop.init();
         TimeReflect.init();
+        ExpOrbs.init();
+        ExpNetwork.init();
 
         try{
             Class<? extends DevBuild> impl = (Class<? extends DevBuild>)Class.forName("unity.mod.DevBuildImpl");
@@ -208,7 +214,8 @@ public class Unity extends Mod{
 
         asyncCore.processes.add(
             lights = new LightProcess(),
-            scoring = new ContentScoreProcess()
+            scoring = new ContentScoreProcess(),
+            graphs = new GraphProcess()
         );
 
         Core.app.post(() -> {
@@ -0,0 +1,419 @@
+package unity.assets.loaders;
+
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.gl.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import unity.assets.type.g3d.model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.zip.*;
+
+/**
+ * Compact binary form of {@link ModelData}, written by the tools module from g3d sources. Vertex and index
+ * blocks are stored raw in little-endian, so reading them only wraps the file's bytes; they're copied exactly once, into
+ * the {@link Mesh}'s own buffers.
+ */
+public final class ModelBinary{
+    public static final String extension = "g3dr";
+    private static final int magic = 0x47334452, version = 2;
+
+    private ModelBinary(){
+        throw new AssertionError();
+    }
+
+    /** @return A hash of the source model, stored in binary models so ones older than their source aren't used. */
+    public static long sourceHash(Fi source){
+        CRC32 crc = new CRC32();
+        crc.update(source.readBytes());
+        return crc.getValue();
+    }
+
+    /**
+     * @param sourceHash The {@link #sourceHash(Fi) hash} of the model's current source file.
+     * @return The model data, or {@code null} if the file was written by another version or from another source, in
+     *         which case the source should be parsed instead.
+     */
+    public static @Nullable ModelData read(Fi file, long sourceHash){
+        ByteBuffer in = ByteBuffer.wrap(file.readBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        if(in.remaining() < 16 || in.getInt() != magic || in.getInt() != version || in.getLong() != sourceHash) return null;
+
+        String dir = file.parent().path();
+        ModelData model = new ModelData();
+        model.id = readString(in);
+
+        for(int i = 0, count = in.getInt(); i < count; i++){
+            ModelMesh mesh = new ModelMesh();
+            mesh.id = readString(in);
+
+            String[] attributes = new String[in.getInt()];
+            for(int a = 0; a < attributes.length; a++) attributes[a] = readString(in);
+            mesh.attributes = ModelLoader.parseAttributes(attributes);
+
+            int vertices = in.getInt();
+            mesh.vertexBuffer = slice(in, vertices * 4).asFloatBuffer();
+
+            mesh.parts = new ModelMeshPart[in.getInt()];
+            for(int p = 0; p < mesh.parts.length; p++){
+                ModelMeshPart part = new ModelMeshPart();
+                part.id = readString(in);
+                part.primitiveType = in.getInt();
+
+                int indices = in.getInt();
+                part.indexBuffer = slice(in, indices * 2).asShortBuffer();
+                mesh.parts[p] = part;
+            }
+
+            model.meshes.add(mesh);
+        }
+
+        for(int i = 0, count = in.getInt(); i < count; i++){
+            ModelMaterial mat = new ModelMaterial();
+            mat.id = readString(in);
+            mat.ambient = readColor(in);
+            mat.diffuse = readColor(in);
+            mat.specular = readColor(in);
+            mat.emissive = readColor(in);
+            mat.reflection = readColor(in);
+            mat.shininess = in.getFloat();
+            mat.opacity = in.getFloat();
+
+            int textures = in.getInt();
+            if(textures >= 0){
+                mat.textures = new Seq<>(textures);
+                for(int t = 0; t < textures; t++){
+                    ModelTexture tex = new ModelTexture();
+                    tex.id = readString(in);
+
+                    String fileName = readString(in);
+                    tex.fileName = dir + (dir.length() == 0 || dir.endsWith("/") ? "" : "/") + fileName;
+                    tex.uvTranslation = new Vec2(in.getFloat(), in.getFloat());
+                    tex.uvScaling = new Vec2(in.getFloat(), in.getFloat());
+                    tex.usage = in.getInt();
+                    mat.textures.add(tex);
+                }
+            }
+
+            model.materials.add(mat);
+        }
+
+        for(int i = 0, count = in.getInt(); i < count; i++) model.nodes.add(readNode(in));
+
+        for(int i = 0, count = in.getInt(); i < count; i++){
+            ModelAnimation anim = new ModelAnimation();
+            anim.id = readString(in);
+
+            int nodes = in.getInt();
+            anim.nodeAnimations.ensureCapacity(nodes);
+            for(int n = 0; n < nodes; n++){
+                ModelNodeAnimation nodeAnim = new ModelNodeAnimation();
+                nodeAnim.nodeId = readString(in);
+
+                int translation = in.getInt();
+                if(translation >= 0){
+                    nodeAnim.translation = new Seq<>(translation);
+                    for(int k = 0; k < translation; k++){
+                        ModelNodeKeyframe<Vec3> kf = new ModelNodeKeyframe<>();
+                        kf.keytime = in.getFloat();
+                        kf.value = readVec3(in);
+                        nodeAnim.translation.add(kf);
+                    }
+                }
+
+                int rotation = in.getInt();
+                if(rotation >= 0){
+                    nodeAnim.rotation = new Seq<>(rotation);
+                    for(int k = 0; k < rotation; k++){
+                        ModelNodeKeyframe<Quat> kf = new ModelNodeKeyframe<>();
+                        kf.keytime = in.getFloat();
+                        kf.value = readQuat(in);
+                        nodeAnim.rotation.add(kf);
+                    }
+                }
+
+                int scaling = in.getInt();
+                if(scaling >= 0){
+                    nodeAnim.scaling = new Seq<>(scaling);
+                    for(int k = 0; k < scaling; k++){
+                        ModelNodeKeyframe<Vec3> kf = new ModelNodeKeyframe<>();
+                        kf.keytime = in.getFloat();
+                        kf.value = readVec3(in);
+                        nodeAnim.scaling.add(kf);
+                    }
+                }
+
+                anim.nodeAnimations.add(nodeAnim);
+            }
+
+            model.animations.add(anim);
+        }
+
+        return model;
+    }
+
+    /**
+     * Writes parsed model data. Texture file names are stored relative to {@code dir}, the directory the model was
+     * parsed from.
+     * @param sourceHash The {@link #sourceHash(Fi) hash} of the file the model was parsed from.
+     */
+    public static void write(ModelData model, String dir, Fi file, long sourceHash){
+        try(DataOutputStream out = new DataOutputStream(file.write(false, 8192))){
+            BinaryWriter w = new BinaryWriter(out);
+            w.i(magic);
+            w.i(version);
+            w.l(sourceHash);
+            w.str(model.id);
+
+            w.i(model.meshes.size);
+            for(ModelMesh mesh : model.meshes){
+                w.str(mesh.id);
+
+                w.i(mesh.attributes.length);
+                for(VertexAttribute attr : mesh.attributes) w.str(attributeName(attr));
+
+                w.i(mesh.vertices.length);
+                for(float f : mesh.vertices) w.f(f);
+
+                w.i(mesh.parts.length);
+                for(ModelMeshPart part : mesh.parts){
+                    w.str(part.id);
+                    w.i(part.primitiveType);
+
+                    w.i(part.indices.length);
+                    for(short s : part.indices) w.s(s);
+                }
+            }
+
+            String prefix = dir.length() == 0 || dir.endsWith("/") ? dir : dir + "/";
+            w.i(model.materials.size);
+            for(ModelMaterial mat : model.materials){
+                w.str(mat.id);
+                w.color(mat.ambient);
+                w.color(mat.diffuse);
+                w.color(mat.specular);
+                w.color(mat.emissive);
+                w.color(mat.reflection);
+                w.f(mat.shininess);
+                w.f(mat.opacity);
+
+                if(mat.textures == null){
+                    w.i(-1);
+                }else{
+                    w.i(mat.textures.size);
+                    for(ModelTexture tex : mat.textures){
+                        w.str(tex.id);
+                        w.str(tex.fileName.startsWith(prefix) ? tex.fileName.substring(prefix.length()) : tex.fileName);
+                        w.f(tex.uvTranslation.x);
+                        w.f(tex.uvTranslation.y);
+                        w.f(tex.uvScaling.x);
+                        w.f(tex.uvScaling.y);
+                        w.i(tex.usage);
+                    }
+                }
+            }
+
+            w.i(model.nodes.size);
+            for(ModelNode node : model.nodes) writeNode(w, node);
+
+            w.i(model.animations.size);
+            for(ModelAnimation anim : model.animations){
+                w.str(anim.id);
+
+                w.i(anim.nodeAnimations.size);
+                for(ModelNodeAnimation nodeAnim : anim.nodeAnimations){
+                    w.str(nodeAnim.nodeId);
+
+                    if(nodeAnim.translation == null){
+                        w.i(-1);
+                    }else{
+                        w.i(nodeAnim.translation.size);
+                        for(var kf : nodeAnim.translation){
+                            w.f(kf.keytime);
+                            w.vec(kf.value);
+                        }
+                    }
+
+                    if(nodeAnim.rotation == null){
+                        w.i(-1);
+                    }else{
+                        w.i(nodeAnim.rotation.size);
+                        for(var kf : nodeAnim.rotation){
+                            w.f(kf.keytime);
+                            w.quat(kf.value);
+                        }
+                    }
+
+                    if(nodeAnim.scaling == null){
+                        w.i(-1);
+                    }else{
+                        w.i(nodeAnim.scaling.size);
+                        for(var kf : nodeAnim.scaling){
+                            w.f(kf.keytime);
+                            w.vec(kf.value);
+                        }
+                    }
+                }
+            }
+        }catch(IOException e){
+            throw new ArcRuntimeException(e);
+        }
+    }
+
+    static String attributeName(VertexAttribute attr){
+        if(attr.alias.equals(VertexAttribute.position3.alias)) return "POSITION";
+        if(attr.alias.equals(VertexAttribute.normal.alias)) return "NORMAL";
+        if(attr.alias.equals(VertexAttribute.color.alias)) return "COLORPACKED";
+        if(attr.alias.startsWith(Shader.texcoordAttribute)) return "TEXCOORD" + attr.alias.substring(Shader.texcoordAttribute.length());
+        if(attr.alias.startsWith("a_blendWeight")) return "BLENDWEIGHT" + attr.alias.substring("a_blendWeight".length());
+
+        throw new IllegalArgumentException("Unknown vertex attribute '" + attr.alias + "'");
+    }
+
+    private static ModelNode readNode(ByteBuffer in){
+        ModelNode node = new ModelNode();
+        node.id = readString(in);
+
+        byte flags = in.get();
+        if((flags & 1) != 0) node.translation = readVec3(in);
+        if((flags & 2) != 0) node.rotation = readQuat(in);
+        if((flags & 4) != 0) node.scale = readVec3(in);
+        node.meshId = readString(in);
+
+        int parts = in.getInt();
+        if(parts >= 0){
+            node.parts = new ModelNodePart[parts];
+            for(int i = 0; i < parts; i++){
+                ModelNodePart part = new ModelNodePart();
+                part.materialId = readString(in);
+                part.meshPartId = readString(in);
+                node.parts[i] = part;
+            }
+        }
+
+        int children = in.getInt();
+        if(children >= 0){
+            node.children = new ModelNode[children];
+            for(int i = 0; i < children; i++) node.children[i] = readNode(in);
+        }
+
+        return node;
+    }
+
+    private static void writeNode(BinaryWriter w, ModelNode node) throws IOException{
+        w.str(node.id);
+        w.out.writeByte((node.translation != null ? 1 : 0) | (node.rotation != null ? 2 : 0) | (node.scale != null ? 4 : 0));
+        if(node.translation != null) w.vec(node.translation);
+        if(node.rotation != null) w.quat(node.rotation);
+        if(node.scale != null) w.vec(node.scale);
+        w.str(node.meshId);
+
+        if(node.parts == null){
+            w.i(-1);
+        }else{
+            w.i(node.parts.length);
+            for(ModelNodePart part : node.parts){
+                w.str(part.materialId);
+                w.str(part.meshPartId);
+            }
+        }
+
+        if(node.children == null){
+            w.i(-1);
+        }else{
+            w.i(node.children.length);
+            for(ModelNode child : node.children) writeNode(w, child);
+        }
+    }
+
+    /** @return A view of the next {@code bytes} bytes, advancing past them. */
+    private static ByteBuffer slice(ByteBuffer in, int bytes){
+        ByteBuffer out = in.slice().order(ByteOrder.LITTLE_ENDIAN);
+        out.limit(bytes);
+        in.position(in.position() + bytes);
+        return out;
+    }
+
+    private static @Nullable String readString(ByteBuffer in){
+        int len = in.getInt();
+        if(len < 0) return null;
+
+        String str = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        in.position(in.position() + len);
+        return str;
+    }
+
+    private static @Nullable Color readColor(ByteBuffer in){
+        return in.get() == 0 ? null : new Color(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    private static Vec3 readVec3(ByteBuffer in){
+        return new Vec3(in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    private static Quat readQuat(ByteBuffer in){
+        return new Quat(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    /** Little-endian counterpart of {@link DataOutputStream}'s primitive writes. */
+    private static class BinaryWriter{
+        final DataOutputStream out;
+
+        BinaryWriter(DataOutputStream out){
+            this.out = out;
+        }
+
+        void i(int value) throws IOException{
+            out.writeInt(Integer.reverseBytes(value));
+        }
+
+        void l(long value) throws IOException{
+            out.writeLong(Long.reverseBytes(value));
+        }
+
+        void s(short value) throws IOException{
+            out.writeShort(Short.reverseBytes(value));
+        }
+
+        void f(float value) throws IOException{
+            i(Float.floatToRawIntBits(value));
+        }
+
+        void str(@Nullable String str) throws IOException{
+            if(str == null){
+                i(-1);
+                return;
+            }
+
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            i(bytes.length);
+            out.write(bytes);
+        }
+
+        void color(@Nullable Color color) throws IOException{
+            out.writeByte(color == null ? 0 : 1);
+            if(color != null){
+                f(color.r);
+                f(color.g);
+                f(color.b);
+                f(color.a);
+            }
+        }
+
+        void vec(Vec3 vec) throws IOException{
+            f(vec.x);
+            f(vec.y);
+            f(vec.z);
+        }
+
+        void quat(Quat quat) throws IOException{
+            f(quat.x);
+            f(quat.y);
+            f(quat.z);
+            f(quat.w);
+        }
+    }
+}
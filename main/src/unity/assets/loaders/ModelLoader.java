@@ -12,6 +12,10 @@ import arc.util.serialization.*;
 import unity.assets.type.g3d.*;
 import unity.assets.type.g3d.model.*;
 
+/**
+ * Loads {@code .g3dj} and {@code .g3db} models, preferring the {@link ModelBinary binary model} next to them if it was
+ * written from the same source.
+ */
 @SuppressWarnings("rawtypes")
 public class ModelLoader extends SynchronousAssetLoader<Model, ModelLoader.ModelParameter>{
     protected final BaseJsonReader reader;
@@ -30,7 +34,11 @@ public class ModelLoader extends SynchronousAssetLoader<Model, ModelLoader.Model
             model = new Model();
         }
 
-        model.load(parseModel(file));
+        // Prefer the binary model written by the tools module, unless its source was changed since
+        Fi binary = file.sibling(file.nameWithoutExtension() + "." + ModelBinary.extension);
+        ModelData data = binary.exists() ? ModelBinary.read(binary, ModelBinary.sourceHash(file)) : null;
+
+        model.load(data != null ? data : parseModel(file));
         return model;
     }
 
@@ -96,29 +104,33 @@ public class ModelLoader extends SynchronousAssetLoader<Model, ModelLoader.Model
     }
 
     protected VertexAttribute[] parseAttributes(JsonValue attributes){
-        Seq<VertexAttribute> vertexAttributes = new Seq<>(VertexAttribute.class);
+        return parseAttributes(attributes.asStringArray());
+    }
+
+    static VertexAttribute[] parseAttributes(String[] attributes){
+        VertexAttribute[] vertexAttributes = new VertexAttribute[attributes.length];
 
         int texUnit = 0,
             blendUnit = 0;
 
-        for(var value = attributes.child; value != null; value = value.next){
-            String attr = value.asString();
+        for(int i = 0; i < attributes.length; i++){
+            String attr = attributes[i];
             if(attr.equals("POSITION")){
-                vertexAttributes.add(VertexAttribute.position3);
+                vertexAttributes[i] = VertexAttribute.position3;
             }else if(attr.equals("NORMAL")){
-                vertexAttributes.add(VertexAttribute.normal);
+                vertexAttributes[i] = VertexAttribute.normal;
             }else if(attr.equals("COLORPACKED")){
-                vertexAttributes.add(VertexAttribute.color);
+                vertexAttributes[i] = VertexAttribute.color;
             }else if(attr.startsWith("TEXCOORD")){
-                vertexAttributes.add(new VertexAttribute(2, Shader.texcoordAttribute + texUnit++));
+                vertexAttributes[i] = new VertexAttribute(2, Shader.texcoordAttribute + texUnit++);
             }else if(attr.startsWith("BLENDWEIGHT")){
-                vertexAttributes.add(new VertexAttribute(2, "a_blendWeight" + blendUnit++));
+                vertexAttributes[i] = new VertexAttribute(2, "a_blendWeight" + blendUnit++);
             }else{
                 throw new IllegalArgumentException("Unknown vertex attribute '" + attr + "'");
             }
         }
 
-        return vertexAttributes.toArray();
+        return vertexAttributes;
     }
 
     protected void parseMaterials(ModelData model, JsonValue json, String dir){
@@ -170,7 +170,7 @@ public class Model implements Disposable{
     protected void convertMesh(ModelMesh modelMesh){
         int numIndices = 0;
         for(var part : modelMesh.parts){
-            numIndices += part.indices.length;
+            numIndices += part.indexCount();
         }
         boolean hasIndices = numIndices > 0;
 
@@ -178,12 +178,12 @@ public class Model implements Disposable{
         for(var vert : modelMesh.attributes){
             vertSize += vert.size;
         }
-        int numVertices = modelMesh.vertices.length / (vertSize / 4);
+        int numVertices = modelMesh.vertexCount() / (vertSize / 4);
 
         Mesh mesh = new Mesh(true, numVertices, numIndices, modelMesh.attributes);
         meshes.add(mesh);
 
-        Buffers.copy(modelMesh.vertices, mesh.getVerticesBuffer(), modelMesh.vertices.length, 0);
+        modelMesh.putVertices(mesh.getVerticesBuffer());
         int offset = 0;
 
         mesh.getIndicesBuffer().clear();
@@ -192,10 +192,10 @@ public class Model implements Disposable{
             meshPart.id = part.id;
             meshPart.primitiveType = part.primitiveType;
             meshPart.offset = offset;
-            meshPart.size = hasIndices ? part.indices.length : numVertices;
+            meshPart.size = hasIndices ? part.indexCount() : numVertices;
             meshPart.mesh = mesh;
             if(hasIndices){
-                mesh.getIndicesBuffer().put(part.indices);
+                part.putIndices(mesh.getIndicesBuffer());
             }
             offset += meshPart.size;
             meshParts.add(meshPart);
@@ -1,10 +1,33 @@
 package unity.assets.type.g3d.model;
 
 import arc.graphics.*;
+import arc.util.*;
+
+import java.nio.*;
 
 public class ModelMesh{
     public String id;
     public VertexAttribute[] attributes;
     public float[] vertices;
+    /** Vertices read straight off a binary model; if present, used instead of {@link #vertices}. */
+    public @Nullable FloatBuffer vertexBuffer;
     public ModelMeshPart[] parts;
+
+    public int vertexCount(){
+        return vertexBuffer != null ? vertexBuffer.limit() : vertices.length;
+    }
+
+    /** Puts this mesh's vertices into {@code dst}, flipping it afterwards. */
+    public void putVertices(FloatBuffer dst){
+        dst.clear();
+        if(vertexBuffer != null){
+            FloatBuffer src = vertexBuffer.duplicate();
+            src.rewind();
+            dst.put(src);
+        }else{
+            dst.put(vertices);
+        }
+
+        dst.flip();
+    }
 }
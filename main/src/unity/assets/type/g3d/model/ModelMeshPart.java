@@ -1,7 +1,27 @@
 package unity.assets.type.g3d.model;
 
+import arc.util.*;
+
+import java.nio.*;
+
 public class ModelMeshPart{
     public String id;
     public short[] indices;
+    /** Indices read straight off a binary model; if present, used instead of {@link #indices}. */
+    public @Nullable ShortBuffer indexBuffer;
     public int primitiveType;
+
+    public int indexCount(){
+        return indexBuffer != null ? indexBuffer.limit() : indices.length;
+    }
+
+    public void putIndices(ShortBuffer dst){
+        if(indexBuffer != null){
+            ShortBuffer src = indexBuffer.duplicate();
+            src.rewind();
+            dst.put(src);
+        }else{
+            dst.put(indices);
+        }
+    }
 }
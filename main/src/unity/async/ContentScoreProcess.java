@@ -1,6 +1,7 @@
 package unity.async;
 
 import arc.*;
+import arc.files.*;
 import arc.func.*;
 import arc.math.*;
 import arc.struct.*;
@@ -11,6 +12,7 @@ import mindustry.async.*;
 import mindustry.core.*;
 import mindustry.ctype.*;
 import mindustry.entities.bullet.*;
+import mindustry.mod.Mods.*;
 import mindustry.type.*;
 import mindustry.world.*;
 import mindustry.world.blocks.*;
@@ -24,20 +26,26 @@ import mindustry.world.blocks.units.UnitFactory.*;
 import mindustry.world.consumers.*;
 import unity.*;
 
+import java.io.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 import static mindustry.ctype.ContentType.*;
 
+/**
+ * Scores every content by what it takes to make and what it outputs. Scores are cached in {@link #cacheFile()}, keyed by
+ * the game version and loaded mods; on a miss, contents are scored in parallel, one group of mutually dependent
+ * contents per task, with every group's dependencies scored first.
+ */
 @SuppressWarnings("unchecked")
 public class ContentScoreProcess implements AsyncProcess{
     static final float stackConstant = 2.5f;
-    static final int maxDepth = 128;
-    final Seq<ContentScore> unloaded = new Seq<>(), allScores = new Seq<>();
+    static final int cacheVersion = 1;
+    final Seq<ContentScore> allScores = new Seq<>();
     final Seq<Floor> ores = new Seq<>();
     volatile boolean processing = false, finished = false;
     EnumSet<ContentType> blackListed = EnumSet.of(mech_UNUSED, weather, effect_UNUSED, sector, loadout_UNUSED, typeid_UNUSED, error, planet, ammo_UNUSED);
     ContentScore[][] scores;
-    int depth;
-    boolean depthLoaded;
 
     @Override
     public void process(){
@@ -65,6 +73,16 @@ public class ContentScoreProcess implements AsyncProcess{
                 }
             }
 
+            long key = cacheKey();
+            if(readCache(key)){
+                float time = Time.nanosToMillis(System.nanoTime() - lt);
+                Core.app.post(() -> Unity.print("Content Scores loaded from cache in: " + time));
+
+                processing = false;
+                finished = true;
+                return;
+            }
+
             for(Floor ore : ores){
                 if(ore.itemDrop != null){
                     ContentScore cs = get(ore.itemDrop);
@@ -81,15 +99,10 @@ public class ContentScoreProcess implements AsyncProcess{
             for(ContentScore score : allScores){
                 if(score.artificial) processContent(score);
             }
-            unloaded.removeAll(cs -> {
-                if(!cs.loaded){
-                    resetDepth();
-                    cs.loadScore();
-                }
 
-                return cs.loaded;
-            });
+            scoreAll();
             clear();
+            writeCache(key);
 
             float time = Time.nanosToMillis(System.nanoTime() - lt);
             StringBuilder builder = new StringBuilder(64);
@@ -113,6 +126,204 @@ public class ContentScoreProcess implements AsyncProcess{
         }
     }
 
+    /**
+     * Splits the dependency graph into strongly connected components, which are scored sequentially since they depend
+     * on each other, and scores components of the same level in parallel once every level below is done.
+     */
+    void scoreAll(){
+        int n = allScores.size;
+        for(int i = 0; i < n; i++) allScores.get(i).index = i;
+
+        IntSeq[] deps = new IntSeq[n];
+        for(int i = 0; i < n; i++){
+            IntSeq out = deps[i] = new IntSeq();
+            allScores.get(i).dependencies(c -> {
+                ContentScore cs = get(c);
+                if(cs != null && !out.contains(cs.index)) out.add(cs.index);
+            });
+        }
+
+        // Tarjan's algorithm, iteratively; components come out dependencies first
+        int[] index = new int[n], low = new int[n], comp = new int[n], edge = new int[n];
+        boolean[] onStack = new boolean[n];
+        for(int i = 0; i < n; i++) index[i] = -1;
+        IntSeq stack = new IntSeq(), call = new IntSeq(), compLevel = new IntSeq();
+        Seq<IntSeq> components = new Seq<>();
+        int counter = 0;
+
+        for(int root = 0; root < n; root++){
+            if(index[root] != -1) continue;
+
+            call.add(root);
+            while(!call.isEmpty()){
+                int v = call.peek();
+                if(index[v] == -1){
+                    index[v] = low[v] = counter++;
+                    stack.add(v);
+                    onStack[v] = true;
+                }
+
+                IntSeq out = deps[v];
+                if(edge[v] < out.size){
+                    int w = out.get(edge[v]++);
+                    if(index[w] == -1){
+                        call.add(w);
+                    }else if(onStack[w]){
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                call.pop();
+                if(!call.isEmpty()){
+                    int parent = call.peek();
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+
+                if(low[v] == index[v]){
+                    int id = components.size, level = 0;
+                    IntSeq members = new IntSeq();
+
+                    int w;
+                    do{
+                        w = stack.pop();
+                        onStack[w] = false;
+                        comp[w] = id;
+                        members.add(w);
+                    }while(w != v);
+
+                    for(int i = 0; i < members.size; i++){
+                        IntSeq out2 = deps[members.get(i)];
+                        for(int j = 0; j < out2.size; j++){
+                            int c = comp[out2.get(j)];
+                            if(c != id) level = Math.max(level, compLevel.get(c) + 1);
+                        }
+                    }
+
+                    components.add(members);
+                    compLevel.add(level);
+                }
+            }
+        }
+
+        Seq<Seq<Runnable>> levels = new Seq<>();
+        for(int i = 0; i < components.size; i++){
+            int level = compLevel.get(i);
+            while(levels.size <= level) levels.add(new Seq<>());
+
+            IntSeq members = components.get(i);
+            members.sort();
+            levels.get(level).add(() -> {
+                for(int j = 0; j < members.size; j++) allScores.get(members.get(j)).loadScore();
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(OS.cores - 1, 1));
+        Seq<Future<?>> results = new Seq<>();
+        try{
+            for(Seq<Runnable> tasks : levels){
+                for(Runnable task : tasks) results.add(pool.submit(task));
+                for(Future<?> result : results) result.get();
+                results.clear();
+            }
+        }catch(InterruptedException | ExecutionException e){
+            throw new RuntimeException(e);
+        }finally{
+            pool.shutdown();
+        }
+    }
+
+    /** @return Where scores are cached between launches. */
+    Fi cacheFile(){
+        return dataDirectory.child("cache").child("unity-content-scores.bin");
+    }
+
+    /**
+     * @return A hash of the game version, every enabled mod's version and files, and the amount of each content type. The
+     *         files' sizes and modification times are hashed so rebuilt mods with an unchanged version, like development
+     *         builds, are scored again, without reading every archive on each launch.
+     */
+    long cacheKey(){
+        long hash = 1125899906842597L;
+        hash = 31L * hash + cacheVersion;
+        hash = 31L * hash + Version.build;
+        hash = 31L * hash + Version.revision;
+
+        for(LoadedMod mod : mods.list()){
+            if(!mod.enabled()) continue;
+
+            hash = 31L * hash + mod.name.hashCode();
+            hash = 31L * hash + (mod.meta.version == null ? 0 : mod.meta.version.hashCode());
+            hash = 31L * hash + fileHash(mod.file);
+        }
+
+        for(ContentType type : all){
+            hash = 31L * hash + content.getContentMap()[type.ordinal()].size;
+        }
+
+        return hash;
+    }
+
+    /** @return A hash of the path, length and modification time of the mod's archive, or of every file in it if it's a directory. */
+    long fileHash(Fi file){
+        Seq<Fi> files = file.isDirectory() ? file.findAll() : Seq.with(file);
+        files.sort(Structs.comparing(Fi::path));
+
+        long hash = 0L;
+        for(Fi f : files){
+            hash = 31L * hash + f.path().hashCode();
+            hash = 31L * hash + f.length();
+            hash = 31L * hash + f.lastModified();
+        }
+
+        return hash;
+    }
+
+    boolean readCache(long key){
+        Fi file = cacheFile();
+        if(!file.exists()) return false;
+
+        try(DataInputStream in = new DataInputStream(file.read(8192))){
+            if(in.readLong() != key || in.readInt() != allScores.size) return false;
+
+            for(int i = 0; i < allScores.size; i++){
+                int type = in.readUnsignedByte(), id = in.readUnsignedShort();
+                float score = in.readFloat(), outputScore = in.readFloat();
+
+                if(type >= scores.length || id >= scores[type].length || scores[type][id] == null) return false;
+
+                ContentScore cs = scores[type][id];
+                cs.score = score;
+                cs.outputScore = outputScore;
+                cs.loaded = cs.outputLoaded = true;
+            }
+
+            clear();
+            return true;
+        }catch(Exception e){
+            Log.err("Couldn't read cached content scores", e);
+            return false;
+        }
+    }
+
+    void writeCache(long key){
+        Fi file = cacheFile();
+        try(DataOutputStream out = new DataOutputStream(file.write(false, 8192))){
+            out.writeLong(key);
+            out.writeInt(allScores.size);
+
+            for(ContentScore cs : allScores){
+                out.writeByte(cs.content.getContentType().ordinal());
+                out.writeShort(cs.content.id);
+                out.writeFloat(cs.score);
+                out.writeFloat(cs.outputScore);
+            }
+        }catch(Exception e){
+            Log.err("Couldn't cache content scores", e);
+            file.delete();
+        }
+    }
+
     void clear(){
         for(ContentScore sc : allScores){
             sc.consumesScore = null;
@@ -121,11 +332,6 @@ public class ContentScoreProcess implements AsyncProcess{
         }
     }
 
-    void resetDepth(){
-        depth = 0;
-        depthLoaded = true;
-    }
-
     ContentScore get(Content content){
         if(content.id >= scores[content.getContentType().ordinal()].length){
             Log.warn("[scarlet]Array out of bounds for "+content.toString()+"![]");
@@ -303,6 +509,7 @@ public class ContentScoreProcess implements AsyncProcess{
         Content content;
         boolean loaded = false, outputLoaded = false, artificial = true, processing = false;
         float score, outputScore;
+        int index;
 
         Seq<CrafterScore> crafterRequirements = new Seq<>();
         Seq<OutputHandler> outputs = new Seq<>();
@@ -310,7 +517,6 @@ public class ContentScoreProcess implements AsyncProcess{
 
         ContentScore(Content content){
             this.content = content;
-            unloaded.add(this);
             allScores.add(this);
         }
 
@@ -365,21 +571,28 @@ public class ContentScoreProcess implements AsyncProcess{
                     outputScore = Math.max(outputScore, output.calculateOutput());
                 }
             }
-            outputLoaded = depthLoaded;
+            outputLoaded = true;
             return outputScore;
         }
 
+        /** Lists every content {@link #loadScore()} reads the score of; must be kept in sync with it. */
+        void dependencies(Cons<Content> out){
+            if(artificial){
+                if(content instanceof Block){
+                    for(ItemStack stack : ((Block)content).requirements) out.get(stack.item);
+                }else{
+                    for(CrafterScore s : crafterRequirements) s.dependencies(out);
+                }
+            }
+
+            for(OutputHandler output : outputs) output.dependencies(out);
+        }
+
+        /** Memoized; a content that's still being scored further up a cycle counts as {@code 0}. */
         float loadScore(){
             if(processing) return 0f;
             if(loaded) return score;
 
-            depth++;
-            if(depth > maxDepth || !depthLoaded){
-                depthLoaded = false;
-                loaded = false;
-                return 0f;
-            }
-
             processing = true;
 
             if(artificial){
@@ -405,7 +618,7 @@ public class ContentScoreProcess implements AsyncProcess{
             }
             loadOutputScore();
 
-            loaded = depthLoaded;
+            loaded = true;
             processing = false;
 
             return score;
@@ -425,9 +638,16 @@ public class ContentScoreProcess implements AsyncProcess{
             this.crafter = crafter;
         }
 
+        @Override
+        void dependencies(Cons<Content> out){
+            super.dependencies(out);
+            out.get(crafter);
+        }
+
         @Override
         float calculateScore(){
             if(score == -1f){
+                resolveConsumes();
                 score = 0f;
                 if(itemStacks != null){
                     for(int i = 0; i < itemStacks.size; i += 2){
@@ -456,9 +676,17 @@ public class ContentScoreProcess implements AsyncProcess{
             this.block = block;
         }
 
+        @Override
+        void dependencies(Cons<Content> out){
+            super.dependencies(out);
+            if(prev != null) out.get(prev);
+            out.get(block);
+        }
+
         @Override
         float calculateScore(){
             if(score == -1f){
+                resolveConsumes();
                 score = 0f;
                 if(itemStacks != null){
                     for(int i = 0; i < itemStacks.size; i += 2){
@@ -487,6 +715,8 @@ public class ContentScoreProcess implements AsyncProcess{
         Liquid liquid;
         float liquidAmount;
         float power;
+        /** Consumers to pick inputs from once scores are available, since filters depend on them. */
+        ConsumesScore consumes;
 
         abstract float calculateScore();
 
@@ -496,8 +726,23 @@ public class ContentScoreProcess implements AsyncProcess{
         }
 
         void setConsumes(ConsumesScore cons){
+            consumes = cons;
+        }
+
+        void dependencies(Cons<Content> out){
+            if(consumes != null) consumes.dependencies(out);
+            if(itemStacks != null){
+                for(int i = 0; i < itemStacks.size; i += 2) out.get(content.getByID(item, itemStacks.get(i)));
+            }
+        }
+
+        /** Picks inputs from {@link #consumes}, ahead of the stacks added through {@link #addItems(Item, short)}. */
+        void resolveConsumes(){
+            ConsumesScore cons = consumes;
             if(cons == null) return;
+            consumes = null;
 
+            ShortSeq added = itemStacks;
             if(cons.itemFilter != null && !cons.itemFilter.isEmpty()){
                 Item i = getMaxFilter(cons.itemFilter);
                 if(i != null){
@@ -505,7 +750,12 @@ public class ContentScoreProcess implements AsyncProcess{
                     itemStacks.add(i.id, (short)1);
                 }
             }else{
-                itemStacks = cons.itemConsumes;
+                itemStacks = cons.itemConsumes == null ? null : new ShortSeq(cons.itemConsumes);
+            }
+
+            if(added != null){
+                if(itemStacks == null) itemStacks = new ShortSeq();
+                itemStacks.addAll(added);
             }
 
             if(cons.liquidFilter != null && !cons.liquidFilter.isEmpty()){
@@ -528,6 +778,24 @@ public class ContentScoreProcess implements AsyncProcess{
             block = b;
         }
 
+        @Override
+        public void dependencies(Cons<Content> out){
+            ContentScore cs = get(block);
+            if(cs.consumesScore != null) cs.consumesScore.dependencies(out);
+
+            if(block instanceof ItemTurret){
+                for(Entry<Item, BulletType> entry : ((ItemTurret)block).ammoTypes) out.get(entry.value);
+            }else if(block instanceof PowerTurret){
+                if(((PowerTurret)block).shootType != null) out.get(((PowerTurret)block).shootType);
+            }else if(block instanceof GenericCrafter){
+                GenericCrafter gc = (GenericCrafter)block;
+                if(gc.outputItems != null){
+                    for(ItemStack item : gc.outputItems) out.get(item.item);
+                }
+                if(gc.outputLiquid != null) out.get(gc.outputLiquid.liquid);
+            }
+        }
+
         @Override
         public float calculateOutput(){
             if(loaded) return this.score;
@@ -596,7 +864,7 @@ public class ContentScoreProcess implements AsyncProcess{
                 consTime = gc.craftTime;
             }
             score /= (conScore / consTime) + 1f;
-            loaded = depthLoaded;
+            loaded = true;
             this.score = score;
 
             return score;
@@ -605,6 +873,9 @@ public class ContentScoreProcess implements AsyncProcess{
 
     interface OutputHandler{
         float calculateOutput();
+
+        /** Lists every content {@link #calculateOutput()} reads the score of. */
+        void dependencies(Cons<Content> out);
     }
 
     private class ConsumesScore{
@@ -613,6 +884,20 @@ public class ContentScoreProcess implements AsyncProcess{
         float liquidAmount = 0f, power, score = -1f;
         byte optional = 0;
 
+        void dependencies(Cons<Content> out){
+            if(itemConsumes != null){
+                for(int i = 0; i < itemConsumes.size; i += 2) out.get(content.getByID(item, itemConsumes.get(i)));
+            }else if(itemFilter != null){
+                for(int i = 0; i < itemFilter.size; i++) out.get(content.getByID(item, itemFilter.get(i)));
+            }
+
+            if(liquid != -1){
+                out.get(content.getByID(ContentType.liquid, liquid));
+            }else if(liquidFilter != null){
+                for(int i = 0; i < liquidFilter.size; i++) out.get(content.getByID(ContentType.liquid, liquidFilter.get(i)));
+            }
+        }
+
         float score(){
             if(score == -1f){
                 float is = 0f, ls = 0f;
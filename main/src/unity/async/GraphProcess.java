@@ -0,0 +1,134 @@
+package unity.async;
+
+import arc.struct.*;
+import arc.util.*;
+import mindustry.async.*;
+import unity.world.graph.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Steps every live {@link BaseGraph} once per tick. Networks request a step through {@link #schedule(BaseGraph)}
+ * whenever one of their modules updates, and are solved at the start of the next tick: disjoint networks are stepped
+ * in parallel on a fork-join pool while the main thread waits, then networks that read other networks' modules
+ * (see {@link BaseGraph#parallelStep()}) are stepped serially in schedule order. Since parallel networks only
+ * touch their own modules, the outcome is the same as stepping everything serially.
+ */
+@SuppressWarnings("rawtypes")
+public class GraphProcess implements AsyncProcess{
+    /** Below this many modules in total, forking costs more than it saves. */
+    public static int parallelThreshold = 512;
+
+    protected final ForkJoinPool pool = new ForkJoinPool(Math.max(OS.cores - 1, 1));
+
+    protected Seq<BaseGraph> pending = new Seq<>(BaseGraph.class), stepping = new Seq<>(BaseGraph.class);
+    protected final Seq<BaseGraph> parallel = new Seq<>(BaseGraph.class), serial = new Seq<>(BaseGraph.class);
+
+    /** Networks skipped in the last tick because nothing changed since they went to sleep, and networks stepped. */
+    public int sleeping, awake;
+
+    protected boolean ready = false;
+
+    @Override
+    public void begin(){
+        Seq<BaseGraph> tmp = stepping;
+        stepping = pending;
+        pending = tmp;
+        pending.size = 0;
+
+        parallel.size = 0;
+        serial.size = 0;
+
+        int modules = 0;
+        sleeping = awake = 0;
+        for(int i = 0; i < stepping.size; i++){
+            BaseGraph graph = stepping.items[i];
+            //merged or split away since it was scheduled
+            if(!graph.alive()) continue;
+
+            // Restructuring shares scratch space between networks, so it stays on this thread.
+            graph.prepareStep();
+            if(!graph.alive()) continue;
+
+            if(graph.sleeping()){
+                sleeping++;
+                continue;
+            }
+            awake++;
+
+            if(graph.parallelStep()){
+                parallel.add(graph);
+                modules += graph.connected.size;
+            }else{
+                serial.add(graph);
+            }
+        }
+        stepping.size = 0;
+
+        if(parallel.size > 1 && modules >= parallelThreshold){
+            pool.invoke(new StepTask(parallel.items, 0, parallel.size, Math.max(parallel.size / (pool.getParallelism() * 4), 1)));
+        }else{
+            for(int i = 0; i < parallel.size; i++) parallel.items[i].step();
+        }
+
+        for(int i = 0; i < serial.size; i++) serial.items[i].step();
+    }
+
+    @Override
+    public void init(){
+        pending.clear();
+        stepping.clear();
+        ready = true;
+    }
+
+    @Override
+    public void reset(){
+        pending.clear();
+        stepping.clear();
+        parallel.clear();
+        serial.clear();
+        sleeping = awake = 0;
+        ready = false;
+    }
+
+    @Override
+    public void process(){}
+
+    @Override
+    public boolean shouldProcess(){
+        return false;
+    }
+
+    /**
+     * Queues a network to be stepped at the start of the next tick. Called at most once per frame per network.
+     * @return {@code false} if no world is loaded and the caller should step the network itself.
+     */
+    public boolean schedule(BaseGraph graph){
+        if(!ready) return false;
+
+        pending.add(graph);
+        return true;
+    }
+
+    protected static class StepTask extends RecursiveAction{
+        final BaseGraph[] graphs;
+        final int from, to, grain;
+
+        StepTask(BaseGraph[] graphs, int from, int to, int grain){
+            this.graphs = graphs;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= grain){
+                for(int i = from; i < to; i++) graphs[i].step();
+            }else{
+                int mid = (from + to) >>> 1;
+                invokeAll(new StepTask(graphs, from, mid, grain), new StepTask(graphs, mid, to, grain));
+            }
+        }
+    }
+}
@@ -1,23 +1,56 @@
 package unity.async;
 
-import arc.func.*;
-import arc.math.geom.*;
+import arc.*;
 import arc.struct.*;
 import arc.util.*;
 import mindustry.async.*;
 import mindustry.core.*;
+import mindustry.game.EventType.*;
 import mindustry.gen.*;
+import mindustry.world.*;
 import unity.gen.*;
 import unity.gen.LightHoldc.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 /** @author GlennFolker */
 public class LightProcess implements AsyncProcess{
+    /** Below this many lights, tracing on the worker pool costs more than it saves. */
+    public static int parallelThreshold = 64;
+    /**
+     * Whether to only recast lights that are {@link Light#dirty()}: their snapped inputs or relatives changed, a tile
+     * along their last path changed, or the holder they point at needs to reinteract.
+     */
+    public static boolean incremental = true;
+
     protected TaskQueue queue = new TaskQueue();
+    protected final ForkJoinPool pool = new ForkJoinPool(Math.max(OS.cores - 1, 1));
 
     public final Seq<Light> all = new Seq<>(Light.class);
-    public final QuadTree<Light> quad = new QuadTree<>(new Rect());
+    protected final Seq<Light> casting = new Seq<>(Light.class);
+
+    /**
+     * Tile-bucketed index of {@link #all} by light position, rebuilt in {@link #begin()}: {@code cellHead} holds the
+     * first light index per tile and {@code cellNext} chains the rest. Only written on the main thread while no casting
+     * is happening, so readers need no lock.
+     */
+    protected int[] cellHead = {}, cellNext = {};
+    protected final IntSeq usedCells = new IntSeq();
+
+    /** Inclusive tile bounds changed since the last {@link #begin()}, four ints per area. */
+    protected final IntSeq changedAreas = new IntSeq();
+    /** Half the size of the largest block, padding changed tiles to cover whole multiblocks. */
+    protected int changePad = 1;
+
+    public LightProcess(){
+        Events.on(TileChangeEvent.class, e -> tileChanged(e.tile));
+        Events.on(ConfigEvent.class, e -> {
+            if(e.tile != null) tileChanged(e.tile.tile);
+        });
+    }
 
     protected volatile boolean
         processing = false,
@@ -38,20 +71,77 @@ public class LightProcess implements AsyncProcess{
             l.snap();
             all.add(l);
         });
+
+        index();
+        markChanged();
+    }
+
+    protected void tileChanged(Tile tile){
+        if(!ready || tile == null) return;
+
+        changedAreas.add(tile.x - changePad, tile.y - changePad);
+        changedAreas.add(tile.x + changePad, tile.y + changePad);
+    }
+
+    protected void markChanged(){
+        int size = all.size, areas = changedAreas.size;
+        int[] bounds = changedAreas.items;
+
+        for(int i = 0; i < size; i++){
+            Light l = all.items[i];
+            if(l.dirty()) continue;
+
+            LightHoldBuildc pointed = l.pointed;
+            if(pointed != null && pointed.needsReinteract()){
+                l.dirty(true);
+                continue;
+            }
+
+            for(int a = 0; a < areas; a += 4){
+                if(l.pathOverlaps(bounds[a], bounds[a + 1], bounds[a + 2], bounds[a + 3])){
+                    l.dirty(true);
+                    break;
+                }
+            }
+        }
+
+        changedAreas.clear();
+    }
+
+    protected void index(){
+        int[] head = cellHead;
+        for(int i = 0; i < usedCells.size; i++) head[usedCells.items[i]] = -1;
+        usedCells.clear();
+
+        int size = all.size;
+        if(cellNext.length < size) cellNext = new int[Math.max(size, cellNext.length * 2)];
+
+        int width = world.width(), height = world.height();
+        if(head.length < width * height) return;
+
+        for(int i = 0; i < size; i++){
+            Light l = all.items[i];
+            int tx = World.toTile(l.x()), ty = World.toTile(l.y());
+            if(tx < 0 || ty < 0 || tx >= width || ty >= height) continue;
+
+            int cell = tx + ty * width;
+            if(head[cell] == -1) usedCells.add(cell);
+
+            cellNext[i] = head[cell];
+            head[cell] = i;
+        }
     }
 
     @Override
     public void init(){
         queue.clear();
 
-        quad.clear();
-        quad.botLeft = null;
-        quad.botRight = null;
-        quad.topLeft = null;
-        quad.topRight = null;
-        quad.leaf = true;
+        cellHead = new int[world.width() * world.height()];
+        Arrays.fill(cellHead, -1);
+        usedCells.clear();
 
-        quad.bounds.set(-finalWorldBounds, -finalWorldBounds, world.unitWidth() + finalWorldBounds * 2, world.unitHeight() + finalWorldBounds * 2);
+        changedAreas.clear();
+        changePad = Math.max(content.blocks().max(b -> b.size).size / 2, 1);
 
         ready = true;
     }
@@ -59,7 +149,12 @@ public class LightProcess implements AsyncProcess{
     @Override
     public void reset(){
         queue.clear();
-        quad.clear();
+        all.clear();
+        casting.clear();
+
+        cellHead = new int[0];
+        usedCells.clear();
+        changedAreas.clear();
 
         ready = false;
     }
@@ -68,11 +163,28 @@ public class LightProcess implements AsyncProcess{
     public void process(){
         processing = true;
 
+        // Detaching and removing lights touches their relatives, so it stays sequential
+        casting.size = 0;
         int size = all.size;
         for(int i = 0; i < size; i++){
-            all.items[i].cast();
+            Light l = all.items[i];
+            if(incremental && !l.dirty()) continue;
+
+            // Cleared before casting, so that relatives linking to this light mark it again for the next frame
+            l.dirty(false);
+            if(l.prepareCast()) casting.add(l);
+        }
+
+        // Tracing only writes to the traced light itself
+        if(casting.size >= parallelThreshold){
+            pool.invoke(new TraceTask(casting.items, 0, casting.size, Math.max(casting.size / (pool.getParallelism() * 4), 1)));
+        }else{
+            for(int i = 0; i < casting.size; i++) casting.items[i].trace();
         }
 
+        // Linking children may reuse lights traced by others, so it is done in order
+        for(int i = 0; i < casting.size; i++) casting.items[i].link();
+
         end = true;
         processing = false;
     }
@@ -82,10 +194,16 @@ public class LightProcess implements AsyncProcess{
         return !processing && !state.isPaused();
     }
 
-    public void quad(Cons<QuadTree<Light>> cons){
-        synchronized(quad){
-            cons.get(quad);
-        }
+    /** @return The index in {@link #all} of the first light positioned on the given tile, or -1 if there is none. */
+    public int firstAt(int tx, int ty){
+        int width = world.width();
+        if(tx < 0 || ty < 0 || tx >= width || ty >= world.height() || cellHead.length < width * world.height()) return -1;
+        return cellHead[tx + ty * width];
+    }
+
+    /** @return The index in {@link #all} of the next light on the same tile as the given one, or -1 if there is none. */
+    public int nextAt(int index){
+        return cellNext[index];
     }
 
     public void queuePoint(Light light, @Nullable LightHoldBuildc hold){
@@ -134,4 +252,26 @@ public class LightProcess implements AsyncProcess{
             light.remove();
         }
     }
+
+    protected static class TraceTask extends RecursiveAction{
+        final Light[] lights;
+        final int from, to, grain;
+
+        TraceTask(Light[] lights, int from, int to, int grain){
+            this.lights = lights;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= grain){
+                for(int i = from; i < to; i++) lights[i].trace();
+            }else{
+                int mid = (from + to) >>> 1;
+                invokeAll(new TraceTask(lights, from, mid, grain), new TraceTask(lights, mid, to, grain));
+            }
+        }
+    }
 }
@@ -46,6 +46,7 @@ import unity.world.blocks.sandbox.*;
 import unity.world.blocks.units.*;
 import unity.world.consumers.*;
 import unity.world.draw.*;
+import unity.world.graph.HeatGraph.*;
 import unity.world.graphs.*;
 import unity.world.meta.*;
 import younggamExperimental.*;
@@ -2916,7 +2917,7 @@ public class UnityBlocks{
         heatPipe = new HeatPipe("heat-pipe"){{
             requirements(Category.distribution, with(Items.copper, 15, UnityItems.cupronickel, 10, UnityItems.nickel, 5));
             health = 140;
-            addGraph(new GraphHeat(5f, 0.7f, 0.008f).setAccept(1, 1, 1, 1));
+            addGraph(new GraphHeat(5f, 0.7f, 0.008f).solveMode(HeatSolveMode.auto).setAccept(1, 1, 1, 1));
         }};
 
         driveShaft = new DriveShaft("drive-shaft"){{
@@ -1,13 +1,15 @@
 package unity.entities;
 
+import arc.*;
+import arc.func.*;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
+import arc.struct.*;
 import arc.util.*;
-import mindustry.content.*;
-import mindustry.entities.bullet.*;
+import mindustry.core.*;
+import mindustry.game.EventType.*;
 import mindustry.game.*;
-import mindustry.gen.*;
 import mindustry.graphics.*;
 import mindustry.world.*;
 import mindustry.world.blocks.distribution.*;
@@ -15,35 +17,77 @@ import mindustry.world.blocks.distribution.Conveyor.*;
 import mindustry.world.blocks.production.*;
 import mindustry.world.blocks.production.Incinerator.*;
 import unity.content.*;
-import unity.gen.*;
-import unity.gen.Expc.*;
+import unity.sync.packets.*;
 import unity.world.blocks.exp.*;
 
+import java.util.*;
+
 import static mindustry.Vars.*;
 
-/** @author GlennFolker
- * @author sunny */
+/**
+ * Simulates exp orbs in flat arrays instead of one bullet each. Orbs resting close to each other are merged into one
+ * carrying their summed exp, which is still handed to {@link ExpHolder#handleOrb(int)} {@link #expAmount} at a time.
+ * Orbs are simulated on every side, but only the server or a singleplayer game spawns, merges them and hands out exp.
+ * Clients spawn the same orbs through an {@link ExpOrbSpawnPacket}, spread with the same seed, and only merge and remove
+ * orbs as the server reports through an {@link ExpOrbMergePacket} and an {@link ExpOrbPickupPacket}.
+ * @author GlennFolker
+ * @author sunny
+ */
 public class ExpOrbs{
     public static final int expAmount = 10;
+    /** Orbs don't merge past this much exp. */
+    public static final int maxOrbExp = expAmount * 50;
 
     private static final Color expColor = Color.valueOf("84ff00");
     private static final int[] d4x = new int[]{1, 0, -1, 0};
     private static final int[] d4y = new int[]{0, 1, 0, -1};
-    private static final ExpOrb expOrb = new ExpOrb();
+
+    private static final float
+        speed = 0.0001f, drag = 0.05f, lifetime = 180f, layer = Layer.bullet - 0.01f,
+        lightRadius = 18f, lightOpacity = 0.3f,
+        mergeRange = 4f, mergeInterval = 10f;
+    /** How many orbs one {@link #spreadExp(float, float, int, float)} call spawns at most; the exp is split among them. */
+    private static final int maxSpread = 12;
+
+    private static final Rand rand = new Rand();
+    /** Ids of the orbs picked up this update, sent to clients at its end. */
+    private static final IntSeq pickups = new IntSeq();
+    /** Indices of the orbs absorbing others during {@link #merge()}, and the ids of the orbs they absorb. */
+    private static final IntSeq survivors = new IntSeq(), absorbed = new IntSeq();
+    private static final IntIntMap indices = new IntIntMap();
+
+    private static int size, lastId;
+    private static float[] x = new float[64], y = new float[64], vx = new float[64], vy = new float[64], time = new float[64];
+    private static int[] amount = new int[64], ids = new int[64];
+
+    /**
+     * Per-tile heads of the orb lists, and the next orb in each list. Rebuilt every update, and used for merging and
+     * {@link #intersect(float, float, float, float, Intc)}.
+     */
+    private static int[] heads = {}, next = new int[64];
+    /** Tiles whose list isn't empty. */
+    private static final IntSeq touched = new IntSeq();
+    private static float mergeTimer;
+
+    public static void init(){
+        Events.run(Trigger.update, () -> {
+            if(state.isPlaying()) update();
+        });
+        Events.run(Trigger.draw, ExpOrbs::draw);
+        Events.on(ResetEvent.class, e -> clear());
+        Events.on(WorldLoadEvent.class, e -> clear());
+    }
 
     public static void spreadExp(float x, float y, int amount){
         spreadExp(x, y, amount, 4f);
     }
 
     public static void spreadExp(float x, float y, int amount, float v){
-        if(net.server() || !net.active()){
-            v *= 1000f;
+        if(net.client()) return;
 
-            int n = amount / expAmount;
-            for(int i = 0; i < n; i++){
-                expOrb.createNet(Team.derelict, x, y, Mathf.random() * 360f, 0f, v, 1f);
-            }
-        }
+        int first = lastId;
+        spread(x, y, amount, v);
+        if(net.server()) sync(x, y, 0f, v, amount, first, true);
     }
 
     public static void spreadExp(float x, float y, float amount, float v){
@@ -55,16 +99,60 @@ public class ExpOrbs{
     }
 
     public static void dropExp(float x, float y, float rotation, float v, int amount){
-        if(net.server() || !net.active()){
-            v *= 1000f;
+        if(net.client()) return;
 
-            int n = amount / expAmount;
-            for(int i = 0; i < n; i++){
-                expOrb.createNet(Team.derelict, x, y, rotation, 0f, v, 1f);
-            }
+        int first = lastId;
+        drop(x, y, rotation, v, amount);
+        if(net.server()) sync(x, y, rotation, v, amount, first, false);
+    }
+
+    /** Spawns the orbs the server did, called by {@link ExpOrbSpawnPacket} on clients. */
+    public static void spawned(ExpOrbSpawnPacket packet){
+        lastId = packet.firstId;
+        if(packet.spread){
+            spread(packet.x, packet.y, packet.amount, packet.velocity);
+        }else{
+            drop(packet.x, packet.y, packet.rotation, packet.velocity, packet.amount);
         }
     }
 
+    /** Removes the orbs the server saw being picked up, called by {@link ExpOrbPickupPacket} on clients. */
+    public static void pickedUp(IntSeq ids){
+        int last = size;
+        for(int i = size - 1; i >= 0; i--){
+            if(ids.contains(ExpOrbs.ids[i])) remove(i);
+        }
+
+        if(size != last) bucket();
+    }
+
+    /** Applies the merges the server did, called by {@link ExpOrbMergePacket} on clients. */
+    public static void merged(ExpOrbMergePacket packet){
+        for(int i = size - 1; i >= 0; i--){
+            if(packet.absorbed.contains(ids[i])) remove(i);
+        }
+
+        indices.clear();
+        for(int i = 0; i < size; i++) indices.put(ids[i], i);
+
+        float[] states = packet.states.items;
+        for(int s = 0; s < packet.ids.size; s++){
+            // Orbs that already despawned here are skipped
+            int i = indices.get(packet.ids.items[s], -1);
+            if(i == -1) continue;
+
+            amount[i] = packet.amounts.items[s];
+            x[i] = states[s * 5];
+            y[i] = states[s * 5 + 1];
+            vx[i] = states[s * 5 + 2];
+            vy[i] = states[s * 5 + 3];
+            time[i] = states[s * 5 + 4];
+        }
+
+        indices.clear();
+        bucket();
+    }
+
     //these would actually be useful when different sized orbs are implemented
     public static int orbs(int exp){
         return exp / expAmount;
@@ -81,85 +169,323 @@ public class ExpOrbs{
         return exp < expAmount ? 0 : expAmount;
     }
 
-    public static final class ExpOrb extends BulletType{
-        {
-            absorbable = false;
-            damage = 8f;
-            drag = 0.05f;
-            lifetime = 180f;
-            speed = 0.0001f;
-            keepVelocity = false;
-            pierce = true;
-            hitSize = 2f;
+    /** @return The amount of orbs currently simulated. */
+    public static int size(){
+        return size;
+    }
+
+    /**
+     * Calls {@code cons} with the index of every orb within the rectangle, to be used with {@link #x(int)},
+     * {@link #y(int)} and {@link #push(int, float, float)}. Only the lists of the tiles the rectangle covers are
+     * searched, so orbs spawned since the last update aren't found yet. Orbs must not be added from {@code cons}.
+     */
+    public static void intersect(float x, float y, float width, float height, Intc cons){
+        int w = world.width(), h = world.height();
+        if(touched.size == 0 || heads.length != w * h) return;
 
-            hittable = false;
-            collides = false;
-            collidesTiles = false;
-            collidesAir = false;
-            collidesGround = false;
+        int x1 = Math.max(World.toTile(x), 0), y1 = Math.max(World.toTile(y), 0),
+            x2 = Math.min(World.toTile(x + width), w - 1), y2 = Math.min(World.toTile(y + height), h - 1);
 
-            lightColor = expColor;
-            hitEffect = Fx.none;
-            shootEffect = Fx.none;
-            despawnEffect = UnityFx.orbDespawn;
-            layer = Layer.bullet - 0.01f;
+        float[] ox = ExpOrbs.x, oy = ExpOrbs.y;
+        for(int ty = y1; ty <= y2; ty++){
+            for(int tx = x1; tx <= x2; tx++){
+                for(int i = heads[tx + ty * w]; i != -1; i = next[i]){
+                    if(ox[i] >= x && oy[i] >= y && ox[i] <= x + width && oy[i] <= y + height) cons.get(i);
+                }
+            }
         }
+    }
 
-        private ExpOrb(){}
+    public static float x(int index){
+        return x[index];
+    }
 
-        @Override
-        public void draw(Bullet b){
-            if((b.fin() > 0.5f) && Time.time % 14f < 7f) return;
+    public static float y(int index){
+        return y[index];
+    }
 
-            Draw.color(expColor, Color.white, 0.1f + 0.1f * Mathf.sin(Time.time * 0.03f + b.id * 2f));
+    public static void push(int index, float velX, float velY){
+        vx[index] += velX;
+        vy[index] += velY;
+    }
 
-            Fill.circle(b.x, b.y, 1.5f);
-            Lines.stroke(0.5f);
-            for(var i = 0; i < 4; i++){
-                Drawf.tri(b.x, b.y, 4f, 4f + 1.5f * Mathf.sin(Time.time * 0.12f + b.id * 3f), i * 90 + Mathf.sin(Time.time * 0.04f + b.id * 5f) * 28f);
-            }
-            Draw.color();
+    public static void clear(){
+        size = 0;
+        mergeTimer = 0f;
+        pickups.clear();
+        unbucket();
+    }
+
+    private static void spread(float x, float y, int amount, float v){
+        // Seeded with what the server sends along, so clients spread the orbs the same way
+        rand.setSeed(lastId * 31L + Float.floatToIntBits(x) * 17L + Float.floatToIntBits(y));
+
+        int n = amount / expAmount, orbs = Math.min(n, maxSpread);
+        for(int i = 0; i < orbs; i++){
+            add(x, y, rand.random(360f), v, (n / orbs + (i < n % orbs ? 1 : 0)) * expAmount);
+        }
+    }
+
+    private static void drop(float x, float y, float rotation, float v, int amount){
+        for(int left = convertedExp(amount); left > 0; left -= maxOrbExp){
+            add(x, y, rotation, v, Math.min(left, maxOrbExp));
         }
+    }
 
-        @Override
-        public void update(Bullet b){
-            if(b.moving()) b.time(0f);
+    private static void sync(float x, float y, float rotation, float v, int amount, int firstId, boolean spread){
+        if(lastId == firstId) return;
 
-            Tile tile = world.tileWorld(b.x, b.y);
-            if(tile == null || tile.build == null) return;
+        ExpOrbSpawnPacket packet = new ExpOrbSpawnPacket();
+        packet.x = x;
+        packet.y = y;
+        packet.rotation = rotation;
+        packet.velocity = v;
+        packet.amount = amount;
+        packet.firstId = firstId;
+        packet.spread = spread;
+        net.send(packet, true);
+    }
+
+    private static void add(float x, float y, float angle, float v, int amount){
+        if(amount <= 0) return;
+
+        if(size == ExpOrbs.x.length){
+            int cap = size * 7 / 4;
+            ExpOrbs.x = Arrays.copyOf(ExpOrbs.x, cap);
+            ExpOrbs.y = Arrays.copyOf(ExpOrbs.y, cap);
+            vx = Arrays.copyOf(vx, cap);
+            vy = Arrays.copyOf(vy, cap);
+            time = Arrays.copyOf(time, cap);
+            ExpOrbs.amount = Arrays.copyOf(ExpOrbs.amount, cap);
+            ids = Arrays.copyOf(ids, cap);
+            next = Arrays.copyOf(next, cap);
+        }
+
+        // Same initial velocity the old bullet orbs had, with their velocity scale of v * 1000
+        float vel = speed * v * 1000f;
+
+        int i = size++;
+        ExpOrbs.x[i] = x;
+        ExpOrbs.y[i] = y;
+        vx[i] = Angles.trnsx(angle, vel);
+        vy[i] = Angles.trnsy(angle, vel);
+        time[i] = 0f;
+        ExpOrbs.amount[i] = amount;
+        ids[i] = lastId++;
+    }
+
+    private static void remove(int index){
+        int last = --size;
+        if(index == last) return;
+
+        x[index] = x[last];
+        y[index] = y[last];
+        vx[index] = vx[last];
+        vy[index] = vy[last];
+        time[index] = time[last];
+        amount[index] = amount[last];
+        ids[index] = ids[last];
+    }
 
-            if(tile.build instanceof ExpHolder exp && exp.acceptOrb() && exp.handleOrb(expAmount)){
-                b.remove();
+    private static void update(){
+        if(size == 0){
+            unbucket();
+            return;
+        }
+
+        boolean authority = net.server() || !net.active();
+        float delta = Time.delta, scl = Math.max(1f - drag * delta, 0f), width = world.unitWidth(), height = world.unitHeight();
+
+        // Removing swaps the last orb in, which has already been updated when going backwards
+        for(int i = size - 1; i >= 0; i--){
+            float ox = x[i] += vx[i] * delta, oy = y[i] += vy[i] * delta;
+            vx[i] *= scl;
+            vy[i] *= scl;
+
+            if(vx[i] * vx[i] + vy[i] * vy[i] >= 0.01f){
+                time[i] = 0f;
+            }else if((time[i] += delta) >= lifetime){
+                if(!headless) UnityFx.orbDespawn.at(ox, oy);
+                remove(i);
+                continue;
             }
-            else if(tile.block() instanceof Conveyor conv){
-                if(conv.absorbLasers){ //this will be used as a flag for exp conveyors
-                    expConveyor(b, conv, (ConveyorBuild)tile.build);
-                }else{
-                    conveyor(b, conv, (ConveyorBuild)tile.build);
+
+            if(ox < 0f || oy < 0f || ox > width || oy > height){
+                remove(i);
+                continue;
+            }
+
+            Tile tile = world.tileWorld(ox, oy);
+            if(tile == null || tile.build == null) continue;
+
+            if(tile.build instanceof ExpHolder exp && exp.acceptOrb()){
+                // Clients keep the orb until the server reports picking it up
+                if(!authority) continue;
+
+                // Hand the exp over one orb's worth at a time, as if this were many separate orbs
+                while(amount[i] > 0 && exp.handleOrb(expAmount)) amount[i] -= expAmount;
+                if(amount[i] <= 0){
+                    if(net.server()) pickups.add(ids[i]);
+                    remove(i);
+                    continue;
                 }
             }
-            else if(tile.block() instanceof Incinerator && ((IncineratorBuild)tile.build).heat > 0.5f){
-                b.remove();
+
+            if(tile.block() instanceof Conveyor conv){
+                ConveyorBuild build = (ConveyorBuild)tile.build;
+                if(build.clogHeat > 0.5f || !build.enabled) continue;
+
+                //absorbLasers is used as a flag for exp conveyors
+                float speed = conv.absorbLasers ? conv.speed * 2f : conv.speed / 3f;
+                if(conv.absorbLasers){
+                    vx[i] *= 0.7f;
+                    vy[i] *= 0.7f;
+                }
+
+                vx[i] += d4x[build.rotation] * speed * build.delta();
+                vy[i] += d4y[build.rotation] * speed * build.delta();
+            }else if(tile.block() instanceof Incinerator && ((IncineratorBuild)tile.build).heat > 0.5f){
+                remove(i);
+            }else if(tile.solid()){
+                x[i] -= 1.1f * vx[i];
+                y[i] -= 1.1f * vy[i];
+                vx[i] = vy[i] = 0f;
             }
-            else if(tile.solid()){
-                b.trns(-1.1f * b.vel.x, -1.1f * b.vel.y);
-                b.vel.scl(0f);
+        }
+
+        if(pickups.size > 0){
+            ExpOrbPickupPacket packet = new ExpOrbPickupPacket();
+            packet.ids.addAll(pickups);
+            net.send(packet, true);
+            pickups.clear();
+        }
+
+        bucket();
+        if(authority && (mergeTimer += delta) >= mergeInterval){
+            mergeTimer = 0f;
+            if(merge()) bucket();
+        }
+    }
+
+    /** Sorts every orb into the list of the tile it's on. */
+    private static void bucket(){
+        unbucket();
+
+        int w = world.width(), h = world.height();
+        if(heads.length != w * h){
+            heads = new int[w * h];
+            Arrays.fill(heads, -1);
+        }
+
+        for(int i = 0; i < size; i++){
+            int tx = World.toTile(x[i]), ty = World.toTile(y[i]);
+            if(tx < 0 || ty < 0 || tx >= w || ty >= h){
+                next[i] = -1;
+                continue;
             }
+
+            int key = tx + ty * w;
+            if(heads[key] == -1) touched.add(key);
+
+            next[i] = heads[key];
+            heads[key] = i;
         }
+    }
 
-        private void conveyor(Bullet b, Conveyor block, ConveyorBuild build){
-            if(build.clogHeat > 0.5f || !build.enabled) return;
+    /** Empties every tile's list, as removing orbs moves them to other indices. */
+    private static void unbucket(){
+        for(int t = 0; t < touched.size; t++) heads[touched.items[t]] = -1;
+        touched.clear();
+    }
+
+    /**
+     * Merges orbs within {@link #mergeRange} of each other, only comparing orbs on the same tile. Servers send every
+     * merge to clients, which never merge on their own.
+     * @return Whether any orbs were merged, which moves the remaining ones to other indices.
+     */
+    private static boolean merge(){
+        float range2 = mergeRange * mergeRange;
+        survivors.clear();
+        absorbed.clear();
+
+        for(int t = 0; t < touched.size; t++){
+            int key = touched.items[t];
+            for(int i = heads[key]; i != -1; i = next[i]){
+                if(amount[i] <= 0) continue;
 
-            float speed = block.speed / 3f;
-            b.vel.add(d4x[build.rotation] * speed * build.delta(), d4y[build.rotation] * speed * build.delta());
+                int absorbedBefore = absorbed.size;
+                for(int j = next[i]; j != -1; j = next[j]){
+                    int sum = amount[i] + amount[j];
+                    if(amount[j] <= 0 || sum > maxOrbExp || Mathf.dst2(x[i], y[i], x[j], y[j]) > range2) continue;
+
+                    float f = amount[j] / (float)sum;
+                    x[i] = Mathf.lerp(x[i], x[j], f);
+                    y[i] = Mathf.lerp(y[i], y[j], f);
+                    vx[i] = Mathf.lerp(vx[i], vx[j], f);
+                    vy[i] = Mathf.lerp(vy[i], vy[j], f);
+                    time[i] = Math.min(time[i], time[j]);
+
+                    amount[i] = sum;
+                    amount[j] = 0;
+                    absorbed.add(ids[j]);
+                }
+
+                if(absorbed.size != absorbedBefore) survivors.add(i);
+            }
         }
 
-        private void expConveyor(Bullet b, Conveyor block, ConveyorBuild build){
-            if(build.clogHeat > 0.5f || !build.enabled) return;
+        if(absorbed.isEmpty()) return false;
+
+        if(net.server()){
+            ExpOrbMergePacket packet = new ExpOrbMergePacket();
+            for(int s = 0; s < survivors.size; s++){
+                int i = survivors.items[s];
+                packet.ids.add(ids[i]);
+                packet.amounts.add(amount[i]);
+                packet.states.add(x[i], y[i], vx[i], vy[i]);
+                packet.states.add(time[i]);
+            }
+
+            packet.absorbed.addAll(absorbed);
+            net.send(packet, true);
+        }
 
-            float speed = block.speed * 2f;
-            b.vel.scl(0.7f);
-            b.vel.add(d4x[build.rotation] * speed * build.delta(), d4y[build.rotation] * speed * build.delta());
+        for(int i = size - 1; i >= 0; i--){
+            if(amount[i] <= 0) remove(i);
         }
+
+        survivors.clear();
+        absorbed.clear();
+        return true;
+    }
+
+    private static void draw(){
+        if(size == 0) return;
+
+        Core.camera.bounds(Tmp.r1).grow(16f);
+
+        float z = Draw.z();
+        Draw.z(layer);
+
+        boolean blink = Time.time % 14f < 7f;
+        for(int i = 0; i < size; i++){
+            float ox = x[i], oy = y[i];
+            if(!Tmp.r1.contains(ox, oy) || (blink && time[i] / lifetime > 0.5f)) continue;
+
+            int id = ids[i];
+            float scl = Mathf.sqrt(amount[i] / (float)expAmount);
+            scl = 1f + (scl - 1f) * 0.35f;
+
+            Draw.color(expColor, Color.white, 0.1f + 0.1f * Mathf.sin(Time.time * 0.03f + id * 2f));
+            Fill.circle(ox, oy, 1.5f * scl);
+            for(int j = 0; j < 4; j++){
+                Drawf.tri(ox, oy, 4f * scl, (4f + 1.5f * Mathf.sin(Time.time * 0.12f + id * 3f)) * scl, j * 90 + Mathf.sin(Time.time * 0.04f + id * 5f) * 28f);
+            }
+
+            Drawf.light(Team.derelict, ox, oy, lightRadius * scl, expColor, lightOpacity);
+        }
+
+        Draw.color();
+        Draw.z(z);
     }
 }
@@ -0,0 +1,227 @@
+package unity.entities;
+
+import arc.math.*;
+import unity.util.*;
+
+import java.util.*;
+
+/**
+ * Positions, velocities and rotations of a worm's segments, kept in flat arrays so the whole chain is solved in one
+ * pass without touching the segment entities. Segment {@code 0} is the one right behind the head.
+ * @see #follow(float, float, float, float, float, float, float)
+ * @see #joints(float, float, float, float, float, int, boolean)
+ */
+public class WormChain{
+    public float[] x, y, vx, vy, rotation;
+    /** Previous position and per-frame delta of each segment; only used by {@link #joints}. */
+    public float[] lastX, lastY, deltaX, deltaY;
+    public int size;
+
+    public WormChain(){
+        this(16);
+    }
+
+    public WormChain(int capacity){
+        capacity = Math.max(capacity, 1);
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        rotation = new float[capacity];
+        lastX = new float[capacity];
+        lastY = new float[capacity];
+        deltaX = new float[capacity];
+        deltaY = new float[capacity];
+    }
+
+    public void ensureCapacity(int capacity){
+        if(capacity <= x.length) return;
+
+        capacity = Math.max(capacity, x.length * 7 / 4);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        rotation = Arrays.copyOf(rotation, capacity);
+        lastX = Arrays.copyOf(lastX, capacity);
+        lastY = Arrays.copyOf(lastY, capacity);
+        deltaX = Arrays.copyOf(deltaX, capacity);
+        deltaY = Arrays.copyOf(deltaY, capacity);
+    }
+
+    /** @return The index of the added segment. */
+    public int add(float x, float y, float vx, float vy, float rotation){
+        ensureCapacity(size + 1);
+
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.rotation[i] = rotation;
+        lastX[i] = x;
+        lastY[i] = y;
+        deltaX[i] = deltaY[i] = 0f;
+        return i;
+    }
+
+    /** Appends segment {@code index} of another chain. */
+    public int add(WormChain other, int index){
+        int i = add(other.x[index], other.y[index], other.vx[index], other.vy[index], other.rotation[index]);
+        lastX[i] = other.lastX[index];
+        lastY[i] = other.lastY[index];
+        deltaX[i] = other.deltaX[index];
+        deltaY[i] = other.deltaY[index];
+        return i;
+    }
+
+    public void set(WormChain other){
+        size = 0;
+        ensureCapacity(other.size);
+        for(int i = 0; i < other.size; i++) add(other, i);
+    }
+
+    public void truncate(int newSize){
+        size = Math.max(Math.min(size, newSize), 0);
+    }
+
+    public void clear(){
+        size = 0;
+    }
+
+    /**
+     * Steers every segment's velocity towards the segment ahead of it, segment {@code 0} towards the head.
+     * @param headSpeed The head's speed, which segment {@code 0} keeps up with.
+     * @param minSpeed  The speed no segment is allowed to fall under.
+     * @param maxSpeed  The speed a segment's velocity is limited to before steering.
+     * @param drag      Multiplier applied to the steered velocity.
+     */
+    public void steer(float headX, float headY, float headSpeed, float minSpeed, float maxSpeed, float drag){
+        float[] x = this.x, y = this.y, vx = this.vx, vy = this.vy;
+        float prevX = headX, prevY = headY, prevSpeed = headSpeed, max2 = maxSpeed * maxSpeed;
+
+        for(int i = 0; i < size; i++){
+            float velX = vx[i], velY = vy[i], len2 = velX * velX + velY * velY;
+            if(len2 > max2){
+                float scl = maxSpeed / Mathf.sqrt(len2);
+                velX *= scl;
+                velY *= scl;
+                len2 = max2;
+            }
+
+            float speed = Math.max(Math.max(prevSpeed, Mathf.sqrt(len2)), minSpeed);
+
+            float dx = prevX - x[i], dy = prevY - y[i], dst = Mathf.sqrt(dx * dx + dy * dy);
+            if(dst > 0f){
+                velX += dx / dst * speed;
+                velY += dy / dst * speed;
+            }else{
+                velX += speed;
+            }
+
+            len2 = velX * velX + velY * velY;
+            if(len2 > 0f){
+                float scl = speed / Mathf.sqrt(len2) * drag;
+                velX *= scl;
+                velY *= scl;
+                prevSpeed = speed * drag;
+            }else{
+                prevSpeed = 0f;
+            }
+
+            vx[i] = velX;
+            vy[i] = velY;
+
+            prevX = x[i];
+            prevY = y[i];
+        }
+    }
+
+    /**
+     * Pulls every segment onto the joint behind the segment ahead of it, keeping the angle between neighbours within
+     * {@code angleLimit}. Only segment {@code 0} is moved by its velocity beforehand; the others are fully determined by
+     * their joint and previous position.
+     * @param offset   Distance from a segment's center to its joints.
+     * @param damping  Multiplier applied to every velocity afterwards.
+     * @return The head's new rotation.
+     */
+    public float follow(float headX, float headY, float headRotation, float headOffset, float offset, float angleLimit, float damping){
+        if(size == 0) return headRotation;
+
+        float[] x = this.x, y = this.y, vx = this.vx, vy = this.vy, rotation = this.rotation;
+
+        x[0] += vx[0];
+        y[0] += vy[0];
+
+        headRotation -= Utils.angleDistSigned(headRotation, rotation[0], angleLimit) / 1.25f;
+        float jx = headX - Angles.trnsx(headRotation, offset + headOffset), jy = headY - Angles.trnsy(headRotation, offset + headOffset);
+        rotation[0] = Utils.clampedAngle(Angles.angle(x[0], y[0], jx, jy), headRotation, angleLimit);
+        x[0] = jx - Angles.trnsx(rotation[0], offset);
+        y[0] = jy - Angles.trnsy(rotation[0], offset);
+
+        vx[0] *= damping;
+        vy[0] *= damping;
+
+        for(int i = 1; i < size; i++){
+            int p = i - 1;
+            float rot = rotation[p] -= Utils.angleDistSigned(rotation[p], rotation[i], angleLimit) / 1.25f;
+
+            jx = x[p] - Angles.trnsx(rot, offset);
+            jy = y[p] - Angles.trnsy(rot, offset);
+
+            float r = rotation[i] = Utils.clampedAngle(Angles.angle(x[i], y[i], jx, jy), rot, angleLimit);
+            x[i] = jx - Angles.trnsx(r, offset);
+            y[i] = jy - Angles.trnsy(r, offset);
+
+            vx[i] *= damping;
+            vy[i] *= damping;
+        }
+
+        return headRotation;
+    }
+
+    /**
+     * Solves a chain whose segments are separate entities joined head to tail, where index {@code 0} is the head itself
+     * and is left in place. Each segment is dragged along by the segment ahead of it, then it and up to
+     * {@code cast - 1} segments behind it are pulled towards its joint.
+     * @param offset       Distance from a segment's center to its joints.
+     * @param headOffset   Extra distance between the head and its joint.
+     * @param smooth       How much of the angle past {@code angleLimit} is corrected each step.
+     * @param strength     How much of the distance to the joint is corrected each step.
+     * @param preventDrift Whether segments keep their rotation while they and the segment ahead are idle.
+     */
+    public void joints(float offset, float headOffset, float angleLimit, float smooth, float strength, int cast, boolean preventDrift){
+        float[] x = this.x, y = this.y, rotation = this.rotation, deltaX = this.deltaX, deltaY = this.deltaY;
+
+        for(int i = 1; i < size; i++){
+            int p = i - 1;
+            float dist = offset + (p == 0 ? headOffset : 0f);
+            float jx = x[p] - Angles.trnsx(rotation[p], dist), jy = y[p] - Angles.trnsy(rotation[p], dist);
+
+            float rdx = deltaX[i] - deltaX[p], rdy = deltaY[i] - deltaY[p];
+            float lastSpeed = Mathf.sqrt(deltaX[p] * deltaX[p] + deltaY[p] * deltaY[p]);
+
+            float angle = !preventDrift || (lastSpeed > 0.001f && rdx * rdx + rdy * rdy > 0.00001f) ? Angles.angle(x[i], y[i], jx, jy) : rotation[i];
+            float rot = rotation[i] = angle - Utils.angleDistSigned(angle, rotation[p], angleLimit) * smooth;
+
+            x[i] += Angles.trnsx(rot, lastSpeed);
+            y[i] += Angles.trnsy(rot, lastSpeed);
+
+            float pullX = (x[i] + Angles.trnsx(rot, offset) - jx) * strength, pullY = (y[i] + Angles.trnsy(rot, offset) - jy) * strength;
+            for(int n = i, c = cast; c > 0 && n < size; n++, c--){
+                float scl = c / (float)cast;
+                x[n] -= pullX * scl;
+                y[n] -= pullY * scl;
+                updateLast(n);
+            }
+        }
+    }
+
+    /** Updates a segment's delta from its last position, like {@code Hitboxc#updateLastPosition()}. */
+    void updateLast(int i){
+        deltaX[i] = x[i] - lastX[i];
+        deltaY[i] = y[i] - lastY[i];
+        lastX[i] = x[i];
+        lastY[i] = y[i];
+    }
+}
@@ -4,10 +4,8 @@ import arc.func.*;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
-import arc.math.geom.QuadTree.*;
 import arc.math.geom.*;
 import arc.struct.*;
-import arc.struct.ObjectMap.*;
 import arc.util.*;
 import mindustry.core.*;
 import mindustry.gen.*;
@@ -18,18 +16,23 @@ import unity.gen.*;
 import unity.gen.LightHoldc.*;
 import unity.util.*;
 
+import java.util.*;
+
 import static mindustry.Vars.*;
 import static unity.Unity.*;
 
 /** @author GlennFolker */
-@SuppressWarnings("unused")
+@SuppressWarnings({"unused", "unchecked"})
 @EntityDef(value = Lightc.class, serialize = false, pooled = true)
 @EntityComponent
-abstract class LightComp implements Drawc, QuadTreeObject{
+abstract class LightComp implements Drawc{
     static final float yield = 50f * tilesize;
     static final float width = 1.5f;
     static final float rotationInc = 22.5f;
 
+    /** {@link #trace()} results: didn't stop, stopped without a holder, or stopped at {@link #hitHold} */
+    static final int hitNone = 0, hitEmpty = 1, hitHolder = 2;
+
     @Import float x, y;
     @ReadOnly transient volatile float endX, endY;
 
@@ -51,176 +54,250 @@ abstract class LightComp implements Drawc, QuadTreeObject{
 
     transient volatile LightHoldBuildc pointed;
     transient volatile boolean rotationChanged = false;
-
-    /** Maps parent with strength multipliers */
-    private transient final ObjectFloatMap<Light> parents = new ObjectFloatMap<>(2);
-    private transient final ThreadLocal<ObjectFloatMap.Entries<Light>> parentEntries = new ThreadLocal<>(){
-        @Override
-        protected ObjectFloatMap.Entries<Light> initialValue(){
-            return new ObjectFloatMap.Entries<>(parents);
-        }
-    };
-
-    /** Maps child data with the actual entity. Value might be null if the child is a merged light */
-    private transient final ObjectMap<Longf<Light>, AtomicPair<Light, Light>> children = new ObjectMap<>(2);
-    private transient final ThreadLocal<Entries<Longf<Light>, AtomicPair<Light, Light>>> childEntries = new ThreadLocal<>(){
-        @Override
-        protected Entries<Longf<Light>, AtomicPair<Light, Light>> initialValue(){
-            return new Entries<>(children);
-        }
-    };
+    /** Whether this light has to be recast; see {@link unity.async.LightProcess#incremental} */
+    transient volatile boolean dirty = true;
+
+    /** Parents with their strength multipliers, guarded by {@link #parentLock} */
+    private transient Light[] parentLights = new Light[2];
+    private transient float[] parentMults = new float[2];
+    private transient int parentCount;
+    private transient final Object parentLock = new Object();
+
+    /**
+     * Planned children, guarded by {@link #childLock}. The direct child is owned by this light, the indirect child is
+     * an existing light merged in instead; either might be null
+     */
+    private transient Longf<Light>[] childKeys = new Longf[2];
+    private transient Light[] childDirect = new Light[2], childIndirect = new Light[2];
+    /** Rotation and strength of each child packed in a {@link Float2}, evaluated once per {@link #link()} */
+    private transient long[] childData = new long[2];
+    private transient int childCount;
+    private transient final Object childLock = new Object();
+
+    /** Snapshot of the parents, so that tracing never holds two lights' locks at once */
+    private transient final Seq<Light> traceParents = new Seq<>(2);
+    private transient int hitState = hitNone;
+    private transient LightHoldBuildc hitHold;
+
+    /** Packed positions of the tiles the last trace went through, and their bounds */
+    private transient final IntSeq path = new IntSeq();
+    private transient int pathMinX, pathMinY, pathMaxX, pathMaxY;
+    private transient final World.Raycaster tracer = this::traceTile;
 
     private static final Color tmpCol = new Color();
 
     /** Called synchronously before {@link #cast()} is called */
     void snap(){
         // Values that are needed to stay as is in async process are snapped here
-        strength = queueStrength + recStrength();
+        float str = queueStrength + recStrength();
+        int col = combinedCol(queueColor);
+        float nx = SVec2.x(queuePosition), ny = SVec2.y(queuePosition);
+        if(str != strength || queueSource != source || col != color || nx != x || ny != y) dirty = true;
+
+        strength = str;
         source = queueSource;
-        color = combinedCol(queueColor);
+        color = col;
 
         float rot = fixRot(queueRotation);
-        if(!Mathf.equal(rotation, rot)) rotationChanged = true;
+        if(!Mathf.equal(rotation, rot)){
+            rotationChanged = true;
+            dirty = true;
+        }
         rotation = rot;
 
-        x = SVec2.x(queuePosition);
-        y = SVec2.y(queuePosition);
+        x = nx;
+        y = ny;
     }
 
-    /** Called asynchronously */
+    /** @return Whether the last trace went through any tile within the given inclusive bounds */
+    boolean pathOverlaps(int minX, int minY, int maxX, int maxY){
+        if(maxX < pathMinX || maxY < pathMinY || minX > pathMaxX || minY > pathMaxY) return false;
+
+        int[] items = path.items;
+        for(int i = 0, len = path.size; i < len; i++){
+            int px = Point2.x(items[i]), py = Point2.y(items[i]);
+            if(px >= minX && py >= minY && px <= maxX && py <= maxY) return true;
+        }
+
+        return false;
+    }
+
+    /** Called asynchronously; a light that is cut off from any source is removed here */
     void cast(){
+        if(prepareCast()){
+            trace();
+            link();
+        }
+    }
+
+    /**
+     * Called asynchronously before any light is traced, one light at a time.
+     * @return {@code false} if the light has been removed
+     */
+    boolean prepareCast(){
         clearInvalid();
 
         // If this doesn't come from a light source and it has no parents, remove
-        if((source == null || !source.isValid()) && parentsAny(parents -> parents.size <= 0)){
+        boolean orphan;
+        synchronized(parentLock){
+            orphan = parentCount <= 0;
+        }
+
+        if((source == null || !source.isValid()) && orphan){
             queueRemove();
-            return;
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Called asynchronously, possibly in parallel with other lights. Only writes to this light, and never holds more
+     * than one light's lock at a time
+     */
+    void trace(){
+        synchronized(parentLock){
+            traceParents.clear();
+            traceParents.addAll(parentLights, 0, parentCount);
         }
 
+        hitState = hitNone;
+        hitHold = null;
+
+        path.clear();
+        pathMinX = pathMinY = Integer.MAX_VALUE;
+        pathMaxX = pathMaxY = Integer.MIN_VALUE;
+
         float
             targetX = x + Angles.trnsx(rotation, strength * yield),
             targetY = y + Angles.trnsy(rotation, strength * yield);
 
-        boolean hit = world.raycast(World.toTile(x), World.toTile(y), World.toTile(targetX), World.toTile(targetY), (tx, ty) -> {
-            Tile tile = world.tile(tx, ty);
-            if(tile == null){ // Out of map bounds, don't waste time
-                lights.queuePoint(self(), null);
-                endX = tx * tilesize;
-                endY = ty * tilesize;
+        boolean hit = world.raycast(World.toTile(x), World.toTile(y), World.toTile(targetX), World.toTile(targetY), tracer);
 
-                return true;
-            }
+        // Recalculate end position if didn't hit any tile
+        if(!hit){
+            endX = Mathf.round(targetX / tilesize) * tilesize;
+            endY = Mathf.round(targetY / tilesize) * tilesize;
+        }
 
-            Building build = tile.build;
-            if(build instanceof LightHoldBuildc hold){
-                // If this build is the source or there are parents pointing at it, continue casting
-                if(hold == source || parentsAny(parents -> {
-                    for(var e : parentEntries()){
-                        if(hold == e.key.pointed) return true;
-                    }
+        traceParents.clear();
+    }
 
-                    return false;
-                })) return false;
+    boolean traceTile(int tx, int ty){
+        path.add(Point2.pack(tx, ty));
+        pathMinX = Math.min(pathMinX, tx);
+        pathMinY = Math.min(pathMinY, ty);
+        pathMaxX = Math.max(pathMaxX, tx);
+        pathMaxY = Math.max(pathMaxY, ty);
 
-                // If this is one of the parent's source, stop casting but don't handle
-                if(parentsAny(parents -> {
-                    for(var e : parentEntries()){
-                        Light l = e.key;
-                        if(l.parentsAny(p -> {
-                            for(var f : l.parentEntries()){
-                                if(hold == f.key.pointed) return true;
-                            }
+        Tile tile = world.tile(tx, ty);
+        if(tile == null){ // Out of map bounds, don't waste time
+            hitState = hitEmpty;
+            endX = tx * tilesize;
+            endY = ty * tilesize;
 
-                            return false;
-                        })) return true;
-                    }
+            return true;
+        }
+
+        Building build = tile.build;
+        if(build instanceof LightHoldBuildc hold){
+            // If this build is the source or there are parents pointing at it, continue casting
+            if(hold == source || parentPointed(hold)) return false;
 
-                    return false;
-                })){
-                    lights.queuePoint(self(), null);
+            // If this is one of the parent's source, stop casting but don't handle
+            for(int i = 0; i < traceParents.size; i++){
+                if(traceParents.items[i].parentPointed(hold)){
+                    hitState = hitEmpty;
                     endX = tx * tilesize;
                     endY = ty * tilesize;
 
                     return true;
                 }
+            }
 
-                // Either stop if the holder accepts this light or the tile is solid
-                if(hold.acceptLight(self(), tx, ty)){
-                    // Insert self to light holder
-                    lights.queuePoint(self(), hold);
-                    endX = tile.worldx();
-                    endY = tile.worldy();
-
-                    return true;
-                }else if(tile.solid()){
-                    // Stop ray-casting, no light holder is being handled
-                    lights.queuePoint(self(), null);
-                    endX = tile.worldx();
-                    endY = tile.worldy();
+            // Either stop if the holder accepts this light or the tile is solid
+            if(hold.acceptLight(self(), tx, ty)){
+                // Insert self to light holder
+                hitState = hitHolder;
+                hitHold = hold;
+                endX = tile.worldx();
+                endY = tile.worldy();
 
-                    return true;
-                }
+                return true;
             }else if(tile.solid()){
-                lights.queuePoint(self(), null);
+                // Stop ray-casting, no light holder is being handled
+                hitState = hitEmpty;
                 endX = tile.worldx();
                 endY = tile.worldy();
 
                 return true;
             }
+        }else if(tile.solid()){
+            hitState = hitEmpty;
+            endX = tile.worldx();
+            endY = tile.worldy();
 
-            return false;
-        });
+            return true;
+        }
 
-        // Recalculate end position if didn't hit any tile
-        if(!hit){
-            endX = Mathf.round(targetX / tilesize) * tilesize;
-            endY = Mathf.round(targetY / tilesize) * tilesize;
+        return false;
+    }
+
+    /** Called asynchronously after every light has been traced, one light at a time */
+    void link(){
+        if(hitState == hitEmpty){
+            lights.queuePoint(self(), null);
+        }else if(hitState == hitHolder){
+            lights.queuePoint(self(), hitHold);
         }
+        hitHold = null;
 
         Tile tile = world.tileWorld(endX, endY);
-        if(tile != null){
-            children(children -> {
-                // Iterate through planned children:
-                // - Check for existing lights in the end position. If there are any light with the preferred amount
-                //   of rotation, remove own direct child and set said light's parent as this, but don't refer said
-                //   light as this light's children directly
-                // - Otherwise pool a new light as child and directly link it
-                for(var e : childEntries()){
-                    Longf<Light> key = e.key;
-
-                    // The pair's key is direct child, value is indirect child
-                    AtomicPair<Light, Light> pair = e.value;
-                    long res = key.get(self());
-
-                    // The rotation and strength data of the children are packed in a Float2 struct
+        synchronized(childLock){
+            // The rotation and strength data of the children are packed in a Float2 struct
+            for(int c = 0; c < childCount; c++) childData[c] = childKeys[c].get(self());
+
+            // Iterate through planned children:
+            // - Check for existing lights in the end position. If there are any light with the preferred amount
+            //   of rotation, remove own direct child and set said light's parent as this, but don't refer said
+            //   light as this light's children directly
+            // - Otherwise pool a new light as child and directly link it
+            if(tile != null){
+                for(int c = 0; c < childCount; c++){
+                    long res = childData[c];
                     float rot = Float2.x(res);
                     float str = Float2.y(res);
 
-                    lights.quad(quad -> quad.intersect(tile.worldx() - tilesize / 2f, tile.worldy() - tilesize / 2f, tilesize, tilesize, l -> {
+                    for(int i = lights.firstAt(tile.x, tile.y); i != -1; i = lights.nextAt(i)){
+                        Light l = lights.all.items[i];
+
                         // Only accept existing light if:
                         // - It isn't already this child, for obvious reasons
                         // - It isn't this light's parent
                         // - Has the preferred amount of rotation
-                        if(l.valid() && pair.key != l && pair.value != l && !isParent(l) && Angles.near(rot, l.rotation(), 1f)){
+                        if(l.valid() && childDirect[c] != l && childIndirect[c] != l && !isParent(l) && Angles.near(rot, l.rotation(), 1f)){
                             // If already contains a preferred child, move on to the other one
-                            if(pair.key != null){
-                                pair.key.queueRemove();
-                                pair.key = null;
+                            Light direct = childDirect[c];
+                            if(direct != null){
+                                direct.queueRemove();
+                                childDirect[c] = null;
                             }
 
-                            if(pair.value != null) pair.value.detachParent(self());
-                            pair.value = l;
-                            pair.value.parent(self(), str);
+                            Light indirect = childIndirect[c];
+                            if(indirect != null) indirect.detachParent(self());
+                            childIndirect[c] = l;
+                            l.parent(self(), str);
                         }
-                    }));
+                    }
 
                     // If it was using an indirect child yet it does not meed the criteria anymore, pool a new direct
                     // child light
-                    if(pair.key == null && (pair.value == null || !Angles.near(rot, pair.value.rotation(), 1f))){
+                    Light indirect = childIndirect[c];
+                    if(childDirect[c] == null && (indirect == null || !Angles.near(rot, indirect.rotation(), 1f))){
                         // Dispose indirect child
-                        if(pair.value != null){
-                            pair.value.detachParent(self());
-                            pair.value = null;
+                        if(indirect != null){
+                            indirect.detachParent(self());
+                            childIndirect[c] = null;
                         }
 
                         Light l = Light.create();
@@ -228,28 +305,24 @@ abstract class LightComp implements Drawc, QuadTreeObject{
                         l.parent(self(), str);
                         l.queueAdd();
 
-                        pair.key = l;
+                        childDirect[c] = l;
                     }
                 }
-            });
-        }
+            }
 
-        children(children -> {
             // Assign position, rotation, and strength values
-            for(var e : childEntries()){
-                Light l = e.value.key;
+            long position = SVec2.construct(endX, endY);
+            for(int c = 0; c < childCount; c++){
+                Light l = childDirect[c];
                 if(l != null){
-                    l.queuePosition = SVec2.construct(endX, endY);
-
-                    long res = e.key.get(self());
-                    float rot = Float2.x(res);
-                    float str = Float2.y(res);
+                    l.queuePosition = position;
 
-                    l.queueRotation = rot;
-                    l.parent(self(), str);
+                    long res = childData[c];
+                    l.queueRotation = Float2.x(res);
+                    l.parent(self(), Float2.y(res));
                 }
             }
-        });
+        }
 
         casted = true;
         valid = true;
@@ -257,9 +330,9 @@ abstract class LightComp implements Drawc, QuadTreeObject{
 
     float recStrength(){
         float str = 0f;
-        synchronized(parents){
-            for(var p : parentEntries()){
-                str += p.key.endStrength() * p.value;
+        synchronized(parentLock){
+            for(int i = 0; i < parentCount; i++){
+                str += parentLights[i].endStrength() * parentMults[i];
             }
         }
 
@@ -269,15 +342,15 @@ abstract class LightComp implements Drawc, QuadTreeObject{
     int combinedCol(int baseCol){
         synchronized(tmpCol){
             tmpCol.set(1f, 1f, 1f, 1f);
-            parents(parents -> {
-                for(var e : parentEntries()){
-                    int col = e.key.color();
+            synchronized(parentLock){
+                int size = parentCount;
+                for(int i = 0; i < size; i++){
+                    int col = parentLights[i].color();
                     tmpCol.r += SColor.r(col);
                     tmpCol.g += SColor.g(col);
                     tmpCol.b += SColor.b(col);
                 }
 
-                int size = parents.size;
                 if(size > 0){
                     tmpCol.r /= size;
                     tmpCol.g /= size;
@@ -288,7 +361,7 @@ abstract class LightComp implements Drawc, QuadTreeObject{
                     SColor.r(baseCol), SColor.g(baseCol), SColor.b(baseCol), 1f,
                     SColor.a(baseCol) / Math.min(size + 1f, 2f)
                 );
-            });
+            }
 
             return tmpCol.rgba();
         }
@@ -304,20 +377,10 @@ abstract class LightComp implements Drawc, QuadTreeObject{
         return Math.max(strength - Mathf.dst(x, y, endX, endY) / yield, 0f);
     }
 
-    @Override
-    public void add(){
-        lights.quad(quad -> quad.insert(self()));
-    }
-
     void queueAdd(){
         lights.queueAdd(self());
     }
 
-    @Override
-    public void remove(){
-        lights.quad(quad -> quad.remove(self()));
-    }
-
     void queueRemove(){
         valid = false;
 
@@ -326,130 +389,163 @@ abstract class LightComp implements Drawc, QuadTreeObject{
         lights.queueRemove(self());
     }
 
-    @Override
-    public void hitbox(Rect out){
-        out.set(x, y, 0f, 0f);
-    }
-
-    void children(Cons<ObjectMap<Longf<Light>, AtomicPair<Light, Light>>> cons){
-        synchronized(children){
-            cons.get(children);
-        }
-    }
-
-    Entries<Longf<Light>, AtomicPair<Light, Light>> childEntries(){
-        Entries<Longf<Light>, AtomicPair<Light, Light>> e = childEntries.get();
-        e.reset();
-
-        return e;
-    }
-
-    void parents(Cons<ObjectFloatMap<Light>> cons){
-        synchronized(parents){
-            cons.get(parents);
-        }
-    }
-
-    ObjectFloatMap.Entries<Light> parentEntries(){
-        ObjectFloatMap.Entries<Light> e = parentEntries.get();
-        e.reset();
-
-        return e;
-    }
-
-    boolean parentsAny(Boolf<ObjectFloatMap<Light>> cons){
-        synchronized(parents){
-            return cons.get(parents);
-        }
-    }
-
     void clearChildren(){
-        children(children -> {
-            for(var e : childEntries()){
-                AtomicPair<Light, Light> pair = e.value;
-                Light direct = pair.key;
-                Light indirect = pair.value;
+        synchronized(childLock){
+            for(int c = 0; c < childCount; c++){
+                Light direct = childDirect[c];
+                Light indirect = childIndirect[c];
 
                 if(direct != null){
                     direct.queueRemove();
-                    pair.key = null;
+                    childDirect[c] = null;
                 }
 
                 if(indirect != null){
                     indirect.detachParent(self());
-                    pair.value = null;
+                    childIndirect[c] = null;
                 }
+
+                childKeys[c] = null;
             }
 
-            children.clear();
-        });
+            childCount = 0;
+            dirty = true;
+        }
     }
 
     void clearParents(){
-        parents(parents -> {
-            for(var l : parentEntries()){
-                l.key.detachChild(self());
+        synchronized(parentLock){
+            for(int i = 0; i < parentCount; i++){
+                parentLights[i].detachChild(self());
+                parentLights[i] = null;
             }
 
-            parents.clear();
-        });
+            parentCount = 0;
+        }
     }
 
     void clearInvalid(){
-        parents(parents -> {
-            ObjectFloatMap.Entries<Light> it = parentEntries();
-            while(it.hasNext){
-                Light l = it.next().key;
-                if(l != null && ((l.casted() && !l.valid()) || !(Mathf.equal(x, l.endX()) && Mathf.equal(y, l.endY())))){
+        synchronized(parentLock){
+            for(int i = parentCount - 1; i >= 0; i--){
+                Light l = parentLights[i];
+                if((l.casted() && !l.valid()) || !(Mathf.equal(x, l.endX()) && Mathf.equal(y, l.endY()))){
                     l.detachChild(self());
-                    it.remove();
+                    removeParent(i);
+                    dirty = true;
                 }
             }
-        });
+        }
 
-        children(children -> {
-            for(var e : childEntries()){
-                AtomicPair<Light, Light> pair = e.value;
-                Light direct = pair.key;
-                Light indirect = pair.value;
+        synchronized(childLock){
+            for(int c = 0; c < childCount; c++){
+                Light direct = childDirect[c];
+                Light indirect = childIndirect[c];
 
                 if(direct != null && direct.casted() && !direct.valid()){
                     direct.detachParent(self());
-                    pair.key = null;
+                    childDirect[c] = null;
                 }
 
                 if(indirect != null && indirect.casted() && !indirect.valid()){
                     indirect.detachParent(self());
-                    pair.value = null;
+                    childIndirect[c] = null;
                 }
             }
-        });
+        }
+    }
+
+    boolean parentPointed(LightHoldBuildc hold){
+        synchronized(parentLock){
+            for(int i = 0; i < parentCount; i++){
+                if(hold == parentLights[i].pointed) return true;
+            }
+        }
+
+        return false;
     }
 
     boolean isParent(Light light){
-        return parentsAny(parents -> parents.containsKey(light));
+        synchronized(parentLock){
+            return parentIndex(light) != -1;
+        }
     }
 
     void parent(Light light, float mult){
-        parents(parents -> parents.put(light, mult));
+        synchronized(parentLock){
+            int i = parentIndex(light);
+            if(i == -1){
+                if(parentCount == parentLights.length){
+                    parentLights = Arrays.copyOf(parentLights, parentCount * 2);
+                    parentMults = Arrays.copyOf(parentMults, parentCount * 2);
+                }
+
+                i = parentCount++;
+                parentLights[i] = light;
+            }else if(parentMults[i] == mult){
+                return;
+            }
+
+            parentMults[i] = mult;
+            dirty = true;
+        }
     }
 
     void child(Longf<Light> child){
-        children(children -> children.get(child, AtomicPair::new).reset());
+        synchronized(childLock){
+            int c = 0;
+            while(c < childCount && childKeys[c] != child) c++;
+
+            if(c == childCount){
+                if(childCount == childKeys.length){
+                    int cap = childCount * 2;
+                    childKeys = Arrays.copyOf(childKeys, cap);
+                    childDirect = Arrays.copyOf(childDirect, cap);
+                    childIndirect = Arrays.copyOf(childIndirect, cap);
+                    childData = Arrays.copyOf(childData, cap);
+                }
+
+                childKeys[childCount++] = child;
+            }
+
+            childDirect[c] = null;
+            childIndirect[c] = null;
+            dirty = true;
+        }
     }
 
     void detachChild(Light light){
-        children(children -> {
-            for(var e : childEntries()){
-                AtomicPair<Light, Light> pair = e.value;
-                if(pair.key == light) pair.key = null;
-                if(pair.value == light) pair.value = null;
+        synchronized(childLock){
+            for(int c = 0; c < childCount; c++){
+                if(childDirect[c] == light) childDirect[c] = null;
+                if(childIndirect[c] == light) childIndirect[c] = null;
             }
-        });
+        }
     }
 
     void detachParent(Light light){
-        parents(parents -> parents.remove(light, 0f));
+        synchronized(parentLock){
+            int i = parentIndex(light);
+            if(i != -1) removeParent(i);
+        }
+
+        dirty = true;
+    }
+
+    /** Must hold {@link #parentLock} */
+    private int parentIndex(Light light){
+        for(int i = 0; i < parentCount; i++){
+            if(parentLights[i] == light) return i;
+        }
+
+        return -1;
+    }
+
+    /** Must hold {@link #parentLock}; moves the last parent into the freed slot */
+    private void removeParent(int index){
+        int last = --parentCount;
+        parentLights[index] = parentLights[last];
+        parentMults[index] = parentMults[last];
+        parentLights[last] = null;
     }
 
     float visualRot(){
@@ -12,6 +12,7 @@ import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.type.*;
 import unity.annotations.Annotations.*;
+import unity.entities.*;
 import unity.gen.*;
 import unity.type.*;
 import unity.util.*;
@@ -19,9 +20,14 @@ import unity.util.*;
 @SuppressWarnings({"unused", "UnnecessaryReturnStatement"})
 @EntityComponent
 abstract class WormComp implements Unitc{
-    private static Unit last;
+    /** Scratch chain the head solves its segments in; segments are only gathered into it and written back. */
+    private static final WormChain chain = new WormChain();
+    private static Unit[] chainUnits = new Unit[16];
+
     transient Unit head, parent, child;
     transient float layer = 0f, scanTime = 0f;
+    /** Amount of segments ahead of this one, as of the head's last update. */
+    transient int chainIndex = 0;
     transient byte weaponIdx = 0;
     transient boolean removing = false, saveAdd = false;
 
@@ -227,10 +233,10 @@ abstract class WormComp implements Unitc{
     public void update(){
         UnityUnitType uType = (UnityUnitType)type;
         if(uType.splittable && isTail() && uType.regenTime > 0f){
-            int forward = countFoward();
-            if(forward < Math.max(uType.maxSegments, uType.segmentLength)){
+            //the head's cached count avoids walking the whole worm every frame; it's only checked exactly when regenerating
+            if(chainIndex < Math.max(uType.maxSegments, uType.segmentLength)){
                 regenTime += Time.delta;
-                if(regenTime >= uType.regenTime){
+                if(regenTime >= uType.regenTime && countFoward() < Math.max(uType.maxSegments, uType.segmentLength)){
                     regenTime = 0f;
                     Unit unit;
                     if((unit = addTail()) != null){
@@ -299,50 +305,38 @@ abstract class WormComp implements Unitc{
     private void updatePost(){
         if(isHead()){
             UnityUnitType uType = (UnityUnitType)type;
-            last = self();
-            distributeActionBack(u -> {
-                if(u == self()) return;
-
-                float offset = self() == last ? uType.headOffset : 0f;
-                Tmp.v1.trns(last.rotation + 180f, (uType.segmentOffset / 2f) + offset).add(last);
-
-                float rdx = u.deltaX - last.deltaX;
-                float rdy = u.deltaY - last.deltaY;
-
-                float angTo = !uType.preventDrifting || (last.deltaLen() > 0.001f && (rdx * rdx) + (rdy * rdy) > 0.00001f) ? u.angleTo(Tmp.v1) : u.rotation;
+            gatherChain();
+            chain.joints(uType.segmentOffset / 2f, uType.headOffset, uType.angleLimit, 1f - uType.anglePhysicsSmooth, Mathf.clamp(uType.jointStrength * Time.delta), uType.segmentCast, uType.preventDrifting);
 
-                u.rotation = angTo - (Utils.angleDistSigned(angTo, last.rotation, uType.angleLimit) * (1f - uType.anglePhysicsSmooth));
-                u.trns(Tmp.v3.trns(u.rotation, last.deltaLen()));
-                Tmp.v2.trns(u.rotation, uType.segmentOffset / 2f).add(u);
+            for(int i = 1; i < chain.size; i++){
+                Unit last = chainUnits[i - 1], u = chainUnits[i];
 
-                Tmp.v2.sub(Tmp.v1).scl(Mathf.clamp(uType.jointStrength * Time.delta));
-
-                Unit n = u;
-                int cast = uType.segmentCast;
-                while(cast > 0 && n != null){
-                    float scl = cast / (float)uType.segmentCast;
-                    n.set(n.x - (Tmp.v2.x * scl), n.y - (Tmp.v2.y * scl));
-                    n.updateLastPosition();
-                    n = ((Wormc)n).child();
-                    cast--;
-                }
+                u.rotation = chain.rotation[i];
+                u.set(chain.x[i], chain.y[i]);
+                u.lastX = chain.lastX[i];
+                u.lastY = chain.lastY[i];
+                u.deltaX = chain.deltaX[i];
+                u.deltaY = chain.deltaY[i];
 
                 float nextHealth = (last.health() + u.health()) / 2f;
                 if(!Mathf.equal(nextHealth, last.health(), 0.0001f)) last.health(Mathf.lerpDelta(last.health(), nextHealth, uType.healthDistribution));
                 if(!Mathf.equal(nextHealth, u.health(), 0.0001f)) u.health(Mathf.lerpDelta(u.health(), nextHealth, uType.healthDistribution));
 
-                Wormc wrm = ((Wormc)last);
-                float nextHealthDv = (wrm.splitHealthDiv() + u.splitHealthDiv()) / 2f;
+                Wormc wrm = (Wormc)last, wu = (Wormc)u;
+                float nextHealthDv = (wrm.splitHealthDiv() + wu.splitHealthDiv()) / 2f;
                 if(!Mathf.equal(nextHealth, wrm.splitHealthDiv(), 0.0001f)) wrm.splitHealthDiv(Mathf.lerpDelta(wrm.splitHealthDiv(), nextHealthDv, uType.healthDistribution));
-                if(!Mathf.equal(nextHealth, u.splitHealthDiv(), 0.0001f)) u.splitHealthDiv(Mathf.lerpDelta(u.splitHealthDiv(), nextHealthDv, uType.healthDistribution));
-                last = u;
-            });
+                if(!Mathf.equal(nextHealth, wu.splitHealthDiv(), 0.0001f)) wu.splitHealthDiv(Mathf.lerpDelta(wu.splitHealthDiv(), nextHealthDv, uType.healthDistribution));
+            }
+
+            int behind = chain.size - 1;
+            for(int i = 0; i < chain.size; i++) chainUnits[i] = null;
+
             scanTime += Time.delta;
             if(scanTime >= 5f && uType.chainable){
                 Tmp.v1.trns(rotation(), uType.segmentOffset / 2f).add(self());
                 Tmp.r1.setCentered(Tmp.v1.x, Tmp.v1.y, hitSize());
                 Units.nearby(Tmp.r1, u -> {
-                    if(u.team == team && u.type == type && u instanceof Wormc w && w.head() != self() && w.isTail() && w.countFoward() + countBackward() < uType.maxSegments && w.waitTime() <= 0f && within(u, uType.segmentOffset) && Utils.angleDist(rotation(), angleTo(u)) < uType.angleLimit){
+                    if(u.team == team && u.type == type && u instanceof Wormc w && w.head() != self() && w.isTail() && w.countFoward() + behind < uType.maxSegments && w.waitTime() <= 0f && within(u, uType.segmentOffset) && Utils.angleDist(rotation(), angleTo(u)) < uType.angleLimit){
                         connect(w);
                     }
                 });
@@ -351,6 +345,32 @@ abstract class WormComp implements Unitc{
         }
     }
 
+    /** Copies this head and every segment behind it into {@link #chain}, in order. */
+    private void gatherChain(){
+        chain.clear();
+
+        Unit u = self();
+        while(u != null){
+            int i = chain.size;
+            if(i == chainUnits.length){
+                Unit[] next = new Unit[i * 2];
+                System.arraycopy(chainUnits, 0, next, 0, i);
+                chainUnits = next;
+            }
+            chainUnits[i] = u;
+
+            chain.add(u.x, u.y, 0f, 0f, u.rotation);
+            chain.lastX[i] = u.lastX;
+            chain.lastY[i] = u.lastY;
+            chain.deltaX[i] = u.deltaX;
+            chain.deltaY[i] = u.deltaY;
+
+            Wormc w = (Wormc)u;
+            w.chainIndex(i);
+            u = w.child();
+        }
+    }
+
     @Replace
     @Override
     public void wobble(){
@@ -12,10 +12,10 @@ import mindustry.entities.abilities.*;
 import mindustry.gen.*;
 import mindustry.type.*;
 import unity.annotations.Annotations.*;
+import unity.entities.*;
 import unity.entities.units.WormSegmentUnit.*;
 import unity.gen.*;
 import unity.type.*;
-import unity.util.*;
 
 import java.util.*;
 
@@ -26,7 +26,8 @@ public class WormDefaultUnit extends UnitEntity{
     public float repairTime = 0f;
     protected float attachTime = 4f * 60f;
     protected float healthDistributionEfficiency = 1f;
-    protected Vec2[] segments, segmentVelocities;
+    /** Positions, velocities and rotations of {@link #segmentUnits}, which only mirror it. */
+    protected WormChain chain = new WormChain();
     protected boolean addSegments = true;
     protected boolean found;
     protected final Interval scanTimer = new Interval();
@@ -52,11 +53,9 @@ public class WormDefaultUnit extends UnitEntity{
 
     protected void setEffects(){
         segmentUnits = new WormSegmentUnit[wormType.segmentLength];
-        segments = new Vec2[wormType.segmentLength];
-        segmentVelocities = new Vec2[wormType.segmentLength];
+        chain.clear();
         for(int i = 0; i < getSegmentLength(); i++){
-            segments[i] = new Vec2(x, y);
-            segmentVelocities[i] = new Vec2();
+            chain.add(x, y, 0f, 0f, 0f);
         }
     }
 
@@ -72,8 +71,7 @@ public class WormDefaultUnit extends UnitEntity{
         lastVelocityC.set(vel);
         super.update();
         healthDistributionEfficiency = Mathf.clamp(healthDistributionEfficiency + (Time.delta / 160f));
-        updateSegmentVLocal(lastVelocityC);
-        updateSegmentsLocal();
+        updateSegments();
         if(wormType.chainable && segmentUnits.length < wormType.maxSegments && scanTimer.get(15f) && attachTime >= 4f * 60f){
             scanTailSegment();
         }
@@ -98,82 +96,21 @@ public class WormDefaultUnit extends UnitEntity{
         return wormType.splittable && (segmentUnits.length < wormType.segmentLength || segmentUnits.length < wormType.maxSegments) && wormType.regenTime > 0f;
     }
 
-    protected void updateSegmentVLocal(Vec2 vec){
-        //int len = getSegmentLength();
-        int len = segmentUnits.length;
-        for(int i = 0; i < len; i++){
-            Vec2 seg = segments[i];
-            Vec2 segV = segmentVelocities[i];
-            segV.limit(type.speed);
-            float angleB = i != 0 ? Angles.angle(seg.x, seg.y, segments[i - 1].x, segments[i - 1].y) : Angles.angle(seg.x, seg.y, x, y);
-            float velocity = i != 0 ? segmentVelocities[i - 1].len() : vec.len();
-
-            Tmp.v1.set(vel);
-            Tmp.v1.add(vec);
-            Tmp.v1.add(lastVelocityD);
-            Tmp.v1.scl(1f / 3f);
-
-            float trueVel = Math.max(Math.max(velocity, segV.len()), Tmp.v1.len());
-            Tmp.v1.trns(angleB, trueVel);
-            segV.add(Tmp.v1);
-            segV.setLength(trueVel);
-            if(wormType.counterDrag) segV.scl(1f - drag);
-            segmentUnits[i].vel.set(segV);
-        }
-        //for(int i = 0; i < len; i++) segmentVelocities[i].scl(Time.delta);
-    }
-
-    protected void updateSegmentsLocal(){
-        float segmentOffset = wormType.segmentOffset / 2f;
-        /*float angleC = Utils.clampedAngle(Angles.angle(segments[0].x, segments[0].y, x, y), rotation, wormType.angleLimit) + 180f;
-        Tmp.v1.trns(angleC, segmentOffset + wormType.headOffset);
-        Tmp.v1.add(x, y);
-        segments[0].set(Tmp.v1);*/
-        //int len = getSegmentLength();
-
-        segments[0].add(segmentVelocities[0]);
-
-        rotation -= Utils.angleDistSigned(rotation, segmentUnits[0].rotation, wormType.angleLimit) / 1.25f;
-        Tmp.v1.trns(rotation + 180f, segmentOffset + wormType.headOffset).add(this);
-        segmentUnits[0].rotation = Utils.clampedAngle(segments[0].angleTo(Tmp.v1), rotation, wormType.angleLimit);
-        Tmp.v2.trns(segmentUnits[0].rotation, segmentOffset).add(segments[0]).sub(Tmp.v1);
-        segments[0].sub(Tmp.v2);
-
-        segmentVelocities[0].scl(Mathf.clamp(1f - (drag * Time.delta)));
-        segmentUnits[0].set(segments[0].x, segments[0].y);
-        segmentUnits[0].wormSegmentUpdate();
-        if(wormType.healthDistribution > 0) distributeHealth(0);
-
-        int len = segmentUnits.length;
-        for(int i = 1; i < len; i++){
-            Vec2 seg = segments[i], segLast = segments[i - 1];
-            WormSegmentUnit segU = segmentUnits[i], segULast = segmentUnits[i - 1];
-
-            seg.add(segmentVelocities[i]);
-
-            segULast.rotation -= Utils.angleDistSigned(segULast.rotation, segU.rotation, wormType.angleLimit) / 1.25f;
-            Tmp.v1.trns(segULast.rotation + 180f, segmentOffset).add(segLast);
-            segU.rotation = Utils.clampedAngle(segU.angleTo(Tmp.v1), segULast.rotation, wormType.angleLimit);
-            Tmp.v2.trns(segU.rotation, segmentOffset).add(seg).sub(Tmp.v1);
-            seg.sub(Tmp.v2);
-
-            segmentVelocities[i].scl(Mathf.clamp(1f - (drag * Time.delta)));
-            segU.set(seg);
-            segU.wormSegmentUpdate();
+    protected void updateSegments(){
+        Tmp.v1.set(vel).add(lastVelocityC).add(lastVelocityD).scl(1f / 3f);
+        chain.steer(x, y, lastVelocityC.len(), Tmp.v1.len(), type.speed, wormType.counterDrag ? 1f - drag : 1f);
+        rotation = chain.follow(x, y, rotation, wormType.headOffset, wormType.segmentOffset / 2f, wormType.angleLimit, Mathf.clamp(1f - (drag * Time.delta)));
+
+        //segments may split off while updating, which replaces the array
+        WormSegmentUnit[] units = segmentUnits;
+        for(int i = 0, len = Math.min(units.length, chain.size); i < len && units == segmentUnits; i++){
+            WormSegmentUnit seg = units[i];
+            seg.vel.set(chain.vx[i], chain.vy[i]);
+            seg.rotation = chain.rotation[i];
+            seg.set(chain.x[i], chain.y[i]);
+            seg.wormSegmentUpdate();
             if(wormType.healthDistribution > 0) distributeHealth(i);
         }
-        /*for(int i = 0; i < segmentUnits.length; i++){
-            Vec2 seg = segments[i];
-            Vec2 segV = segmentVelocities[i];
-            WormSegmentUnit segU = segmentUnits[i];
-            //seg.add(segV);
-            //float angleD = i == 0 ? Angles.angle(seg.x, seg.y, x, y) : Angles.angle(seg.x, seg.y, segments[i - 1].x, segments[i - 1].y);
-            segV.scl(Mathf.clamp(1f - drag * Time.delta));
-            segU.set(seg.x, seg.y);
-            //segU.rotation = angleD;
-            segU.wormSegmentUpdate();
-            if(wormType.healthDistribution > 0) distributeHealth(i);
-        }*/
     }
 
     protected void distributeHealth(int index){
@@ -313,7 +250,7 @@ public class WormDefaultUnit extends UnitEntity{
                     data.add(this, i);
                 }
                 for(int i = 0; i < data.size; i++){
-                    ws.trueParentUnit.addSegment(data.units[i], data.pos[i], data.vel[i]);
+                    ws.trueParentUnit.addSegment(data.units[i], data.chain, i);
                 }
                 found = true;
             }
@@ -321,7 +258,7 @@ public class WormDefaultUnit extends UnitEntity{
     }
 
     protected void removeTail(){
-        int index = segments.length - 1;
+        int index = segmentUnits.length - 1;
         if(index <= 0) return;
 
         segmentUnits[index].remove();
@@ -329,17 +266,16 @@ public class WormDefaultUnit extends UnitEntity{
         segmentUnits[index - 1].segmentType = 1;
 
         segmentUnits = Arrays.copyOf(segmentUnits, segmentUnits.length - 1);
-        segments = Arrays.copyOf(segments, segments.length - 1);
-        segmentVelocities = Arrays.copyOf(segmentVelocities, segmentVelocities.length - 1);
+        chain.truncate(index);
     }
 
-    public void addSegment(WormSegmentUnit unit, Vec2 pos, Vec2 vel){
-        int index = segments.length;
+    /** Appends a segment, taking its position, velocity and rotation from segment {@code from} of {@code data}. */
+    public void addSegment(WormSegmentUnit unit, WormChain data, int from){
+        int index = segmentUnits.length;
         Unit parent = segmentUnits[index - 1];
         segmentUnits[index - 1].segmentType = 0;
         segmentUnits = Arrays.copyOf(segmentUnits, segmentUnits.length + 1);
-        segments = Arrays.copyOf(segments, segments.length + 1);
-        segmentVelocities = Arrays.copyOf(segmentVelocities, segmentVelocities.length + 1);
+        chain.add(data, from);
 
         unit.elevation = elevation;
         unit.segmentType = 1;
@@ -347,18 +283,14 @@ public class WormDefaultUnit extends UnitEntity{
         unit.trueParentUnit = this;
 
         segmentUnits[segmentUnits.length - 1] = unit;
-        segments[segments.length - 1] = pos;
-        segmentVelocities[segmentVelocities.length - 1] = vel;
     }
 
     public void addSegment(){
-        int index = segments.length;
+        int index = segmentUnits.length;
         Unit parent = segmentUnits[index - 1];
         Tmp.v1.trns(segmentUnits[index - 1].rotation + 180f, wormType.segmentOffset).add(segmentUnits[index - 1]);
         segmentUnits[index - 1].segmentType = 0;
         segmentUnits = Arrays.copyOf(segmentUnits, segmentUnits.length + 1);
-        segments = Arrays.copyOf(segments, segments.length + 1);
-        segmentVelocities = Arrays.copyOf(segmentVelocities, segmentVelocities.length + 1);
 
         WormSegmentUnit segment = newSegment();
         segment.elevation = elevation;
@@ -374,8 +306,7 @@ public class WormDefaultUnit extends UnitEntity{
         segment.dead = false;
         segment.add();
         segmentUnits[segmentUnits.length - 1] = segment;
-        segments[segments.length - 1] = new Vec2(Tmp.v1);
-        segmentVelocities[segmentVelocities.length - 1] = new Vec2(segmentVelocities[segmentVelocities.length - 2]);
+        chain.add(Tmp.v1.x, Tmp.v1.y, chain.vx[index - 1], chain.vy[index - 1], segment.rotation);
     }
 
     @Override
@@ -390,7 +321,8 @@ public class WormDefaultUnit extends UnitEntity{
         Unit parent = this;
         for(int i = 0, len = getSegmentLength(); i < len; i++){
             int typeS = i == len - 1 ? 1 : 0;
-            segments[i].set(x, y);
+            chain.x[i] = x;
+            chain.y[i] = y;
             WormSegmentUnit temp = newSegment();
 
             temp.elevation = elevation;
@@ -423,13 +355,10 @@ public class WormDefaultUnit extends UnitEntity{
         repairTime = read.f();
 
         segmentUnits = new WormSegmentUnit[length];
-        segments = new Vec2[length];
-        segmentVelocities = new Vec2[length];
+        chain.clear();
 
         Unit parent = this;
         for(int i = 0; i < length; i++){
-            segments[i] = new Vec2();
-            segmentVelocities[i] = new Vec2();
             WormSegmentUnit temp = newSegment();
             temp.elevation = elevation;
             temp.type(type);
@@ -444,9 +373,10 @@ public class WormDefaultUnit extends UnitEntity{
             temp.setTrueParent(this);
             temp.setParent(parent);
 
-            temp.x = segments[i].x = read.f();
-            temp.y = segments[i].y = read.f();
+            temp.x = read.f();
+            temp.y = read.f();
             temp.rotation = read.f();
+            chain.add(temp.x, temp.y, 0f, 0f, temp.rotation);
             temp.segmentType = read.b();
             if(splittable){
                 temp.segmentHealth = temp.health = read.f();
@@ -467,8 +397,8 @@ public class WormDefaultUnit extends UnitEntity{
         write.f(repairTime);
 
         for(int i = 0; i < segmentUnits.length; i++){
-            write.f(segments[i].x);
-            write.f(segments[i].y);
+            write.f(chain.x[i]);
+            write.f(chain.y[i]);
             write.f(segmentUnits[i].rotation);
             write.b(segmentUnits[i].segmentType);
             if(wormType.splittable){
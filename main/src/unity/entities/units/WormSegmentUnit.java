@@ -15,6 +15,7 @@ import mindustry.graphics.*;
 import mindustry.type.*;
 import unity.ai.*;
 import unity.annotations.Annotations.*;
+import unity.entities.*;
 import unity.gen.*;
 import unity.type.*;
 
@@ -415,27 +416,22 @@ public class WormSegmentUnit extends UnitEntity{
 
     protected static class SegmentData{
         WormSegmentUnit[] units;
-        Vec2[] pos;
-        Vec2[] vel;
+        WormChain chain;
         int size = 0;
 
         SegmentData(int size){
             units = new WormSegmentUnit[size];
-            pos = new Vec2[size];
-            vel = new Vec2[size];
+            chain = new WormChain(size);
         }
 
         void add(WormSegmentUnit unit, Vec2 vel){
-            units[size] = unit;
-            pos[size] = new Vec2(unit.getX(), unit.getY());
-            this.vel[size++] = vel;
+            units[size++] = unit;
+            chain.add(unit.getX(), unit.getY(), vel.x, vel.y, unit.rotation);
         }
 
         void add(WormDefaultUnit unit, int index){
-            //Unity.print(toString() + ":" + unit.segmentUnits[index] + ":" + unit.segments[index] + ":" + unit.segmentVelocities[index] + ":" + index);
-            units[size] = unit.segmentUnits[index];
-            pos[size] = unit.segments[index];
-            vel[size++] = unit.segmentVelocities[index];
+            units[size++] = unit.segmentUnits[index];
+            chain.add(unit.chain, index);
         }
 
         void set(WormDefaultUnit unit){
@@ -444,11 +440,8 @@ public class WormSegmentUnit extends UnitEntity{
                 seg.trueParentUnit = unit;
             }
             unit.segmentUnits = new WormSegmentUnit[size];
-            unit.segments = new Vec2[size];
-            unit.segmentVelocities = new Vec2[size];
             System.arraycopy(units, 0, unit.segmentUnits, 0, size);
-            System.arraycopy(pos, 0, unit.segments, 0, size);
-            System.arraycopy(vel, 0, unit.segmentVelocities, 0, size);
+            unit.chain.set(chain);
         }
     }
 }
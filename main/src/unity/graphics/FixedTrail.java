@@ -3,24 +3,23 @@ package unity.graphics;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
-import arc.struct.*;
 import arc.util.*;
 import mindustry.*;
 
 public class FixedTrail{
     public int length;
 
-    private final FloatSeq points;
+    private final TrailPoints points;
     private float lastX = -1, lastY = -1, counter = 0f;
 
     public FixedTrail(int length){
         this.length = length;
-        points = new FloatSeq(length * 4);
+        points = new TrailPoints(length + 1);
     }
 
     public FixedTrail copy(){
         FixedTrail out = new FixedTrail(length);
-        out.points.addAll(points);
+        out.points.set(points);
         out.lastX = lastX;
         out.lastY = lastY;
         return out;
@@ -31,15 +30,16 @@ public class FixedTrail{
     }
 
     public int size(){
-        return points.size / 4;
+        return points.size();
     }
 
     public void drawCap(Color color, float width){
-        if(points.size > 0){
+        int size = points.size();
+        if(size > 0){
             Draw.color(color);
             float[] items = points.items;
-            int i = points.size - 4;
-            float x1 = items[i], y1 = items[i + 1], w1 = items[i + 2], ai = items[i + 3], w = w1 * width / (points.size / 4) * i / 4f * 2f;
+            int i = points.index(size - 1);
+            float x1 = items[i], y1 = items[i + 1], w1 = items[i + 2], ai = items[i + 3], w = w1 * width / size * (size - 1) * 2f;
             if(w1 <= 0.001f) return;
             Draw.rect("hcircle", x1, y1, w, w, -Mathf.radDeg * ai + 180f);
             Draw.reset();
@@ -49,15 +49,17 @@ public class FixedTrail{
     public void draw(Color color, float width){
         Draw.color(color);
         float[] items = points.items;
+        int count = points.size();
+        float size = width / count;
 
-        for(int i = 0; i < points.size - 4; i+= 4){
+        for(int p = 0; p < count - 1; p++){
+            int i = points.index(p), n = points.index(p + 1);
             float x1 = items[i], y1 = items[i + 1], w1 = items[i + 2], a1 = items[i + 3],
-                x2 = items[i + 4], y2 = items[i + 5], w2 = items[i + 6], a2 = items[i + 7];
-            float size = width / (points.size / 4);
+                x2 = items[n], y2 = items[n + 1], w2 = items[n + 2], a2 = items[n + 3];
             if(w1 <= 0.001f || w2 <= 0.001f) continue;
 
-            float cx = Mathf.sin(a1) * i / 4f * size * w1, cy = Mathf.cos(a1) * i / 4f * size * w1,
-                nx = Mathf.sin(a2) * (i / 4f + 1) * size * w2, ny = Mathf.cos(a2) * (i / 4f + 1) * size * w2;
+            float cx = Mathf.sin(a1) * p * size * w1, cy = Mathf.cos(a1) * p * size * w1,
+                nx = Mathf.sin(a2) * (p + 1) * size * w2, ny = Mathf.cos(a2) * (p + 1) * size * w2;
             Fill.quad(x1 - cx, y1 - cy, x1 + cx, y1 + cy, x2 + nx, y2 + ny, x2 - nx, y2 - ny);
         }
 
@@ -67,10 +69,7 @@ public class FixedTrail{
     /** Removes the last point from the trail at intervals. */
     public void shorten(){
         if(Vars.state.isPlaying() && (counter += Time.delta) >= 0.99f){
-            if(points.size >= 4){
-                points.removeRange(0, 3);
-            }
-
+            points.removeFirst();
             counter = 0f;
         }
     }
@@ -87,10 +86,6 @@ public class FixedTrail{
 
     public void update(float x, float y, float width, float rotation){
         if(Vars.state.isPlaying() && (counter += Time.delta) >= 0.99f){
-            if(points.size > length * 4){
-                points.removeRange(0, 3);
-            }
-
             points.add(x, y, width, -rotation * Mathf.degRad);
 
             counter = 0f;
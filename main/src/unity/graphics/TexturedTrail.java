@@ -5,7 +5,7 @@ import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.graphics.g2d.TextureAtlas.*;
 import arc.math.*;
-import arc.struct.*;
+import arc.math.geom.*;
 import arc.util.*;
 import mindustry.content.*;
 import mindustry.entities.*;
@@ -61,10 +61,14 @@ public class TexturedTrail extends Trail{
 
     private static final float[] vertices = new float[24];
     private static final Color tmp = new Color();
+    private static final Rect viewBounds = new Rect();
+    private static float[] batch = new float[48 * 32];
 
-    // sigh.
-    protected final FloatSeq points;
+    /** Points from tail to head; the extra component holds the angle towards the next point. */
+    protected final TrailPoints points;
     protected float lastX = -1f, lastY = -1f, lastAngle = -1f, lastW = 0f, counter = 0f;
+    /** Shared between copies as long as their interpolation settings stay the same. */
+    protected FadeTable table;
 
     public TexturedTrail(TextureRegion region, TextureRegion capRegion, int length){
         this(length);
@@ -82,7 +86,7 @@ public class TexturedTrail extends Trail{
         super(0); // Don't allocate anything for base class' point array.
 
         this.length = length;
-        points = new FloatSeq(length * 4);
+        points = new TrailPoints(length);
     }
 
     @Override
@@ -105,7 +109,8 @@ public class TexturedTrail extends Trail{
         out.trailWidth = trailWidth;
         out.trailColor = trailColor;
         out.trailThreshold = trailThreshold;
-        out.points.addAll(points);
+        out.points.set(points);
+        out.table = table;
         out.lastX = lastX;
         out.lastY = lastY;
         out.lastAngle = lastAngle;
@@ -121,7 +126,7 @@ public class TexturedTrail extends Trail{
 
     @Override
     public int size(){
-        return points.size / 4;
+        return points.size();
     }
 
     @Override
@@ -131,10 +136,10 @@ public class TexturedTrail extends Trail{
         float width = baseWidth * widthMultiplier;
         if(capRegion == null) capRegion = Core.atlas.find("unity-hcircle");
 
-        int psize = points.size;
+        int psize = points.size();
         if(psize > 0){
             float
-                rv = psize / 4f / length,
+                rv = (float)psize / length,
                 alpha = rv * fadeAlpha + (1f - fadeAlpha),
                 w = Mathf.map(rv, 1f - shrink, 1f) * width * lastW * 2f,
                 h = ((float)capRegion.height / capRegion.width) * w,
@@ -222,123 +227,136 @@ public class TexturedTrail extends Trail{
         float width = baseWidth * widthMultiplier;
 
         if(region == null) region = Core.atlas.find("white");
-        if(points.isEmpty()) return;
+        if(points.isEmpty() || !visible(width)) return;
 
         float[] items = points.items;
-        int psize = points.size;
+        int psize = points.size();
+        FadeTable table = table();
 
+        // Progress of a point is its distance from the tail relative to the whole trail including the head
+        int end = points.index(psize - 1);
+        float total = points.travelled() + Mathf.dst(items[end], items[end + 1], lastX, lastY);
+        float progressScl = total > 0f ? (float)psize / length / total : 0f;
+
+        Color base = Draw.getColor();
         float
+            br = base.r, bg = base.g, bb = base.b,
+            fr = fadeColor.r - br, fg = fadeColor.g - bg, fb = fadeColor.b - bb,
             endAngle = this.lastAngle, lastAngle = endAngle,
             u = region.u2, v = region.v2, u2 = region.u, v2 = region.v, uh = Mathf.lerp(u, u2, 0.5f);
 
-        Draw.blend(blend);
-        for(int i = 0; i < psize; i += 4){ // Draw from tail to head.
-            float
-                x1 = items[i], y1 = items[i + 1], w1 = items[i + 2], rv1 = Mathf.clamp(items[i + 3]),
-                x2, y2, w2, rv2;
-
-            if(i < psize - 4){
-                x2 = items[i + 4];
-                y2 = items[i + 5];
-                w2 = items[i + 6];
-                rv2 = Mathf.clamp(items[i + 7]);
+        // All segments go into one vertex stream, so the batch receives a single call per trail
+        int required = psize * 48;
+        if(batch.length < required) batch = new float[Math.max(required, batch.length * 2)];
+        float[] verts = batch;
+        int vi = 0;
+
+        // Values of the segment's tail end, carried over from the previous segment's head end
+        int tail = points.index(0);
+        float
+            x1 = items[tail], y1 = items[tail + 1], w1 = items[tail + 2], rv1 = 0f,
+            fs1 = Mathf.map(rv1, 1f - shrink, 1f) * width * w1, mv1 = Mathf.lerp(v, v2, rv1),
+            g1 = table.gradient(rv1),
+            col1 = Color.toFloatBits(Mathf.clamp(br + fr * g1), Mathf.clamp(bg + fg * g1), Mathf.clamp(bb + fb * g1), Mathf.clamp(table.fade(rv1))),
+            col1h = Color.toFloatBits(Mathf.clamp(br + fr * g1), Mathf.clamp(bg + fg * g1), Mathf.clamp(bb + fb * g1), Mathf.clamp(table.sideFade(rv1))),
+            mix1 = Color.toFloatBits(color.r, color.g, color.b, Mathf.clamp(table.mix(rv1)));
+
+        for(int p = 0; p < psize; p++){ // Draw from tail to head.
+            int i = points.index(p);
+            float x2, y2, w2, rv2;
+
+            if(p < psize - 1){
+                int n = points.index(p + 1);
+                x2 = items[n];
+                y2 = items[n + 1];
+                w2 = items[n + 2];
+                rv2 = Mathf.clamp(points.travel(p + 1) * progressScl);
             }else{
                 x2 = lastX;
                 y2 = lastY;
                 w2 = lastW;
-                rv2 = psize / 4f / length;
+                rv2 = (float)psize / length;
             }
 
             float
-                z2 = i == psize - 4 ? endAngle : -Angles.angleRad(x1, y1, x2, y2), z1 = i == 0 ? z2 : lastAngle,
-                fs1 = Mathf.map(rv1, 1f - shrink, 1f) * width * w1,
+                z2 = p == psize - 1 ? endAngle : items[i + 3], z1 = p == 0 ? z2 : lastAngle,
                 fs2 = Mathf.map(rv2, 1f - shrink, 1f) * width * w2,
 
                 cx = Mathf.sin(z1) * fs1, cy = Mathf.cos(z1) * fs1,
                 nx = Mathf.sin(z2) * fs2, ny = Mathf.cos(z2) * fs2,
 
-                mv1 = Mathf.lerp(v, v2, rv1), mv2 = Mathf.lerp(v, v2, rv2),
-                cv1 = rv1 * fadeAlpha + (1f - fadeAlpha), cv2 = rv2 * fadeAlpha + (1f - fadeAlpha),
-                col1 = tmp.set(Draw.getColor()).lerp(fadeColor, gradientInterp.apply(1f - rv1)).a(fadeInterp.apply(cv1)).clamp().toFloatBits(),
-                col1h = tmp.set(Draw.getColor()).lerp(fadeColor, gradientInterp.apply(1f - rv1)).a(sideFadeInterp.apply(cv1)).clamp().toFloatBits(),
-                col2 = tmp.set(Draw.getColor()).lerp(fadeColor, gradientInterp.apply(1f - rv2)).a(fadeInterp.apply(cv2)).clamp().toFloatBits(),
-                col2h = tmp.set(Draw.getColor()).lerp(fadeColor, gradientInterp.apply(1f - rv2)).a(sideFadeInterp.apply(cv2)).clamp().toFloatBits(),
-                mix1 = tmp.set(color).a(mixInterp.apply(rv1 * mixAlpha)).clamp().toFloatBits(),
-                mix2 = tmp.set(color).a(mixInterp.apply(rv2 * mixAlpha)).clamp().toFloatBits();
-
-            vertices[0] = x1 - cx;
-            vertices[1] = y1 - cy;
-            vertices[2] = col1h;
-            vertices[3] = u;
-            vertices[4] = mv1;
-            vertices[5] = mix1;
-
-            vertices[6] = x1;
-            vertices[7] = y1;
-            vertices[8] = col1;
-            vertices[9] = uh;
-            vertices[10] = mv1;
-            vertices[11] = mix1;
-
-            vertices[12] = x2;
-            vertices[13] = y2;
-            vertices[14] = col2;
-            vertices[15] = uh;
-            vertices[16] = mv2;
-            vertices[17] = mix2;
-
-            vertices[18] = x2 - nx;
-            vertices[19] = y2 - ny;
-            vertices[20] = col2h;
-            vertices[21] = u;
-            vertices[22] = mv2;
-            vertices[23] = mix2;
-
-            Draw.vert(region.texture, vertices, 0, 24);
-
-            vertices[6] = x1 + cx;
-            vertices[7] = y1 + cy;
-            vertices[8] = col1h;
-            vertices[9] = u2;
-            vertices[10] = mv1;
-            vertices[11] = mix1;
+                mv2 = Mathf.lerp(v, v2, rv2),
+                g2 = table.gradient(rv2),
+                cr = Mathf.clamp(br + fr * g2), cg = Mathf.clamp(bg + fg * g2), cb = Mathf.clamp(bb + fb * g2),
+                col2 = Color.toFloatBits(cr, cg, cb, Mathf.clamp(table.fade(rv2))),
+                col2h = Color.toFloatBits(cr, cg, cb, Mathf.clamp(table.sideFade(rv2))),
+                mix2 = Color.toFloatBits(color.r, color.g, color.b, Mathf.clamp(table.mix(rv2)));
+
+            vi = vert(verts, vi, x1 - cx, y1 - cy, col1h, u, mv1, mix1);
+            vi = vert(verts, vi, x1, y1, col1, uh, mv1, mix1);
+            vi = vert(verts, vi, x2, y2, col2, uh, mv2, mix2);
+            vi = vert(verts, vi, x2 - nx, y2 - ny, col2h, u, mv2, mix2);
+
+            vi = vert(verts, vi, x1, y1, col1, uh, mv1, mix1);
+            vi = vert(verts, vi, x1 + cx, y1 + cy, col1h, u2, mv1, mix1);
+            vi = vert(verts, vi, x2 + nx, y2 + ny, col2h, u2, mv2, mix2);
+            vi = vert(verts, vi, x2, y2, col2, uh, mv2, mix2);
+
+            x1 = x2;
+            y1 = y2;
+            fs1 = fs2;
+            mv1 = mv2;
+            col1 = col2;
+            col1h = col2h;
+            mix1 = mix2;
+            lastAngle = z2;
+        }
 
-            vertices[0] = x1;
-            vertices[1] = y1;
-            vertices[2] = col1;
-            vertices[3] = uh;
-            vertices[4] = mv1;
-            vertices[5] = mix1;
+        Draw.blend(blend);
+        Draw.vert(region.texture, verts, 0, vi);
+        Draw.blend();
+    }
 
-            vertices[18] = x2;
-            vertices[19] = y2;
-            vertices[20] = col2;
-            vertices[21] = uh;
-            vertices[22] = mv2;
-            vertices[23] = mix2;
+    /** @return Whether any part of this trail might be inside the camera's view. */
+    protected boolean visible(float width){
+        float[] items = points.items;
+        float minX = lastX, minY = lastY, maxX = lastX, maxY = lastY, maxW = lastW;
+        for(int p = 0, psize = points.size(); p < psize; p++){
+            int i = points.index(p);
+            float x = items[i], y = items[i + 1];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxW = Math.max(maxW, items[i + 2]);
+        }
 
-            vertices[12] = x2 + nx;
-            vertices[13] = y2 + ny;
-            vertices[14] = col2h;
-            vertices[15] = u2;
-            vertices[16] = mv2;
-            vertices[17] = mix2;
+        float pad = Math.abs(width * maxW);
+        return Core.camera.bounds(viewBounds).overlaps(minX - pad, minY - pad, maxX - minX + pad * 2f, maxY - minY + pad * 2f);
+    }
 
-            Draw.vert(region.texture, vertices, 0, 24);
-            lastAngle = z2;
-        }
+    /** @return The interpolation tables of this trail, rebuilt if any of their inputs changed. */
+    protected FadeTable table(){
+        if(table == null || !table.matches(this)) table = new FadeTable(this);
+        return table;
+    }
 
-        Draw.blend();
+    private static int vert(float[] verts, int i, float x, float y, float col, float u, float v, float mix){
+        verts[i] = x;
+        verts[i + 1] = y;
+        verts[i + 2] = col;
+        verts[i + 3] = u;
+        verts[i + 4] = v;
+        verts[i + 5] = mix;
+        return i + 6;
     }
 
     @Override
     public void shorten(){
         if((counter += Time.delta) >= 0.96f){
-            if(points.size >= 4) points.removeRange(0, 3);
+            points.removeFirst();
             counter = 0f;
         }
-
-        calcProgress();
     }
 
     @Override
@@ -348,10 +366,15 @@ public class TexturedTrail extends Trail{
 
         if((counter += Time.delta) >= 0.96f){
             if(dst >= minDst){
-                if(points.size > length * 4 - 4) points.removeRange(0, 3);
+                int psize = points.size();
+                if(psize > 0){
+                    int i = points.index(psize - 1);
+                    points.items[i + 3] = -Angles.angleRad(points.items[i], points.items[i + 1], x, y);
+                }
+
                 points.add(x, y, width, 0f);
-            }else if(points.size >= 4){
-                points.removeRange(0, 3);
+            }else{
+                points.removeFirst();
             }
 
             counter = 0f;
@@ -361,36 +384,71 @@ public class TexturedTrail extends Trail{
         lastX = x;
         lastY = y;
         lastW = width;
-        calcProgress();
 
-        int psize = points.size;
+        int psize = points.size();
         if(psize > 0 && trailChance > 0f && Mathf.chanceDelta(trailChance * Mathf.clamp(dst / trailThreshold))){
             trailEffect.at(
                 x, y, width * trailWidth,
-                tmp.set(trailColor).a(fadeInterp.apply(Mathf.clamp((psize / 4f / length) * fadeAlpha + (1f - fadeAlpha))))
+                tmp.set(trailColor).a(fadeInterp.apply(Mathf.clamp(((float)psize / length) * fadeAlpha + (1f - fadeAlpha))))
             );
         }
     }
 
-    public void calcProgress(){
-        int psize = points.size;
-        if(psize > 0){
-            float[] items = points.items;
+    /**
+     * Samples of the trail's {@link Interp}s over its progress, so drawing doesn't have to evaluate them for every
+     * point. Values between samples are linearly interpolated.
+     */
+    protected static class FadeTable{
+        public static final int resolution = 64;
+
+        final Interp gradientInterp, fadeInterp, sideFadeInterp, mixInterp;
+        final float fadeAlpha, mixAlpha;
+        final float[] gradient = new float[resolution + 1], fade = new float[resolution + 1], sideFade = new float[resolution + 1], mix = new float[resolution + 1];
+
+        FadeTable(TexturedTrail trail){
+            gradientInterp = trail.gradientInterp;
+            fadeInterp = trail.fadeInterp;
+            sideFadeInterp = trail.sideFadeInterp;
+            mixInterp = trail.mixInterp;
+            fadeAlpha = trail.fadeAlpha;
+            mixAlpha = trail.mixAlpha;
+
+            for(int i = 0; i <= resolution; i++){
+                float rv = (float)i / resolution, cv = rv * fadeAlpha + (1f - fadeAlpha);
+                gradient[i] = gradientInterp.apply(1f - rv);
+                fade[i] = fadeInterp.apply(cv);
+                sideFade[i] = sideFadeInterp.apply(cv);
+                mix[i] = mixInterp.apply(rv * mixAlpha);
+            }
+        }
 
-            float maxDst = 0f;
-            for(int i = 0; i < psize; i += 4){
-                float
-                    x = items[i], y = items[i + 1],
-                    dst = i < psize - 4 ? Mathf.dst(x, y, items[i + 4], items[i + 5]) : Mathf.dst(x, y, lastX, lastY);
+        boolean matches(TexturedTrail trail){
+            return
+                gradientInterp == trail.gradientInterp && fadeInterp == trail.fadeInterp &&
+                sideFadeInterp == trail.sideFadeInterp && mixInterp == trail.mixInterp &&
+                fadeAlpha == trail.fadeAlpha && mixAlpha == trail.mixAlpha;
+        }
 
-                items[i + 3] = maxDst;
-                maxDst += dst;
-            }
+        public float gradient(float progress){
+            return sample(gradient, progress);
+        }
 
-            float frac = psize / 4f / length;
-            for(int i = 0; i < psize; i += 4){
-                items[i + 3] = Mathf.clamp((items[i + 3] / maxDst) * frac);
-            }
+        public float fade(float progress){
+            return sample(fade, progress);
+        }
+
+        public float sideFade(float progress){
+            return sample(sideFade, progress);
+        }
+
+        public float mix(float progress){
+            return sample(mix, progress);
+        }
+
+        static float sample(float[] table, float progress){
+            float f = Mathf.clamp(progress) * resolution;
+            int i = (int)f;
+            return i >= resolution ? table[resolution] : Mathf.lerp(table[i], table[i + 1], f - i);
         }
     }
 }
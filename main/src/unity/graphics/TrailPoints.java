@@ -0,0 +1,103 @@
+package unity.graphics;
+
+import arc.math.*;
+
+/**
+ * A fixed-capacity ring buffer of trail points, each stored as {@code x, y, width, extra}. Adding to a full buffer
+ * drops the oldest point. Also keeps track of the distance travelled along the points, so a point's progress along
+ * the trail can be read without rescanning it.
+ */
+public class TrailPoints{
+    /** Once the travelled distance grows past this, it's rebased onto the oldest point to keep float precision. */
+    private static final float rebaseThreshold = 65536f;
+
+    /** Raw point data, 4 floats per point; point {@code i} starts at {@link #index(int)}. */
+    public final float[] items;
+    public final int capacity;
+
+    /** Distance travelled up to each point, indexed by slot. */
+    private final float[] travel;
+    private int first, size;
+
+    public TrailPoints(int capacity){
+        this.capacity = Math.max(capacity, 1);
+        items = new float[this.capacity * 4];
+        travel = new float[this.capacity];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public void clear(){
+        first = size = 0;
+    }
+
+    /** @return The offset of the {@code i}-th oldest point in {@link #items}. */
+    public int index(int i){
+        int slot = first + i;
+        if(slot >= capacity) slot -= capacity;
+
+        return slot * 4;
+    }
+
+    /** Appends a point, dropping the oldest one if the buffer is full. */
+    public void add(float x, float y, float width, float extra){
+        if(size == capacity) removeFirst();
+
+        int slot = first + size;
+        if(slot >= capacity) slot -= capacity;
+
+        if(size > 0){
+            int last = index(size - 1);
+            travel[slot] = travel[last / 4] + Mathf.dst(items[last], items[last + 1], x, y);
+        }else{
+            travel[slot] = 0f;
+        }
+
+        int i = slot * 4;
+        items[i] = x;
+        items[i + 1] = y;
+        items[i + 2] = width;
+        items[i + 3] = extra;
+        size++;
+
+        if(travel[slot] >= rebaseThreshold) rebase();
+    }
+
+    /** Removes the oldest point, if any. */
+    public void removeFirst(){
+        if(size == 0) return;
+
+        if(++first == capacity) first = 0;
+        size--;
+    }
+
+    /** @return The distance from the oldest point to the {@code i}-th oldest point. */
+    public float travel(int i){
+        return travel[index(i) / 4] - travel[first];
+    }
+
+    /** @return The distance from the oldest point to the newest point. */
+    public float travelled(){
+        return size == 0 ? 0f : travel(size - 1);
+    }
+
+    public void set(TrailPoints other){
+        if(other.capacity != capacity) throw new IllegalArgumentException("Trail capacity mismatch: " + capacity + " != " + other.capacity + ".");
+
+        System.arraycopy(other.items, 0, items, 0, items.length);
+        System.arraycopy(other.travel, 0, travel, 0, travel.length);
+        first = other.first;
+        size = other.size;
+    }
+
+    private void rebase(){
+        float base = travel[first];
+        for(int i = 0; i < size; i++) travel[index(i) / 4] -= base;
+    }
+}
@@ -4,13 +4,23 @@ public enum ExpContentList{
     totalExp("@totalExp"),
     totalLevel("@totalLevel"),
     expCapacity("@expCapacity"),
-    maxLevel("@maxLevel");
+    maxLevel("@maxLevel"),
+    networkThroughput("@networkThroughput", true),
+    networkExp("@networkExp", true),
+    networkSize("@networkSize", true);
 
     public final String name;
+    /** Whether this is sensed from the {@link unity.world.blocks.exp.ExpNetwork} a block is in, rather than the block. */
+    public final boolean network;
 
     public static final ExpContentList[] all = values();
 
     ExpContentList(String name){
+        this(name, false);
+    }
+
+    ExpContentList(String name, boolean network){
         this.name = name;
+        this.network = network;
     }
 }
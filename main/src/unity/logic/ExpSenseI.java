@@ -1,9 +1,11 @@
 package unity.logic;
 
+import mindustry.gen.*;
 import mindustry.logic.*;
 import mindustry.logic.LExecutor.*;
 import unity.gen.*;
 import unity.gen.Expc.*;
+import unity.world.blocks.exp.*;
 
 public class ExpSenseI implements LInstruction{
     public int res, type;
@@ -19,7 +21,19 @@ public class ExpSenseI implements LInstruction{
     public void run(LExecutor exec){
         Object b = exec.obj(type);
 
-        if(b instanceof ExpBuildc build){
+        if(cont.network){
+            ExpNetwork network = b instanceof Building build ? ExpNetwork.of(build) : null;
+            if(network == null){
+                exec.setnum(res, 0d);
+                return;
+            }
+
+            switch(cont){
+                case networkThroughput -> exec.setnum(res, network.throughput);
+                case networkExp -> exec.setnum(res, network.exp());
+                case networkSize -> exec.setnum(res, network.size());
+            }
+        }else if(b instanceof ExpBuildc build){
             switch(cont){
                 case totalExp -> exec.setnum(res, build.exp());
                 case totalLevel -> exec.setnum(res, build.level());
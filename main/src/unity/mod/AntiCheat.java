@@ -20,14 +20,12 @@ import java.util.*;
 
 public class AntiCheat{
     private final Interval timer = new Interval();
-    private final Seq<UnitQueue> unitSeq = new Seq<>();
-    private final Seq<BuildingQueue> buildingSeq = new Seq<>();
-    private final Seq<EntitySampler> sampler = new Seq<>(), samplerTmp = new Seq<>();
+    private final TrackedList<UnitQueue> units = new TrackedList<>(204);
+    private final TrackedList<BuildingQueue> buildings = new TrackedList<>(204);
+    private final TrackedList<EntitySampler> sampler = new TrackedList<>(409);
     private final IntSet exclude = new IntSet(204);
-    private final IntMap<EntitySampler> samplerMap = new IntMap<>(409);
 
-    private final Seq<DisableRegenStatus> status = new Seq<>();
-    private final IntMap<DisableRegenStatus> statusMap = new IntMap<>(204);
+    private final TrackedList<DisableRegenStatus> status = new TrackedList<>(204);
 
     private float lastTime = 0f;
 
@@ -43,11 +41,10 @@ public class AntiCheat{
 
         Events.on(ResetEvent.class, event -> {
             exclude.clear();
-            unitSeq.clear();
-            buildingSeq.clear();
+            units.clear();
+            buildings.clear();
             sampler.clear();
-            samplerTmp.clear();
-            samplerMap.clear();
+            status.clear();
         });
     }
 
@@ -116,63 +113,64 @@ public class AntiCheat{
 
     void update(){
         if(Vars.state.isPaused()) return;
-        if(timer.get(15f) && (!unitSeq.isEmpty() || !buildingSeq.isEmpty())){
-            for(Entityc e : Groups.all){
-                if(e instanceof Unit){
-                    for(UnitQueue u : unitSeq){
-                        if(e == u.unit){
-                            u.allAdded = true;
-                            u.counter--;
-                        }
-                        if(u.removed) unitSeq.remove(u);
-                    }
-                }else if(e instanceof Building){
-                    for(BuildingQueue b : buildingSeq){
-                        if(e == b.build){
-                            b.allAdded = true;
-                            b.counter--;
-                        }
-                        if(b.removed) buildingSeq.remove(b);
-                    }
+        if(timer.get(15f) && (!units.isEmpty() || !buildings.isEmpty())){
+            //iterate backwards, so entries removed in between are either already checked or swapped from the checked tail.
+            for(int i = units.size() - 1; i >= 0; i--){
+                UnitQueue u = units.get(i);
+                if(Groups.unit.getByID(u.id) != u.unit){
+                    u.unit.add();
+                    u.counter++;
                 }
             }
-            unitSeq.each(u -> {
-                if(!u.allAdded && !u.removed) u.unit.add();
-                u.allAdded = false;
-                u.counter++;
-            });
-            buildingSeq.each(b -> {
+
+            for(int i = buildings.size() - 1; i >= 0; i--){
+                if(i >= buildings.size()) continue;
+
+                BuildingQueue b = buildings.get(i);
                 if(deconstructed(b.build)){
                     removeBuilding(b.build);
-                    return;
+                    continue;
                 }
-                if(!b.allAdded && !b.removed){
+
+                if(!b.build.added || b.build.tile.build != b.build){
                     b.build.tile.setBlock(b.build.block, b.build.team, b.build.rotation, () -> b.build);
+                    b.counter++;
                 }
-                b.allAdded = false;
-                b.counter++;
-            });
-            sampler.each(es -> {
+            }
+
+            for(int i = sampler.size() - 1; i >= 0; i--){
+                EntitySampler es = sampler.get(i);
                 if(es.duration <= 0f && es.excludeDuration <= 0f){
-                    samplerTmp.add(es);
-                    samplerMap.remove(es.entity.id());
+                    sampler.remove(es.id);
                     Pools.free(es);
+                    continue;
                 }
+
                 es.excludeDuration -= 15f;
                 es.duration -= 15f;
-            });
-            sampler.removeAll(samplerTmp);
-            samplerTmp.clear();
+            }
         }
         //something is updating this multiple times.
         if(Time.time > lastTime){
-            buildingSeq.each(b -> b.counter > 10, b -> b.build.update());
-            unitSeq.each(e -> e.counter > 10, e -> e.unit.update());
-            for(DisableRegenStatus s : status){
+            for(int i = buildings.size() - 1; i >= 0; i--){
+                if(i >= buildings.size()) continue;
+
+                BuildingQueue b = buildings.get(i);
+                if(b.counter > 10) b.build.update();
+            }
+
+            for(int i = units.size() - 1; i >= 0; i--){
+                if(i >= units.size()) continue;
+
+                UnitQueue u = units.get(i);
+                if(u.counter > 10) u.unit.update();
+            }
+
+            for(int i = status.size() - 1; i >= 0; i--){
+                DisableRegenStatus s = status.get(i);
                 s.update();
                 if(s.duration <= 0f || !s.unit.isValid()){
-                    status.remove(s);
-                    statusMap.remove(s.unit.id);
+                    status.remove(s.id);
                     Pools.free(s);
                 }
             }
@@ -182,7 +180,7 @@ public class AntiCheat{
 
     public void notifyDamage(int unitId, float delta){
         if(delta > 0) return;
-        DisableRegenStatus status = statusMap.get(unitId);
+        DisableRegenStatus status = this.status.getByID(unitId);
         if(status != null){
             status.lastHealth += delta;
         }
@@ -190,17 +188,17 @@ public class AntiCheat{
 
     public void applyStatus(Unit unit, float duration){
         if(exclude.contains(unit.id)) return;
-        DisableRegenStatus status = statusMap.get(unit.id);
+        DisableRegenStatus status = this.status.getByID(unit.id);
 
         if(status != null){
             status.duration = Math.max(status.duration, duration);
         }else{
             DisableRegenStatus s = Pools.obtain(DisableRegenStatus.class, DisableRegenStatus::new);
+            s.id = unit.id;
             s.unit = unit;
             s.lastHealth = unit.health;
             s.duration = duration;
             this.status.add(s);
-            statusMap.put(unit.id, s);
         }
     }
 
@@ -212,66 +210,60 @@ public class AntiCheat{
         if(!verified){
             if(exclude.contains(entity.id())) return;
             EntitySampler ent;
-            if((ent = samplerMap.get(entity.id())) != null){
+            if((ent = sampler.getByID(entity.id())) != null){
                 if(entity.health() >= ent.lastHealth && ent.excludeDuration <= 0f){
                     ent.duration = Math.max(30f, ent.duration);
                     if(ent.penalty++ >= 5){
                         annihilateEntity(entity, false);
-                        samplerMap.remove(entity.id());
-                        sampler.remove(ent);
+                        sampler.remove(entity.id());
+                        Pools.free(ent);
                     }
                 }
                 return;
             }
             EntitySampler s = Pools.obtain(EntitySampler.class, EntitySampler::new);
+            s.id = entity.id();
             s.entity = entity;
             s.duration = 2f * 60f;
             s.lastHealth = entity.health();
             sampler.add(s);
-            samplerMap.put(entity.id(), s);
         }else{
-            EntitySampler ent = samplerMap.get(entity.id());
+            EntitySampler ent = sampler.getByID(entity.id());
             if(ent != null){
                 ent.excludeDuration = 2 * 60f;
             }else{
                 //EntitySampler s = new EntitySampler(entity);
                 EntitySampler s = Pools.obtain(EntitySampler.class, EntitySampler::new);
+                s.id = entity.id();
                 s.entity = entity;
                 s.excludeDuration = 2 * 60f;
                 s.duration = 0f;
                 sampler.add(s);
-                samplerMap.put(entity.id(), s);
             }
         }
     }
 
     public void removeBuilding(Building building){
         exclude.remove(building.id);
-        buildingSeq.removeAll(bq -> {
-            boolean t = bq.build == building;
-            if(t) bq.removed = true;
-            return t;
-        });
+        BuildingQueue queue = buildings.getByID(building.id);
+        if(queue != null && queue.build == building) buildings.remove(building.id);
     }
 
     public void removeUnit(Unit unit){
         exclude.remove(unit.id);
-        unitSeq.removeAll(uq -> {
-            boolean t = uq.unit == unit;
-            if(t) uq.removed = true;
-            return t;
-        });
+        UnitQueue queue = units.getByID(unit.id);
+        if(queue != null && queue.unit == unit) units.remove(unit.id);
     }
 
     public void addBuilding(Building build){
         if(exclude.add(build.id)){
-            buildingSeq.add(new BuildingQueue(build));
+            buildings.add(new BuildingQueue(build));
         }
     }
 
     public void addUnit(Unit unit){
         if(exclude.add(unit.id)){
-            unitSeq.add(new UnitQueue(unit));
+            units.add(new UnitQueue(unit));
         }
     }
 
@@ -280,7 +272,68 @@ public class AntiCheat{
         return alt instanceof ConstructBuild && alt.team == building.team;
     }
 
-    static class EntitySampler implements Poolable{
+    /** An entry in a {@link TrackedList}, keyed by its entity's id. */
+    abstract static class Tracked{
+        int id, index;
+    }
+
+    /** Entries keyed by entity id, kept densely packed for iteration. Removal swaps the last entry in. */
+    static class TrackedList<T extends Tracked>{
+        private final Seq<T> items;
+        private final IntMap<T> map;
+
+        TrackedList(int capacity){
+            items = new Seq<>(capacity);
+            map = new IntMap<>(capacity);
+        }
+
+        int size(){
+            return items.size;
+        }
+
+        boolean isEmpty(){
+            return items.isEmpty();
+        }
+
+        T get(int index){
+            return items.get(index);
+        }
+
+        @Nullable T getByID(int id){
+            return map.get(id);
+        }
+
+        void add(T entry){
+            T prev = map.put(entry.id, entry);
+            if(prev != null){
+                entry.index = prev.index;
+                items.set(prev.index, entry);
+            }else{
+                entry.index = items.size;
+                items.add(entry);
+            }
+        }
+
+        @Nullable T remove(int id){
+            T entry = map.remove(id);
+            if(entry == null) return null;
+
+            T last = items.pop();
+            if(last != entry){
+                items.set(entry.index, last);
+                last.index = entry.index;
+            }
+
+            return entry;
+        }
+
+        void clear(){
+            items.clear();
+            map.clear();
+        }
+    }
+
+    static class EntitySampler extends Tracked implements Poolable{
         Healthc entity;
         float duration, excludeDuration = 0f, lastHealth;
         int penalty = 0;
@@ -297,29 +350,27 @@ public class AntiCheat{
         }
     }
 
-    static class UnitQueue{
+    static class UnitQueue extends Tracked{
         Unit unit;
-        boolean allAdded = true;
         int counter = 0;
-        boolean removed = false;
 
         UnitQueue(Unit unit){
             this.unit = unit;
+            id = unit.id;
         }
     }
 
-    static class BuildingQueue{
+    static class BuildingQueue extends Tracked{
         Building build;
-        boolean allAdded = true;
         int counter = 0;
-        boolean removed = false;
 
         BuildingQueue(Building build){
             this.build = build;
+            id = build.id;
         }
     }
 
-    static class DisableRegenStatus implements Poolable{
+    static class DisableRegenStatus extends Tracked implements Poolable{
         Unit unit;
         float lastHealth;
         float duration;
@@ -2,15 +2,19 @@ package unity.sync;
 
 import mindustry.entities.*;
 import mindustry.gen.*;
+import mindustry.net.*;
 import unity.*;
 import unity.gen.*;
+import unity.sync.packets.*;
 
 import static mindustry.Vars.*;
 
 /** @author GlennFolker */
 public class UnityCall{
     public static void init(){
-
+        Net.registerPacket(ExpOrbSpawnPacket::new);
+        Net.registerPacket(ExpOrbPickupPacket::new);
+        Net.registerPacket(ExpOrbMergePacket::new);
     }
 
     public static void tap(Player player, float x, float y){
@@ -0,0 +1,49 @@
+package unity.sync.packets;
+
+import arc.struct.*;
+import arc.util.io.*;
+import unity.entities.*;
+
+/** Sent by the server when exp orbs merge, with the state of every orb that absorbed others and the ids it absorbed. */
+public class ExpOrbMergePacket extends BasePacket{
+    /** Ids and summed exp of the surviving orbs. */
+    public final IntSeq ids = new IntSeq(), amounts = new IntSeq();
+    /** Position, velocity and resting time of the surviving orbs, five floats each. */
+    public final FloatSeq states = new FloatSeq();
+    /** Ids of the orbs merged into the surviving ones, which clients remove. */
+    public final IntSeq absorbed = new IntSeq();
+
+    @Override
+    public void write(Writes write){
+        write.i(ids.size);
+        for(int i = 0; i < ids.size; i++){
+            write.i(ids.items[i]);
+            write.i(amounts.items[i]);
+            for(int j = 0; j < 5; j++) write.f(states.items[i * 5 + j]);
+        }
+
+        write.i(absorbed.size);
+        for(int i = 0; i < absorbed.size; i++) write.i(absorbed.items[i]);
+    }
+
+    @Override
+    public void readFields(){
+        ids.clear();
+        amounts.clear();
+        states.clear();
+        absorbed.clear();
+
+        for(int i = 0, count = READ.i(); i < count; i++){
+            ids.add(READ.i());
+            amounts.add(READ.i());
+            for(int j = 0; j < 5; j++) states.add(READ.f());
+        }
+
+        for(int i = 0, count = READ.i(); i < count; i++) absorbed.add(READ.i());
+    }
+
+    @Override
+    public void handleClient(){
+        ExpOrbs.merged(this);
+    }
+}
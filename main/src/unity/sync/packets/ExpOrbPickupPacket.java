@@ -0,0 +1,27 @@
+package unity.sync.packets;
+
+import arc.struct.*;
+import arc.util.io.*;
+import unity.entities.*;
+
+/** Sent by the server with the ids of the exp orbs it saw being picked up, which clients then remove. */
+public class ExpOrbPickupPacket extends BasePacket{
+    public final IntSeq ids = new IntSeq();
+
+    @Override
+    public void write(Writes write){
+        write.i(ids.size);
+        for(int i = 0; i < ids.size; i++) write.i(ids.items[i]);
+    }
+
+    @Override
+    public void readFields(){
+        ids.clear();
+        for(int i = 0, count = READ.i(); i < count; i++) ids.add(READ.i());
+    }
+
+    @Override
+    public void handleClient(){
+        ExpOrbs.pickedUp(ids);
+    }
+}
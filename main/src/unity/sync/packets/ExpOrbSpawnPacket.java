@@ -0,0 +1,39 @@
+package unity.sync.packets;
+
+import arc.util.io.*;
+import unity.entities.*;
+
+/** Sent by the server when exp orbs are spawned, so clients spawn the same orbs with the same ids. */
+public class ExpOrbSpawnPacket extends BasePacket{
+    public float x, y, rotation, velocity;
+    public int amount, firstId;
+    /** Whether the orbs were spread around, rather than dropped towards {@link #rotation}. */
+    public boolean spread;
+
+    @Override
+    public void write(Writes write){
+        write.f(x);
+        write.f(y);
+        write.f(rotation);
+        write.f(velocity);
+        write.i(amount);
+        write.i(firstId);
+        write.bool(spread);
+    }
+
+    @Override
+    public void readFields(){
+        x = READ.f();
+        y = READ.f();
+        rotation = READ.f();
+        velocity = READ.f();
+        amount = READ.i();
+        firstId = READ.i();
+        spread = READ.bool();
+    }
+
+    @Override
+    public void handleClient(){
+        ExpOrbs.spawned(this);
+    }
+}
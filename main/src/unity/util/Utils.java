@@ -35,7 +35,7 @@ public final class Utils{
 
     private static final Vec2 tV = new Vec2(), tV2 = new Vec2();
     private static final Seq<Healthc> tmpUnitSeq = new Seq<>();
-    private static final IntSet collidedBlocks = new IntSet(), collidedEntities = new IntSet(204);
+    private static final IntSet collidedEntities = new IntSet(204);
     private static final Rect rect = new Rect(), rectAlt = new Rect(), hitRect = new Rect();
     private static Posc result;
     private static float cdist;
@@ -47,9 +47,11 @@ public final class Utils{
 
     private static int randSeed = 1;
 
-    private static final BoolGrid collideLineCollided = new BoolGrid();
+    /** Tiles and buildings (keyed by their center tile) already handled by the current cast. */
+    private static final VisitGrid collided = new VisitGrid(), collidedBuilds = new VisitGrid();
+    /** Length of the beam chunks that are queried against the unit tree separately in {@link #collideLineRawNew}. */
+    private static final float collideLineUnitChunk = 16f * tilesize;
 
-    private static final IntSeq lineCast = new IntSeq(), lineCastNext = new IntSeq();
     private static final Seq<Hit> hitEffects = new Seq<>();
 
     private static final Point2[][] d8d5 = {
@@ -65,7 +67,8 @@ public final class Utils{
 
     public static void init(){
         Events.on(EventType.WorldLoadEvent.class, event -> {
-            collideLineCollided.updateSize(world.width(), world.height());
+            collided.updateSize(world.width(), world.height());
+            collidedBuilds.updateSize(world.width(), world.height());
         });
     }
 
@@ -118,7 +121,7 @@ public final class Utils{
     }
 
     public static boolean hasBuilding(float wx, float wy, float range, Boolf<Building> pred){
-        collidedBlocks.clear();
+        collidedBuilds.clear();
 
         int tx = World.toTile(wx);
         int ty = World.toTile(wy);
@@ -135,7 +138,7 @@ public final class Utils{
 
                 if(other == null) continue;
 
-                if(pred.get(other) && collidedBlocks.add(other.pos())){
+                if(pred.get(other) && collidedBuilds.visit(other.tileX(), other.tileY())){
                     any = true;
                     break loop;
                 }
@@ -225,7 +228,6 @@ public final class Utils{
     }
 
     public static float[] castCircle(float wx, float wy, float range, int rays, Boolf<Building> filter, Cons<Building> cons, Boolf<Tile> insulator){
-        collidedBlocks.clear();
         float[] cast = new float[rays];
 
         for(int i = 0; i < cast.length; i++){
@@ -262,7 +264,7 @@ public final class Utils{
     }
 
     public static float[] castConeTile(float wx, float wy, float range, float angle, float cone, Cons2<Building, Tile> consBuilding, Boolf<Tile> insulator, float[] ref){
-        collidedBlocks.clear();
+        collidedBuilds.clear();
         idx = 0;
         float expand = 3;
         rect.setCentered(wx, wy, expand);
@@ -301,21 +303,19 @@ public final class Utils{
                     Building building = null;
                     if(tile != null){
                         Building b = world.build(x, y);
-                        if(b != null && !collidedBlocks.contains(b.id)){
+                        if(b != null && collidedBuilds.visit(b.tileX(), b.tileY())){
                             building = b;
-                            collidedBlocks.add(b.id);
                         }
                         consBuilding.get(building, tile);
                     }
                 }
             }
         }
-        collidedBlocks.clear();
         return ref;
     }
 
     public static void castCone(float wx, float wy, float range, float angle, float cone, Cons4<Tile, Building, Float, Float> consTile, Cons3<Unit, Float, Float> consUnit){
-        collidedBlocks.clear();
+        collided.clear();
         float expand = 3;
         float rangeSquare = range * range;
         if(consTile != null){
@@ -337,11 +337,10 @@ public final class Utils{
                     if(tempDst >= rangeSquare || !Angles.within(temp, angle, cone)) continue;
                     Tile other = world.tile(x, y);
                     if(other == null) continue;
-                    if(!collidedBlocks.contains(other.pos())){
+                    if(collided.visit(other.x, other.y)){
                         float dst = 1f - tempDst / range;
                         float anDst = 1f - Angles.angleDist(temp, angle) / cone;
                         consTile.get(other, other.build, dst, anDst);
-                        collidedBlocks.add(other.pos());
                     }
                 }
             }
@@ -381,7 +380,7 @@ public final class Utils{
 
     /** Iterates over all blocks in a radius. */
     public static void trueEachBlock(float wx, float wy, float range, Boolf<Building> boolf, Cons<Building> cons){
-        collidedBlocks.clear();
+        collidedBuilds.clear();
 
         int tx = World.toTile(wx);
         int ty = World.toTile(wy);
@@ -393,9 +392,8 @@ public final class Utils{
                 Building other = world.build(x, y);
 
                 if(other == null || !boolf.get(other)) continue;
-                if(!collidedBlocks.contains(other.pos())){
+                if(collidedBuilds.visit(other.tileX(), other.tileY())){
                     cons.get(other);
-                    collidedBlocks.add(other.pos());
                 }
             }
         }
@@ -683,90 +681,50 @@ public final class Utils{
                                          boolean hitTile, boolean hitUnit,
                                          Floatf<Healthc> sort, HitHandler hitHandler, boolean stopSort){
         hitEffects.clear();
-        lineCast.clear();
-        lineCastNext.clear();
-        collidedBlocks.clear();
+        collided.clear();
+        collidedBuilds.clear();
 
         tV.set(x2, y2);
         if(hitTile){
-            collideLineCollided.clear();
-            Runnable cast = () -> {
-                hitB = false;
-
-                lineCast.each(i -> {
-                    int tx = Point2.x(i),
-                    ty = Point2.y(i);
-                    Building build = world.build(tx, ty);
-                    boolean hit = false;
-                    if(build != null && (buildingFilter == null || buildingFilter.get(build)) && collidedBlocks.add(build.pos())){
-                        if(sort == null){
-                            hit = hitHandler.get(tx * tilesize, ty * tilesize, build, true);
-                        }else{
-                            hit = hitHandler.get(tx * tilesize, ty * tilesize, build, false);
-                            Hit he = Pools.obtain(Hit.class, Hit::new);
-                            he.ent = build;
-                            he.x = tx * tilesize;
-                            he.y = ty * tilesize;
-
-                            hitEffects.add(he);
-                        }
-                        if(hit && !hitB){
-                            tV.trns(Angles.angle(x, y, x2, y2), Mathf.dst(x, y, build.x, build.y)).add(x, y);
-                            hitB = true;
-                        }
-                    }
+            // Rasterize the swept capsule one strip per tile of the ray's major axis, so every tile is visited once and in
+            // order along the ray; strips grow outwards from the ray and stop at the beam's edge or at a tile that stopped it
+            int radius = Mathf.ceil(tileWidth / tilesize);
+            int sx = World.toTile(x), sy = World.toTile(y), ex = World.toTile(x2), ey = World.toTile(y2);
+            boolean xMajor = Math.abs(ex - sx) >= Math.abs(ey - sy);
+            int dir = (xMajor ? ex >= sx : ey >= sy) ? 1 : -1;
+            hitB = false;
+
+            // The rounded cap behind the start...
+            for(int i = radius; i > 0 && !hitB; i--){
+                collideLineStrip(xMajor ? sx - dir * i : sx, xMajor ? sy : sy - dir * i, false, xMajor, radius, x, y, x2, y2, tileWidth, buildingFilter, sort, hitHandler);
+            }
 
-                    Vec2 segment = Intersector.nearestSegmentPoint(x, y, tV.x, tV.y, tx * tilesize, ty * tilesize, tV2);
-                    if(!hit && tileWidth > 0f){
-                        for(Point2 p : Geometry.d8){
-                            int newX = (p.x + tx);
-                            int newY = (p.y + ty);
-                            boolean within = !hitB || Mathf.within(x / tilesize, y / tilesize, newX, newY, tV.dst(x, y) / tilesize);
-                            if(segment.within(newX * tilesize, newY * tilesize, tileWidth) && collideLineCollided.within(newX, newY) && !collideLineCollided.get(newX, newY) && within){
-                                lineCastNext.add(Point2.pack(newX, newY));
-                                collideLineCollided.set(newX, newY, true);
-                            }
-                        }
-                    }
+            if(!hitB){
+                world.raycastEachWorld(x, y, x2, y2, (cx, cy) -> {
+                    collideLineStrip(cx, cy, true, xMajor, radius, x, y, x2, y2, tileWidth, buildingFilter, sort, hitHandler);
+                    return hitB;
                 });
-                lineCast.clear();
-                lineCast.addAll(lineCastNext);
-                lineCastNext.clear();
-            };
-
-            world.raycastEachWorld(x, y, x2, y2, (cx, cy) -> {
-                if(collideLineCollided.within(cx, cy) && !collideLineCollided.get(cx, cy)){
-                    lineCast.add(Point2.pack(cx, cy));
-                    collideLineCollided.set(cx, cy, true);
-                }
-                cast.run();
-                return hitB;
-            });
+            }
 
-            while(!lineCast.isEmpty()){
-                cast.run();
+            // ...and the one past the end, unless something stopped the beam before it
+            for(int i = 1; i <= radius && !hitB; i++){
+                collideLineStrip(xMajor ? ex + dir * i : ex, xMajor ? ey : ey + dir * i, false, xMajor, radius, x, y, x2, y2, tileWidth, buildingFilter, sort, hitHandler);
             }
         }
         if(hitUnit){
-            rect.setPosition(x, y).setSize(tV.x - x, tV.y - y);
+            collidedEntities.clear();
 
-            if(rect.width < 0){
-                rect.x += rect.width;
-                rect.width *= -1;
-            }
-            if(rect.height < 0){
-                rect.y += rect.height;
-                rect.height *= -1;
-            }
-
-            rect.grow(unitWidth * 2f);
+            // Query the unit tree once per chunk of the beam, so that diagonal beams don't scan their whole bounding box
+            float len = Mathf.dst(x, y, tV.x, tV.y);
+            int segments = Math.max(Mathf.ceil(len / collideLineUnitChunk), 1);
+            float ex = tV.x, ey = tV.y;
 
-            Groups.unit.intersect(rect.x, rect.y, rect.width, rect.height, unit -> {
-                if(unitFilter == null || unitFilter.get(unit)){
+            Cons<Unit> cons = unit -> {
+                if((unitFilter == null || unitFilter.get(unit)) && collidedEntities.add(unit.id)){
                     unit.hitbox(hitRect);
                     hitRect.grow(unitWidth * 2);
 
-                    Vec2 vec = Geometry.raycastRect(x, y, tV.x, tV.y, hitRect);
+                    Vec2 vec = Geometry.raycastRect(x, y, ex, ey, hitRect);
 
                     if(vec != null){
                         float scl = (unit.hitSize - unitWidth) / unit.hitSize;
@@ -782,7 +740,18 @@ public final class Utils{
                         }
                     }
                 }
-            });
+            };
+
+            for(int i = 0; i < segments; i++){
+                float from = i / (float)segments, to = (i + 1f) / segments;
+                rect.set(Mathf.lerp(x, ex, from), Mathf.lerp(y, ey, from), 0f, 0f)
+                    .merge(Mathf.lerp(x, ex, to), Mathf.lerp(y, ey, to))
+                    .grow(unitWidth * 2f);
+
+                Groups.unit.intersect(rect.x, rect.y, rect.width, rect.height, cons);
+            }
+
+            collidedEntities.clear();
         }
         if(sort != null){
             hit = false;
@@ -797,6 +766,58 @@ public final class Utils{
         hitEffects.clear();
     }
 
+    /**
+     * Collects the strip of beam tiles perpendicular to the ray's major axis through {@code (cx, cy)}, outwards from it in
+     * both directions. Like the old frontier fill, a tile whose building stopped the beam shadows the tiles behind it.
+     * @param ray Whether the tile is on the ray itself, which is always collected regardless of the beam's width.
+     */
+    private static void collideLineStrip(int cx, int cy, boolean ray, boolean xMajor, int radius, float x, float y, float x2, float y2, float width,
+                                         Boolf<Building> buildingFilter, Floatf<Healthc> sort, HitHandler hitHandler){
+        if(!collideLineTile(cx, cy, ray, x, y, x2, y2, width, buildingFilter, sort, hitHandler)) return;
+
+        for(int side = -1; side <= 1; side += 2){
+            for(int i = 1; i <= radius; i++){
+                int tx = xMajor ? cx : cx + side * i, ty = xMajor ? cy + side * i : cy;
+                if(!collideLineTile(tx, ty, false, x, y, x2, y2, width, buildingFilter, sort, hitHandler)) break;
+            }
+        }
+    }
+
+    /** @return Whether the tile is within the beam and the beam goes on past it. */
+    private static boolean collideLineTile(int tx, int ty, boolean ray, float x, float y, float x2, float y2, float width,
+                                           Boolf<Building> buildingFilter, Floatf<Healthc> sort, HitHandler hitHandler){
+        if(!collided.within(tx, ty)) return false;
+        if(collided.get(tx, ty)) return true;
+
+        float wx = tx * tilesize, wy = ty * tilesize;
+        if(!ray && Intersector.distanceSegmentPoint(x, y, tV.x, tV.y, wx, wy) > width) return false;
+        if(hitB && !Mathf.within(x, y, wx, wy, tV.dst(x, y))) return false;
+
+        collided.visit(tx, ty);
+
+        Building build = world.build(tx, ty);
+        if(build == null || (buildingFilter != null && !buildingFilter.get(build)) || !collidedBuilds.visit(build.tileX(), build.tileY())) return true;
+
+        boolean hit;
+        if(sort == null){
+            hit = hitHandler.get(wx, wy, build, true);
+        }else{
+            hit = hitHandler.get(wx, wy, build, false);
+            Hit he = Pools.obtain(Hit.class, Hit::new);
+            he.ent = build;
+            he.x = wx;
+            he.y = wy;
+
+            hitEffects.add(he);
+        }
+
+        if(hit && !hitB){
+            tV.trns(Angles.angle(x, y, x2, y2), Mathf.dst(x, y, build.x, build.y)).add(x, y);
+            hitB = true;
+        }
+        return !hit;
+    }
+
     @Deprecated
     public static void collideLineRawEnemy(Team team, float x, float y, float x2, float y2, Boolf<Building> buildC, Cons<Unit> unitC, Effect effect){
         collideLineRaw(x, y, x2, y2, b -> b.team != team, u -> u.team != team, buildC, unitC, unit -> unit.dst2(x, y), effect);
@@ -814,13 +835,13 @@ public final class Utils{
 
     @Deprecated
     public static void collideLineRaw(float x, float y, float x2, float y2, Boolf<Building> buildB, Boolf<Unit> unitB, Boolf<Building> buildC, Cons<Unit> unitC, Floatf<Healthc> sort, Boolf<Building> buildAlt, Effect effect){
-        collidedBlocks.clear();
+        collidedBuilds.clear();
         tmpUnitSeq.clear();
         tV.set(x2, y2);
         if(buildC != null){
             world.raycastEachWorld(x, y, x2, y2, (cx, cy) -> {
                 Building tile = world.build(cx, cy);
-                if(tile != null && (buildB == null || buildB.get(tile)) && !collidedBlocks.contains(tile.pos())){
+                if(tile != null && (buildB == null || buildB.get(tile)) && collidedBuilds.visit(tile.tileX(), tile.tileY())){
                     boolean s;
                     if(sort == null){
                         s = buildC.get(tile);
@@ -828,7 +849,6 @@ public final class Utils{
                         tmpUnitSeq.add(tile);
                         s = buildAlt.get(tile);
                     }
-                    collidedBlocks.add(tile.pos());
                     if(effect != null) effect.at(cx * tilesize, cy * tilesize);
                     if(s){
                         //Mathf.dst();
@@ -897,16 +917,15 @@ public final class Utils{
 
     /** The other version of Damage.collideLine */
     public static void collideLineDamageOnly(Team team, float damage, float x, float y, float angle, float length, Bullet hitter){
-        collidedBlocks.clear();
+        collidedBuilds.clear();
         tV.trns(angle, length);
 
         if(hitter.type.collidesGround){
             world.raycastEachWorld(x, y, x + tV.x, y + tV.y, (cx, cy) -> {
                 Building tile = world.build(cx, cy);
 
-                if(tile != null && !collidedBlocks.contains(tile.pos()) && tile.team != team){
+                if(tile != null && tile.team != team && collidedBuilds.visit(tile.tileX(), tile.tileY())){
                     tile.damage(damage);
-                    collidedBlocks.add(tile.pos());
                 }
 
                 return false;
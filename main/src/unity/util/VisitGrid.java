@@ -0,0 +1,78 @@
+package unity.util;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A set of visited cells in a fixed-size grid. Each cell stores the generation it was last visited in, so
+ * {@link #clear()} only has to bump the generation instead of filling the whole grid. Grids larger than
+ * {@link #sparseThreshold} cells keep a hash set of packed positions instead of a dense array.
+ */
+public class VisitGrid{
+    /** Grids with more cells than this are backed by a sparse set. */
+    public static int sparseThreshold = 2048 * 2048;
+
+    int[] stamps = {};
+    int generation = 1;
+    IntSet sparse;
+    int width, height;
+
+    public void updateSize(int newWidth, int newHeight){
+        if(newWidth != width || newHeight != height){
+            int cells = newWidth * newHeight;
+            if(cells > sparseThreshold){
+                stamps = new int[0];
+                if(sparse == null) sparse = new IntSet();
+                sparse.clear();
+            }else{
+                stamps = new int[cells];
+                sparse = null;
+            }
+
+            generation = 1;
+        }
+
+        width = newWidth;
+        height = newHeight;
+    }
+
+    public void clear(){
+        if(sparse != null){
+            sparse.clear();
+        }else if(++generation == 0){
+            // Overflowed after 2^32 clears; stale stamps could now collide, so actually reset them once
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    public boolean within(int x, int y){
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public boolean get(int x, int y){
+        return sparse != null ? sparse.contains(Point2.pack(x, y)) : stamps[x + y * width] == generation;
+    }
+
+    /** @return {@code true} if the cell hadn't been visited since the last {@link #clear()}. */
+    public boolean visit(int x, int y){
+        if(sparse != null) return sparse.add(Point2.pack(x, y));
+
+        int i = x + y * width;
+        if(stamps[i] == generation) return false;
+
+        stamps[i] = generation;
+        return true;
+    }
+
+    public int clampX(int x){
+        return Mathf.clamp(x, 0, width - 1);
+    }
+
+    public int clampY(int y){
+        return Mathf.clamp(y, 0, height - 1);
+    }
+}
@@ -15,7 +15,9 @@ import mindustry.graphics.*;
 import unity.*;
 
 import java.io.*;
-import java.util.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.zip.*;
 
 /**
  * Wavefront Object Converter and Renderer for Arc/libGDX
@@ -28,6 +30,10 @@ public class WavefrontObject{
     protected static final float defaultScl = 4f;
     protected static final float perspectiveDistance = 350f;
 
+    /** Extension of the binary models written by {@link #write(Fi, long)}, placed next to their {@code .obj} source. */
+    public static final String binaryExtension = "objb";
+    protected static final int binaryMagic = 0x4f424a42, binaryVersion = 2;
+
     public Seq<Vec3> vertices = new Seq<>();
     public Seq<Vec2> uvs = new Seq<>();
     public Seq<Vec3> normals = new Seq<>();
@@ -35,12 +41,12 @@ public class WavefrontObject{
     public String textureName = "";
     public ObjectMap<String, Material> materials;
     private final Seq<Vertex> drawnVertices = new Seq<>();
-    private final Seq<Vec3> drawnNormals = new Seq<>();
+    /** Materials in file order, so faces can refer to them by index. */
+    private final Seq<Material> materialList = new Seq<>();
     private AtlasRegion texture = null;
     private boolean hasMaterial = false;
     private boolean hasNormal = false;
     private boolean hasTexture = false;
-    private boolean hasMaterialTex = false;
     private boolean odd = false;
 
     public ShadingType shadingType = ShadingType.normalAngle;
@@ -52,205 +58,331 @@ public class WavefrontObject{
     protected int indexerA;
     protected float indexerZ;
 
+    /** Raw {@link #vertices}, {@link #uvs}, and {@link #normals}, filled in by either loading method. */
+    protected float[] vertexData = {}, uvData = {}, normalData = {};
+    /** Faces as {@code count, material, (vertex, uv, normal) * count}, with {@code -1} for no material. */
+    protected int[] faceData = {};
+    /** Transformed vertices relative to the draw position, and transformed normals. */
+    protected float[] projected = {}, projectedNormals = {};
+    /** Average depth and shaded color of each face from the last transform. */
+    protected float[] faceDepth = {}, faceColor = {};
+    protected boolean[] faceVisible = {};
+
+    /** Whether {@link #projected} holds the result of the inputs below, so it can be reused as is. */
+    protected boolean cached;
+    protected float cacheRX, cacheRY, cacheRZ, cacheSize, cacheSmoothness;
+    protected int cacheLight, cacheShade;
+    protected ShadingType cacheShading;
+
+    private static final Vec3 tmpVert = new Vec3();
+
     public void load(Fi file, @Nullable Fi material){
+        materialList.clear();
         if(material != null){
-            BufferedReader matR = material.reader(64);
+            WavefrontReader in = new WavefrontReader(material.readBytes());
             Material current = null;
-            while(true){
-                try{
-                    String line = matR.readLine();
-                    if(line == null) break;
-
-                    if(line.contains("newmtl ")){
-                        current = new Material();
-                        current.name = line.replaceFirst("newmtl ", "");
-
-                        if(materials == null) materials = new ObjectMap<>();
-                        materials.put(current.name, current);
-                        hasMaterial = true;
+            while(in.nextLine()){
+                if(in.keyword("newmtl")){
+                    current = new Material();
+                    current.name = in.rest();
+                    materialList.add(current);
+                }else if(current == null){
+                    continue;
+                }
+
+                if(in.keyword("Ka")){
+                    current.ambientCol = readColor(in);
+                    if(current.ambientCol != Color.white.rgba8888()) current.hasColor = true;
+                }else if(in.keyword("Kd")){
+                    current.diffuseCol = readColor(in);
+                    if(current.diffuseCol != Color.white.rgba8888()) current.hasColor = true;
+                }else if(in.keyword("Ke")){
+                    current.emitCol = readColor(in);
+                    if(current.emitCol != Color.black.rgba8888()) current.hasColor = true;
+                }else if(in.keyword("map_Kd")){
+                    current.diffTexName = in.rest();
+                }else if(in.keyword("map_Ke")){
+                    current.emitTexName = in.rest();
+                }
+            }
+        }
+
+        FloatSeq v = new FloatSeq(), vt = new FloatSeq(), vn = new FloatSeq();
+        IntSeq faceSeq = new IntSeq();
+        int current = -1;
+
+        WavefrontReader in = new WavefrontReader(file.readBytes());
+        while(in.nextLine()){
+            if(in.keyword("v")){
+                v.add(in.nextFloat(), in.nextFloat(), in.nextFloat());
+            }else if(in.keyword("vt")){
+                vt.add(in.nextFloat(), in.nextFloat());
+            }else if(in.keyword("vn")){
+                vn.add(in.nextFloat(), in.nextFloat(), in.nextFloat());
+            }else if(in.keyword("usemtl")){
+                String key = in.rest();
+
+                current = -1;
+                for(int i = 0; i < materialList.size; i++){
+                    if(materialList.get(i).name.equals(key)){
+                        current = i;
+                        break;
+                    }
+                }
+            }else if(in.keyword("f")){
+                int start = faceSeq.size, count = 0;
+                faceSeq.add(0, current);
+
+                // v, v/vt, v//vn, or v/vt/vn; missing indices point to the first element
+                while(in.hasNext()){
+                    int vi = in.nextInt(0) - 1, ti = 0, ni = 0;
+                    if(in.slash()){
+                        ti = in.nextInt(1) - 1;
+                        if(in.slash()) ni = in.nextInt(1) - 1;
                     }
 
-                    if(line.startsWith("Ka ") && current != null){
-                        String[] val = line.replaceFirst("Ka ", "").split("\\s+");
-                        float[] col = new float[3];
+                    // Also catches relative (negative) indices, which aren't supported
+                    if(vi < 0 || vi >= v.size / 3) throw new IllegalStateException("Face at line " + in.line() + " refers to an undefined vertex.");
+                    faceSeq.add(vi, ti, ni);
+                    count++;
+                }
 
-                        if(val.length != 3) throw new IllegalStateException("'Ka' must be followed with 3 arguments. Required: [r, g, b], found: " + Arrays.toString(val));
-                        for(int i = 0; i < 3; i++){
-                            col[i] = Strings.parseFloat(val[i], 0f);
-                        }
+                faceSeq.items[start] = count;
+            }
+        }
 
-                        Tmp.c1.set(col[0], col[1], col[2]).a(1f);
-                        current.ambientCol = Tmp.c1.rgba8888();
-                        if(!Tmp.c1.equals(Color.white)){
-                            current.hasColor = true;
-                        }
-                    }
+        vertexData = v.toArray();
+        uvData = vt.toArray();
+        normalData = vn.toArray();
+        faceData = faceSeq.toArray();
+        build();
+    }
 
-                    if(line.startsWith("Kd ") && current != null){
-                        String[] val = line.replaceFirst("Kd ", "").split("\\s+");
-                        float[] col = new float[3];
+    private static int readColor(WavefrontReader in){
+        return Color.rgba8888(in.nextFloat(), in.nextFloat(), in.nextFloat(), 1f);
+    }
 
-                        if(val.length != 3) throw new IllegalStateException("'Kd' must be followed with 3 arguments. Required: [r, g, b], found: " + Arrays.toString(val));
-                        for(int i = 0; i < 3; i++){
-                            col[i] = Strings.parseFloat(val[i], 0f);
-                        }
+    /** @return A hash of the source files, stored in binary models so ones older than their source aren't used. */
+    public static long sourceHash(Fi file, @Nullable Fi material){
+        CRC32 crc = new CRC32();
+        crc.update(file.readBytes());
+        if(material != null) crc.update(material.readBytes());
 
-                        Tmp.c1.set(col[0], col[1], col[2]).a(1f);
-                        current.diffuseCol = Tmp.c1.rgba8888();
-                        if(!Tmp.c1.equals(Color.white)){
-                            current.hasColor = true;
-                        }
-                    }
+        return crc.getValue();
+    }
 
-                    if(line.startsWith("Ke ") && current != null){
-                        String[] val = line.replaceFirst("Ke ", "").split("\\s+");
-                        float[] col = new float[3];
+    /**
+     * Reads a model written by {@link #write(Fi, long)}. The arrays are bulk-copied out of the file, so nothing has to be
+     * parsed.
+     * @param sourceHash The {@link #sourceHash(Fi, Fi)} of the model's current source files.
+     * @return Whether the binary model was read; {@code false} if it was written by another version or from other
+     *         sources, in which case nothing is changed and the source files should be loaded instead.
+     */
+    public boolean read(Fi file, long sourceHash){
+        ByteBuffer buffer = ByteBuffer.wrap(file.readBytes());
+        if(buffer.remaining() < 16 || buffer.getInt() != binaryMagic || buffer.getInt() != binaryVersion || buffer.getLong() != sourceHash) return false;
+
+        materialList.clear();
+        for(int i = 0, count = buffer.getInt(); i < count; i++){
+            Material mat = new Material();
+            mat.name = readString(buffer);
+            mat.ambientCol = buffer.getInt();
+            mat.diffuseCol = buffer.getInt();
+            mat.emitCol = buffer.getInt();
+            mat.hasColor = buffer.get() != 0;
+            mat.diffTexName = buffer.get() != 0 ? readString(buffer) : null;
+            mat.emitTexName = buffer.get() != 0 ? readString(buffer) : null;
+            materialList.add(mat);
+        }
 
-                        if(val.length != 3) throw new IllegalStateException("'Ke' must be followed with 3 arguments. Required: [r, g, b], found: " + Arrays.toString(val));
-                        for(int i = 0; i < 3; i++){
-                            col[i] = Strings.parseFloat(val[i], 0f);
-                        }
+        vertexData = readFloats(buffer);
+        uvData = readFloats(buffer);
+        normalData = readFloats(buffer);
 
-                        Tmp.c1.set(col[0], col[1], col[2]).a(1f);
-                        current.emitCol = Tmp.c1.rgba8888();
-                        if(!Tmp.c1.equals(Color.black)){
-                            current.hasColor = true;
-                        }
-                    }
+        faceData = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(faceData);
 
-                    if(line.contains("map_Kd ") && current != null){
-                        hasTexture = true;
-                        hasMaterialTex = true;
-                        if(canLoadTex()){
-                            String n = line.replaceFirst("map_Kd ", "");
-                            current.diffTex = Core.atlas.find("unity-" + n);
-                        }
-                    }
+        build();
+        return true;
+    }
 
-                    if(line.contains("map_Ke ") && current != null && canLoadTex()){
-                        String n = line.replaceFirst("map_Ke ", "");
-                        current.emitTex = Core.atlas.find("unity-" + n);
-                    }
-                }catch(Throwable e){
-                    throw new RuntimeException(e);
-                }
+    /**
+     * Writes this model in the format read by {@link #read(Fi, long)}. Used by the tools module to cache parsed models.
+     * @param sourceHash The {@link #sourceHash(Fi, Fi)} of the files this model was loaded from.
+     */
+    public void write(Fi file, long sourceHash){
+        try(DataOutputStream out = new DataOutputStream(file.write(false, 8192))){
+            out.writeInt(binaryMagic);
+            out.writeInt(binaryVersion);
+            out.writeLong(sourceHash);
+
+            out.writeInt(materialList.size);
+            for(Material mat : materialList){
+                writeString(out, mat.name);
+                out.writeInt(mat.ambientCol);
+                out.writeInt(mat.diffuseCol);
+                out.writeInt(mat.emitCol);
+                out.writeBoolean(mat.hasColor);
+                out.writeBoolean(mat.diffTexName != null);
+                if(mat.diffTexName != null) writeString(out, mat.diffTexName);
+                out.writeBoolean(mat.emitTexName != null);
+                if(mat.emitTexName != null) writeString(out, mat.emitTexName);
             }
-        }
-
-        BufferedReader reader = file.reader(64);
-        Material current = null;
-        while(true){
-            try{
-                String line = reader.readLine();
-                if(line == null) break;
 
-                if(line.contains("v ")){
-                    String[] pos = line.replaceFirst("v ", "").split("\\s+");
-                    if(pos.length != 3) throw new IllegalStateException("'v' must define all 3 vector points");
+            for(float[] arr : new float[][]{vertexData, uvData, normalData}){
+                out.writeInt(arr.length);
+                for(float f : arr) out.writeFloat(f);
+            }
 
-                    float[] vec = new float[3];    
-                    for(int i = 0; i < 3; i++){
-                        vec[i] = Strings.parseFloat(pos[i], 0f);
-                    }
+            out.writeInt(faceData.length);
+            for(int i : faceData) out.writeInt(i);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
 
-                    drawnVertices.add(new Vertex(vec[0], vec[1], vec[2]));
-                    vertices.add(new Vec3(vec[0], vec[1], vec[2]));
-                }
+    private static float[] readFloats(ByteBuffer buffer){
+        float[] out = new float[buffer.getInt()];
+        buffer.asFloatBuffer().get(out);
+        buffer.position(buffer.position() + out.length * 4);
+        return out;
+    }
 
-                if(line.contains("vt ")){
-                    if(!hasTexture) hasTexture = true;
-                    String[] pos = line.replaceFirst("vt ", "").split("\\s+");
-                    Vec2 uv = new Vec2();
-                    uv.x = Strings.parseFloat(pos[0], 0f);
-                    uv.y = Strings.parseFloat(pos[1], 0f);
-                    uvs.add(uv);
-                }
+    private static String readString(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
 
-                if(line.contains("vn ")){
-                    if(!hasNormal) hasNormal = true;
-                    String[] pos = line.replaceFirst("vn ", "").split("\\s+");
-                    if(pos.length != 3) throw new IllegalStateException("'v' must define all 3 vector points");
+    private static void writeString(DataOutputStream out, String str) throws IOException{
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
 
-                    float[] vec = new float[3];
-                    for(int i = 0; i < 3; i++){
-                        vec[i] = Strings.parseFloat(pos[i], 0f);
-                    }
+    /** Builds the vertices, faces, and materials out of the raw arrays filled in by either loading method. */
+    protected void build(){
+        vertices.clear();
+        uvs.clear();
+        normals.clear();
+        faces.clear();
+        drawnVertices.clear();
+
+        if(materials != null) materials.clear();
+        for(Material mat : materialList){
+            if(materials == null) materials = new ObjectMap<>();
+            materials.put(mat.name, mat);
+        }
 
-                    drawnNormals.add(new Vec3(vec[0], vec[1], vec[2]));
-                    normals.add(new Vec3(vec[0], vec[1], vec[2]));
-                }
+        hasMaterial = materialList.any();
+        hasNormal = normalData.length > 0;
+        hasTexture = uvData.length > 0 || materialList.contains(m -> m.diffTexName != null);
+        odd = false;
 
-                if(hasMaterial && line.contains("usemtl ")){
-                    String key = line.replace("usemtl ", "");
-                    current = materials.get(key);
-                }
+        if(canLoadTex()){
+            for(Material mat : materialList){
+                if(mat.diffTexName != null) mat.diffTex = Core.atlas.find("unity-" + mat.diffTexName);
+                if(mat.emitTexName != null) mat.emitTex = Core.atlas.find("unity-" + mat.emitTexName);
+            }
+        }
 
-                if(line.contains("f ")){
-                    String[] segments = line.replace("f ", "").split("\\s+");
-                    Face face = new Face();
-                    face.verts = new Vertex[segments.length];
-                    if(hasNormal) face.normal = new Vec3[segments.length];
-                    if(hasTexture) face.vertexTexture = new Vec2[segments.length];
-                    if(hasMaterial && current != null) face.mat = current;
-                    if(segments.length != 4) odd = true;
-
-                    int[] i = {0};
-                    for(String segment : segments){
-                        String[] faceIndex = segment.split("/");
-                        //Unity.print(faceIndex.length + "");
-                        Vertex vert = drawnVertices.get(getFaceVal(faceIndex[0]));
-                        face.verts[i[0]] = vert;
-                        if(hasNormal){
-                            face.normal[i[0]] = drawnNormals.get(getFaceVal(faceIndex[2]));
-                        }
-                        if(hasTexture){
-                            face.vertexTexture[i[0]] = uvs.get(getFaceVal(faceIndex[1]));
-                        }
+        for(int i = 0; i < vertexData.length; i += 3){
+            Vec3 source = new Vec3(vertexData[i], vertexData[i + 1], vertexData[i + 2]);
+            vertices.add(source);
+            drawnVertices.add(new Vertex(source));
+        }
+        for(int i = 0; i < uvData.length; i += 2) uvs.add(new Vec2(uvData[i], uvData[i + 1]));
+        for(int i = 0; i < normalData.length; i += 3) normals.add(new Vec3(normalData[i], normalData[i + 1], normalData[i + 2]));
 
-                        for(int sign : Mathf.signs){
-                            Vertex v = drawnVertices.get(faceVertIndex(segments[Mathf.mod(sign + i[0], segments.length)]));
+        int[] data = faceData;
+        for(int i = 0; i < data.length;){
+            int count = data[i++], mat = data[i++];
 
-                            if(!face.verts[i[0]].neighbors.contains(v)){
-                                face.verts[i[0]].neighbors.add(v);
-                            }
-                        }
-                        //faceTmp.shadingValue += (Math.abs(vert.source.x) + Math.abs(vert.source.y) + Math.abs(vert.source.z)) / 3f;
-                        //faceTmp.shadingValue += vert.source.len();
-                        face.size += 6;
-                        i[0]++;
-                    }
+            Face face = new Face();
+            face.verts = new Vertex[count];
+            face.vertIndex = new int[count];
+            if(hasNormal){
+                face.normal = new Vec3[count];
+                face.normalIndex = new int[count];
+            }
+            if(hasTexture) face.vertexTexture = new Vec2[count];
+            if(mat != -1) face.mat = materialList.get(mat);
+            if(count != 4) odd = true;
+
+            for(int k = 0; k < count; k++, i += 3){
+                face.vertIndex[k] = data[i];
+                face.verts[k] = drawnVertices.get(data[i]);
+                if(hasNormal){
+                    face.normalIndex[k] = data[i + 2];
+                    face.normal[k] = normals.get(data[i + 2]);
+                }
+                if(hasTexture && uvs.any()) face.vertexTexture[k] = uvs.get(data[i + 1]);
+            }
 
-                    face.data = new float[face.size];
+            for(int k = 0; k < count; k++){
+                for(int sign : Mathf.signs){
+                    Vertex v = face.verts[Mathf.mod(sign + k, count)];
+                    if(!face.verts[k].neighbors.contains(v)) face.verts[k].neighbors.add(v);
+                }
+            }
 
-                    i[0] = 0;
-                    for(Vertex vt : face.verts){
-                        vt.neighbors.each(vs -> {
-                            for(Vertex vc : face.verts){
-                                if(vs == vc) return true;
-                            }
+            face.size = count * 6;
+            face.data = new float[face.size];
 
-                            return false;
-                        }, vs -> {
+            int neighbors = 0;
+            for(Vertex vt : face.verts){
+                for(Vertex vs : vt.neighbors){
+                    for(Vertex vc : face.verts){
+                        if(vs == vc){
                             face.shadingValue += vt.source.dst(vs.source);
-                            i[0]++;
-                        });
-                        //i[0]++;
+                            neighbors++;
+                            break;
+                        }
                     }
-
-                    face.shadingValue /= i[0];
-                    faces.add(face);
                 }
-            }catch(Throwable e){
-                throw new RuntimeException(e);
             }
+
+            face.shadingValue /= neighbors;
+            faces.add(face);
         }
+
         if(canLoadTex()){
             texture = Core.atlas.find("unity-" + textureName + "-tex");
         }
 
+        bake();
         Unity.print(drawnVertices.size + " : " + faces.size);
     }
 
+    /** Flattens the loaded model into the arrays {@link #draw(float, float, float, float, float, Cons)} works on. */
+    protected void bake(){
+        projected = new float[vertexData.length];
+        projectedNormals = new float[normalData.length];
+        faceDepth = new float[faces.size];
+        faceColor = new float[faces.size];
+        faceVisible = new boolean[faces.size];
+
+        // Neighbouring vertex pairs within each face, for zDistance shading
+        IntSeq pairs = new IntSeq();
+        for(Face face : faces){
+            pairs.clear();
+            for(int a = 0; a < face.verts.length; a++){
+                for(Vertex neighbor : face.verts[a].neighbors){
+                    for(int b = 0; b < face.verts.length; b++){
+                        if(face.verts[b] == neighbor){
+                            pairs.add(face.vertIndex[a], face.vertIndex[b]);
+                            break;
+                        }
+                    }
+                }
+            }
+
+            face.shadePairs = pairs.toArray();
+        }
+
+        cached = false;
+    }
+
     private boolean canLoadTex(){
         return !Vars.headless && Core.atlas != null && hasTexture;
     }
@@ -261,35 +393,98 @@ public class WavefrontObject{
 
     public void draw(float x, float y, float rX, float rY, float rZ, Cons<Vec3> cons){
         float oz = Draw.z();
-        for(int i = 0; i < drawnVertices.size; i++){
-            Vec3 v = drawnVertices.get(i).source;
-            v.set(vertices.get(i));
-            if(cons != null) cons.get(v);
-            v.scl(defaultScl * size).rotate(Vec3.X, rX).rotate(Vec3.Y, rY).rotate(Vec3.Z, rZ);
-            float depth = Math.max(0f, (perspectiveDistance + v.z) / perspectiveDistance);
-            v.scl(depth);
-            
-            v.add(x, y, 0f);
-            if(i <= drawnNormals.size - 1){
-                drawnNormals.get(i).set(normals.get(i)).rotate(Vec3.X, rX).rotate(Vec3.Y, rY).rotate(Vec3.Z, rZ);
+        if(cons != null || !cacheMatches(rX, rY, rZ)) transform(rX, rY, rZ, cons);
+
+        float mColor = Draw.getMixColor().toFloatBits();
+        for(int f = 0; f < faces.size; f++){
+            if(!faceVisible[f]) continue;
+
+            Face face = faces.get(f);
+            float z = (faceDepth[f] * zScale) + drawLayer;
+            Draw.z(z);
+
+            updateFace(face, x, y, faceColor[f], mColor);
+
+            if(!odd || face.verts.length == 4){
+                face.draw();
+            }else{
+                Draw.draw(z, face::draw);
             }
         }
+        Draw.reset();
+        Draw.z(oz);
+    }
 
-        for(Face face : faces){
-            indexerA = 0;
-            indexerZ = 0f;
-            for(Vertex vert : face.verts){
-                indexerZ += vert.source.z;
-                indexerA++;
-            }
-            indexerZ /= indexerA;
-            float z = (indexerZ * zScale) + drawLayer;
-            Draw.z(z);
+    protected boolean cacheMatches(float rX, float rY, float rZ){
+        return cached &&
+            cacheRX == rX && cacheRY == rY && cacheRZ == rZ && cacheSize == size &&
+            cacheShading == shadingType && cacheSmoothness == shadingSmoothness &&
+            cacheLight == lightColor.rgba() && cacheShade == shadeColor.rgba();
+    }
 
-            if(hasNormal){
-                if(Math.abs(face.normal[0].angle(Vec3.Z)) >= 90f) continue;
+    /**
+     * Rotates, scales, and projects every vertex and normal with one combined matrix, then computes the depth,
+     * visibility, and shading of every face. The result is reused by later draws with the same inputs, unless a
+     * vertex modifier is given.
+     */
+    protected void transform(float rX, float rY, float rZ, Cons<Vec3> cons){
+        float
+            cx = Mathf.cosDeg(rX), sx = Mathf.sinDeg(rX),
+            cy = Mathf.cosDeg(rY), sy = Mathf.sinDeg(rY),
+            cz = Mathf.cosDeg(rZ), sz = Mathf.sinDeg(rZ),
+
+            // Rotation around X, then Y, then Z
+            m00 = cz * cy, m01 = cz * sy * sx - sz * cx, m02 = cz * sy * cx + sz * sx,
+            m10 = sz * cy, m11 = sz * sy * sx + cz * cx, m12 = sz * sy * cx - cz * sx,
+            m20 = -sy, m21 = cy * sx, m22 = cy * cx,
+            scl = defaultScl * size;
+
+        float[] src = vertexData, dst = projected;
+        for(int i = 0; i < src.length; i += 3){
+            float vx = src[i], vy = src[i + 1], vz = src[i + 2];
+            if(cons != null){
+                cons.get(tmpVert.set(vx, vy, vz));
+                vx = tmpVert.x;
+                vy = tmpVert.y;
+                vz = tmpVert.z;
             }
 
+            vx *= scl;
+            vy *= scl;
+            vz *= scl;
+
+            float
+                px = m00 * vx + m01 * vy + m02 * vz,
+                py = m10 * vx + m11 * vy + m12 * vz,
+                pz = m20 * vx + m21 * vy + m22 * vz,
+                depth = Math.max(0f, (perspectiveDistance + pz) / perspectiveDistance);
+
+            dst[i] = px * depth;
+            dst[i + 1] = py * depth;
+            dst[i + 2] = pz * depth;
+        }
+
+        src = normalData;
+        dst = projectedNormals;
+        for(int i = 0; i < src.length; i += 3){
+            float nx = src[i], ny = src[i + 1], nz = src[i + 2];
+            dst[i] = m00 * nx + m01 * ny + m02 * nz;
+            dst[i + 1] = m10 * nx + m11 * ny + m12 * nz;
+            dst[i + 2] = m20 * nx + m21 * ny + m22 * nz;
+        }
+
+        for(int f = 0; f < faces.size; f++){
+            Face face = faces.get(f);
+
+            float depth = 0f;
+            for(int v : face.vertIndex) depth += projected[v * 3 + 2];
+            faceDepth[f] = depth / face.vertIndex.length;
+
+            // Back-facing faces are those whose first normal is at least 90 degrees away from the view direction
+            boolean visible = !hasNormal || projectedNormals[face.normalIndex[0] * 3 + 2] > 0f;
+            faceVisible[f] = visible;
+            if(!visible) continue;
+
             switch(shadingType){
                 case zMedian -> zMedianDraw(face);
                 case zDistance -> zDistanceDraw(face);
@@ -297,19 +492,18 @@ public class WavefrontObject{
                 default -> Draw.color(lightColor);
             }
 
-            float color = Draw.getColor().toFloatBits();
-            float mColor = Draw.getMixColor().toFloatBits();
-
-            updateFace(face, color, mColor);
-
-            if(!odd || face.verts.length == 4){
-                face.draw();
-            }else{
-                Draw.draw(z, face::draw);
-            }
+            faceColor[f] = Draw.getColor().toFloatBits();
         }
-        Draw.reset();
-        Draw.z(oz);
+
+        cached = cons == null;
+        cacheRX = rX;
+        cacheRY = rY;
+        cacheRZ = rZ;
+        cacheSize = size;
+        cacheShading = shadingType;
+        cacheSmoothness = shadingSmoothness;
+        cacheLight = lightColor.rgba();
+        cacheShade = shadeColor.rgba();
     }
 
     protected void normalAngleDraw(Face face){
@@ -318,12 +512,10 @@ public class WavefrontObject{
             return;
         }
         Vec3 tmp = Tmp.v31.setZero();
-        indexerA = 0;
-        for(Vec3 n : face.normal){
-            tmp.add(n);
-            indexerA++;
+        for(int n : face.normalIndex){
+            tmp.add(projectedNormals[n * 3], projectedNormals[n * 3 + 1], projectedNormals[n * 3 + 2]);
         }
-        tmp.scl(1f / indexerA);
+        tmp.scl(1f / face.normalIndex.length);
 
         boolean matB = face.mat != null && face.mat.hasColor;
         if(matB){
@@ -341,31 +533,22 @@ public class WavefrontObject{
     }
 
     protected void zMedianDraw(Face face){
-        indexerA = 0;
         indexerZ = 0;
-        for(Vertex vert : face.verts){
-            indexerZ += -vert.source.z;
-            indexerA++;
+        for(int v : face.vertIndex){
+            indexerZ += -projected[v * 3 + 2];
         }
-        indexerZ /= indexerA;
+        indexerZ /= face.vertIndex.length;
 
         Tmp.c1.set(lightColor).lerp(shadeColor, Mathf.clamp(indexerZ / face.shadingValue / (shadingSmoothness * defaultScl)));
         Draw.color(Tmp.c1);
     }
 
     protected void zDistanceDraw(Face face){
-        indexerA = 0;
+        int[] pairs = face.shadePairs;
+        indexerA = pairs.length / 2;
         indexerZ = 0;
-        for(Vertex vert : face.verts){
-            vert.neighbors.each(vertex -> {
-                for(Vertex v : face.verts){
-                    if(v == vertex) return true;
-                }
-                return false;
-            }, vertex -> {
-                indexerZ += Math.abs(vertex.source.z - vert.source.z) / face.shadingValue / (shadingSmoothness * defaultScl);
-                indexerA++;
-            });
+        for(int i = 0; i < pairs.length; i += 2){
+            indexerZ += Math.abs(projected[pairs[i + 1] * 3 + 2] - projected[pairs[i] * 3 + 2]) / face.shadingValue / (shadingSmoothness * defaultScl);
         }
         indexerZ /= indexerA;
 
@@ -373,41 +556,42 @@ public class WavefrontObject{
         Draw.color(Tmp.c1);
     }
 
-    protected void updateFace(Face face, float color, float mColor){
+    protected void updateFace(Face face, float x, float y, float color, float mColor){
         float[] dface = face.data;
 
-        AtlasRegion textureB = texture, region = Core.atlas.white();
+        // Texture coordinates never change, so they're only written once
+        if(!face.uvReady){
+            AtlasRegion textureB = texture, region = Core.atlas.white();
+
+            if(face.mat != null && face.mat.diffTex != null){
+                textureB = face.mat.diffTex;
+            }
+
+            for(int i = 0; i < face.verts.length; i++){
+                int s = i * 6;
+                if(!hasTexture || textureB == null){
+                    dface[s + 3] = region.u;
+                    dface[s + 4] = region.v;
+                }else{
+                    float u = textureB.u, v = textureB.v;
+                    float u2 = textureB.u2, v2 = textureB.v2;
+                    dface[s + 3] = Mathf.lerp(u, u2, face.vertexTexture[i].x);
+                    dface[s + 4] = Mathf.lerp(v2, v, face.vertexTexture[i].y);
+                }
+            }
 
-        if(face.mat != null && face.mat.diffTex != null){
-            textureB = face.mat.diffTex;
+            face.uvReady = true;
         }
 
-        for(int i = 0; i < face.verts.length; i++){
-            int s = i * 6;
-            dface[s] = face.verts[i].source.x;
-            dface[s + 1] = face.verts[i].source.y;
+        for(int i = 0; i < face.vertIndex.length; i++){
+            int s = i * 6, v = face.vertIndex[i] * 3;
+            dface[s] = projected[v] + x;
+            dface[s + 1] = projected[v + 1] + y;
             dface[s + 2] = color;
-            if(!hasTexture || textureB == null){
-                dface[s + 3] = region.u;
-                dface[s + 4] = region.v;
-            }else{
-                float u = textureB.u, v = textureB.v;
-                float u2 = textureB.u2, v2 = textureB.v2;
-                dface[s + 3] = Mathf.lerp(u, u2, face.vertexTexture[i].x);
-                dface[s + 4] = Mathf.lerp(v2, v, face.vertexTexture[i].y);
-            }
             dface[s + 5] = mColor;
         }
     }
 
-    protected static int faceVertIndex(String node){
-        return getFaceVal(node.split("/")[0]);
-    }
-
-    protected static int getFaceVal(String value){
-        return Strings.parseInt(value, 1) - 1;
-    }
-
     @Override
     public String toString(){
         return "WavefrontObject{" +
@@ -422,9 +606,12 @@ public class WavefrontObject{
         public Vertex[] verts;
         public Vec3[] normal;
         public Vec2[] vertexTexture;
+        /** Indices into the flattened vertex and normal arrays, and neighbouring vertex pairs within this face. */
+        public int[] vertIndex, normalIndex, shadePairs = {};
         public float shadingValue = 0f;
         public int size = 0;
         public float[] data;
+        protected boolean uvReady;
 
         protected void draw(){
             AtlasRegion textureB = texture, region = Core.atlas.white();
@@ -450,7 +637,11 @@ public class WavefrontObject{
         public Seq<Vertex> neighbors = new Seq<>();
 
         public Vertex(float x, float y, float z){
-            source = new Vec3(x, y, z);
+            this(new Vec3(x, y, z));
+        }
+
+        public Vertex(Vec3 source){
+            this.source = source;
         }
     }
 
@@ -458,6 +649,7 @@ public class WavefrontObject{
         public String name;
         public int ambientCol = 0xffffffff, diffuseCol = 0xffffffff, emitCol = 0x00000000;
         public boolean hasColor = false;
+        public @Nullable String diffTexName, emitTexName;
         public AtlasRegion diffTex, emitTex;
     }
 
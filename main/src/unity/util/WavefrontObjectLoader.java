@@ -17,13 +17,14 @@ public class WavefrontObjectLoader extends AsynchronousAssetLoader<WavefrontObje
 
     @Override
     public void loadAsync(AssetManager assetManager, String fileName, Fi file, WavefrontObjectParameters parameter){
+        object = parameter != null && parameter.object != null ? parameter.object : new WavefrontObject();
+
         Fi material = file.parent().child(file.nameWithoutExtension() + ".mtl");
         if(!material.exists()) material = null;
 
-        if(parameter != null && parameter.object != null){
-            (object = parameter.object).load(file, material);
-        }else{
-            object = new WavefrontObject();
+        // Prefer the binary model written by the tools module, unless its sources were changed since
+        Fi binary = file.parent().child(file.nameWithoutExtension() + "." + WavefrontObject.binaryExtension);
+        if(!binary.exists() || !object.read(binary, WavefrontObject.sourceHash(file, material))){
             object.load(file, material);
         }
     }
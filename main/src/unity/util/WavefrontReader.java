@@ -0,0 +1,159 @@
+package unity.util;
+
+import java.nio.charset.*;
+
+/**
+ * Line-based tokenizer for Wavefront {@code .obj} and {@code .mtl} files. Reads numbers straight from the file bytes,
+ * so only names are ever turned into strings.
+ */
+class WavefrontReader{
+    private static final double[] pow10 = new double[19];
+
+    static{
+        pow10[0] = 1d;
+        for(int i = 1; i < pow10.length; i++) pow10[i] = pow10[i - 1] * 10d;
+    }
+
+    private final byte[] bytes;
+    private int pos, lineEnd = -1, line;
+
+    WavefrontReader(byte[] bytes){
+        this.bytes = bytes;
+    }
+
+    /** Moves to the next line. @return {@code false} if there are no more lines. */
+    boolean nextLine(){
+        pos = lineEnd + 1;
+        if(pos >= bytes.length) return false;
+
+        int end = pos;
+        while(end < bytes.length && bytes[end] != '\n') end++;
+
+        lineEnd = end;
+        line++;
+        return true;
+    }
+
+    /** Skips whitespace. @return Whether there's anything left on this line. */
+    boolean hasNext(){
+        while(pos < lineEnd && isSpace(bytes[pos])) pos++;
+        return pos < lineEnd && bytes[pos] != '#';
+    }
+
+    /** Consumes the keyword if the current token is exactly it. */
+    boolean keyword(String key){
+        if(!hasNext()) return false;
+
+        int len = key.length();
+        if(pos + len > lineEnd) return false;
+        for(int i = 0; i < len; i++){
+            if(bytes[pos + i] != key.charAt(i)) return false;
+        }
+
+        if(pos + len < lineEnd && !isSpace(bytes[pos + len])) return false;
+
+        pos += len;
+        return true;
+    }
+
+    /** Consumes a {@code /} separating face indices, if present. */
+    boolean slash(){
+        if(pos < lineEnd && bytes[pos] == '/'){
+            pos++;
+            return true;
+        }
+
+        return false;
+    }
+
+    float nextFloat(){
+        if(!hasNext()) throw new IllegalStateException("Expected a number at line " + line + ".");
+
+        boolean neg = false;
+        if(bytes[pos] == '-' || bytes[pos] == '+') neg = bytes[pos++] == '-';
+
+        long mantissa = 0;
+        int exp = 0, digits = 0;
+        boolean any = false;
+
+        while(pos < lineEnd && isDigit(bytes[pos])){
+            if(digits < 18){
+                mantissa = mantissa * 10 + (bytes[pos] - '0');
+                if(mantissa != 0) digits++;
+            }else{
+                exp++;
+            }
+
+            pos++;
+            any = true;
+        }
+
+        if(pos < lineEnd && bytes[pos] == '.'){
+            pos++;
+            while(pos < lineEnd && isDigit(bytes[pos])){
+                if(digits < 18){
+                    mantissa = mantissa * 10 + (bytes[pos] - '0');
+                    if(mantissa != 0) digits++;
+                    exp--;
+                }
+
+                pos++;
+                any = true;
+            }
+        }
+
+        if(!any) throw new IllegalStateException("Malformed number at line " + line + ".");
+
+        if(pos < lineEnd && (bytes[pos] == 'e' || bytes[pos] == 'E')){
+            pos++;
+            boolean expNeg = false;
+            if(pos < lineEnd && (bytes[pos] == '-' || bytes[pos] == '+')) expNeg = bytes[pos++] == '-';
+
+            int e = 0;
+            while(pos < lineEnd && isDigit(bytes[pos])) e = e * 10 + (bytes[pos++] - '0');
+            exp += expNeg ? -e : e;
+        }
+
+        double value = mantissa;
+        if(exp > 0){
+            value *= exp < pow10.length ? pow10[exp] : Math.pow(10d, exp);
+        }else if(exp < 0){
+            value /= -exp < pow10.length ? pow10[-exp] : Math.pow(10d, -exp);
+        }
+
+        return (float)(neg ? -value : value);
+    }
+
+    /** Reads an unsigned integer right at the current position, without skipping whitespace. */
+    int nextInt(int def){
+        if(pos >= lineEnd || !isDigit(bytes[pos])) return def;
+
+        int value = 0;
+        while(pos < lineEnd && isDigit(bytes[pos])) value = value * 10 + (bytes[pos++] - '0');
+        return value;
+    }
+
+    /** @return The rest of the line, trimmed. */
+    String rest(){
+        hasNext();
+
+        int end = lineEnd;
+        while(end > pos && isSpace(bytes[end - 1])) end--;
+
+        String out = new String(bytes, pos, end - pos, StandardCharsets.UTF_8);
+        pos = lineEnd;
+        return out;
+    }
+
+    int line(){
+        return line;
+    }
+
+    private static boolean isSpace(byte b){
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isDigit(byte b){
+        return b >= '0' && b <= '9';
+    }
+}
@@ -48,11 +48,9 @@ public class ObjPowerTurret extends PowerTurret{
             Draw.rect(baseRegion, x, y);
             Draw.color();
 
-            Cons<Vec3> distort = v -> {
-                if(getDistortion() >= 0.001f){
-                    v.add(Mathf.range(getDistortion()), Mathf.range(getDistortion()), Mathf.range(getDistortion()));
-                }
-            };
+            // Without distortion the model's cached transform can be reused
+            float distortion = getDistortion();
+            Cons<Vec3> distort = distortion < 0.001f ? null : v -> v.add(Mathf.range(distortion), Mathf.range(distortion), Mathf.range(distortion));
 
             object.draw(x, y, Mathf.cos(time, 76f, 120f), Mathf.sin(time, 76f, 120f), -rotation, distort);
             //model.draw(x, y, 0f, 0f, -rotation);
@@ -19,19 +19,17 @@ import mindustry.world.*;
 
 import static arc.Core.*;
 
-@SuppressWarnings("unchecked")
 public class Teleporter extends Block{
     //this class was made assuming only one instance. if more, static should be removed or further improvement.
     protected static final Color[] selection = new Color[]{Color.royal, Color.orange, Color.scarlet, Color.forest, Color.purple, Color.gold, Color.pink, Color.black};
-    protected static final ObjectSet<TeleporterBuild>[][] teleporters;
+    protected static final TeleporterChannel[][] teleporters;
     protected float powerUse = 2.5f;
     protected TextureRegion blankRegion, topRegion;
 
     static{
-        teleporters = new ObjectSet[Team.baseTeams.length][selection.length];
+        teleporters = new TeleporterChannel[Team.baseTeams.length][selection.length];
         for(int i = 0; i < Team.baseTeams.length; i++){
-            if(teleporters[i] == null) teleporters[i] = new ObjectSet[selection.length];
-            for(int j = 0; j < selection.length; j++) teleporters[i][j] = new ObjectSet<>();
+            for(int j = 0; j < selection.length; j++) teleporters[i][j] = new TeleporterChannel();
         }
     }
 
@@ -49,11 +47,13 @@ public class Teleporter extends Block{
             }
         });
         config(Integer.class, (TeleporterBuild build, Integer value) -> {
-            if(build.toggle != -1) teleporters[build.team.id][build.toggle].remove(build);
-            if(value != -1) teleporters[build.team.id][value].add(build);
             build.toggle = value;
+            build.updateChannel();
+        });
+        configClear((TeleporterBuild build) -> {
+            build.toggle = -1;
+            build.updateChannel();
         });
-        configClear((TeleporterBuild build) -> build.toggle = -1);
     }
 
     @Override
@@ -86,11 +86,61 @@ public class Teleporter extends Block{
         Draw.rect(blankRegion, req.drawx(), req.drawy());
     }
 
+    /**
+     * Teleporters of one team and color. Kept in an array where every teleporter knows its own index, so adding and
+     * removing are O(1) and links are cycled through without copying the channel.
+     */
+    protected static class TeleporterChannel{
+        protected TeleporterBuild[] items = new TeleporterBuild[8];
+        protected int size;
+
+        public void add(TeleporterBuild build){
+            if(build.channel == this) return;
+            if(build.channel != null) build.channel.remove(build);
+
+            if(size == items.length){
+                TeleporterBuild[] resized = new TeleporterBuild[size * 2];
+                System.arraycopy(items, 0, resized, 0, size);
+                items = resized;
+            }
+
+            items[size] = build;
+            build.channel = this;
+            build.channelIndex = size++;
+        }
+
+        public void remove(TeleporterBuild build){
+            if(build.channel != this) return;
+
+            TeleporterBuild last = items[--size];
+            items[build.channelIndex] = last;
+            last.channelIndex = build.channelIndex;
+            items[size] = null;
+
+            build.channel = null;
+            build.channelIndex = -1;
+        }
+
+        public void clear(){
+            for(int i = 0; i < size; i++){
+                items[i].channel = null;
+                items[i].channelIndex = -1;
+                items[i] = null;
+            }
+
+            size = 0;
+        }
+    }
+
     public class TeleporterBuild extends Building{
         protected int toggle = -1, entry;
         protected float duration;
         protected TeleporterBuild target;
-        protected Team previousTeam;
+
+        protected TeleporterChannel channel;
+        protected int channelIndex = -1;
+        /** {@link Time#time} at which every link was found full; links aren't searched again until the next update. */
+        protected float blockedTime = -1f;
 
         protected void onDuration(){
             if(duration < 0f) duration = 0f;
@@ -101,8 +151,16 @@ public class Teleporter extends Block{
             return duration > 0f;
         }
 
-        protected boolean isTeamChanged(){
-            return previousTeam != team;
+        /** Moves this teleporter to the channel of its team and color, which changes on configuring and team switches. */
+        protected void updateChannel(){
+            TeleporterChannel current = toggle == -1 ? null : teleporters[team.id][toggle];
+            if(current == channel) return;
+
+            if(current != null){
+                current.add(this);
+            }else{
+                channel.remove(this);
+            }
         }
 
         @Override
@@ -122,11 +180,7 @@ public class Teleporter extends Block{
         public void updateTile(){
             onDuration();
             if(items.any()) dump();
-            if(isTeamChanged() && toggle != -1){
-                teleporters[team.id][toggle].add(this);
-                teleporters[previousTeam.id][toggle].remove(this);
-                previousTeam = team;
-            }
+            updateChannel();
         }
 
         @Override
@@ -143,30 +197,28 @@ public class Teleporter extends Block{
             }
         }
 
-        protected TeleporterBuild findLink(int value){
-            ObjectSet<TeleporterBuild> teles = teleporters[team.id][value];
-            Seq<TeleporterBuild> entries = teles.toSeq();
-            if(entry >= entries.size) entry = 0;
-            if(entry == entries.size - 1){
-                TeleporterBuild other = teles.get(entries.get(entry));
-                if(other == this) entry = 0;
-            }
-            for(int i = entry, len = entries.size; i < len; i++){
-                TeleporterBuild other = teles.get(entries.get(i));
-                if(other != this){
-                    entry = i + 1;
-                    return other;
-                }
+        /** @return The next teleporter in the channel, round-robin, that still has room for the item. */
+        protected TeleporterBuild findLink(Item item){
+            if(channel == null || channel.size <= 1 || blockedTime == Time.time) return null;
+
+            TeleporterBuild[] links = channel.items;
+            for(int i = 0, size = channel.size; i < size; i++){
+                if(entry >= size) entry = 0;
+
+                TeleporterBuild other = links[entry++];
+                if(other != this && other.items.total() < other.getMaximumAccepted(item)) return other;
             }
+
+            blockedTime = Time.time;
             return null;
         }
 
         @Override
         public boolean acceptItem(Building source, Item item){
-            if(toggle == -1) return false;
-            target = findLink(toggle);
-            if(target == null) return false;
-            return source != this && consValid() && Mathf.zero(1 - efficiency()) && target.items.total() < target.getMaximumAccepted(item);
+            if(toggle == -1 || source == this || !consValid() || !Mathf.zero(1 - efficiency())) return false;
+
+            target = findLink(item);
+            return target != null;
         }
 
         @Override
@@ -177,17 +229,12 @@ public class Teleporter extends Block{
 
         @Override
         public void created(){
-            if(toggle != -1) teleporters[team.id][toggle].add(this);
-            previousTeam = team;
+            updateChannel();
         }
 
         @Override
         public void onRemoved(){
-            if(toggle != -1){
-                if(isTeamChanged()) teleporters[previousTeam.id][toggle].remove(this);
-                else teleporters[team.id][toggle].remove(this);
-            }
-            //unity.Unity.print(teleporters[team.id]);
+            if(channel != null) channel.remove(this);
         }
 
         @Override
@@ -2,18 +2,17 @@ package unity.world.blocks.exp;
 
 import arc.graphics.g2d.*;
 import arc.scene.ui.layout.*;
+import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
 import mindustry.entities.units.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
 import mindustry.ui.*;
-import mindustry.world.*;
 import unity.graphics.*;
 
 import static arc.math.geom.Geometry.*;
 import static mindustry.Vars.tilesize;
-import static mindustry.Vars.world;
 
 public class DiagonalTower extends ExpTower{
     public DiagonalTower(String name){
@@ -23,6 +22,7 @@ public class DiagonalTower extends ExpTower{
 
         config(Boolean.class, (DiagonalTowerBuild build, Boolean value) -> {
             build.diagonal = value;
+            ExpNetwork.invalidate();
         });
 
         config(Integer.class, (DiagonalTowerBuild build, Integer value) -> {
@@ -30,6 +30,7 @@ public class DiagonalTower extends ExpTower{
             value %= 8;
             build.diagonal = value % 2 == 1;
             build.rotation = value / 2;
+            ExpNetwork.invalidate();
         });
     }
 
@@ -89,21 +90,9 @@ public class DiagonalTower extends ExpTower{
         }
 
         @Override
-        public int shootExp(int amount){
-            if(!diagonal) return super.shootExp(amount);
-
-            for(int i = 1; i <= range; i++){
-                Tile t = world.tile(tile.x + d8edge(rotation).x * i, tile.y + d8edge(rotation).y * i);
-                if(t != null && t.build instanceof ExpHolder exp){
-                    int a = exp.handleTower(amount, laserRotation());
-                    if(a > 0){
-                        lastTarget = t;
-                        return a;
-                    }
-                }
-            }
-
-            return 0;
+        public Seq<Building> targets(){
+            if(!diagonal) return super.targets();
+            return targets.ray(tile, range, d8edge(rotation).x, d8edge(rotation).y);
         }
 
         public int rotint(){
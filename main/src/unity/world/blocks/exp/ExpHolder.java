@@ -1,5 +1,6 @@
 package unity.world.blocks.exp;
 
+import arc.func.*;
 import mindustry.gen.*;
 
 public interface ExpHolder {
@@ -31,4 +32,10 @@ public interface ExpHolder {
     }
 
     default void setHub(ExpHub.ExpHubBuild build){}
+
+    /**
+     * Calls {@code cons} with every building this one can directly pass exp to or take it from, to group it into an
+     * {@link ExpNetwork}. Call {@link ExpNetwork#invalidate()} when these change without a block being placed or removed.
+     */
+    default void expTargets(Cons<Building> cons){}
 }
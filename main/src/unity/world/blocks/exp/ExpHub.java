@@ -61,9 +61,11 @@ public class ExpHub extends ExpTank{
                 return;
             }
             entity.sanitize();
+            ExpNetwork.invalidate();
         });
         configClear((ExpHubBuild entity) -> {
             entity.links.clear();
+            ExpNetwork.invalidate();
         });
         config(Point2[].class, (ExpHubBuild tile, Point2[] value) -> {
             IntSeq old = new IntSeq(tile.links);
@@ -154,33 +156,38 @@ public class ExpHub extends ExpTank{
     }
 
     protected void getPotentialLinks(Tile tile, Team team, Cons<Building> others, boolean checkHub){
-        if(tile == null || tile.build == null) return;
-        tmpe.clear();
-        int linkRange = (int)(range / tilesize) + 1;
-        for(int x = tile.x - linkRange; x <= tile.x + linkRange; x++){
-            for(int y = tile.y - linkRange; y <= tile.y + linkRange; y++){
-                Building link = world.build(x, y);
-
-                if(link != null && link.team == team && link != tile.build && !tmpe.contains(link) && linkValid(tile.build, link, checkHub)){
-                    tmpe.add(link);
-                    others.get(link);
-                }
-            }
+        if(tile == null || !(tile.build instanceof ExpHubBuild build)) return;
+
+        for(Building link : build.potentialLinks.get(tile, (int)(range / tilesize) + 1)){
+            if(link.isValid() && link.team == team && linkValid(build, link, checkHub)) others.get(link);
         }
     }
 
     public class ExpHubBuild extends ExpTankBuild {
         public float reload = reloadTime;
         public IntSeq links = new IntSeq();
+        /** Hubbable buildings around this hub, rescanned only when blocks around it change. */
+        protected final ExpLinks potentialLinks = new ExpLinks(false, b -> b instanceof ExpHolder e && e.hubbable());
 
         public int takeAmount(int e, Building source){
             if(e <= 0) return 0;
             int prefa = Mathf.ceilPositive(ratio * e);
             int r = handleExp(prefa);
-            if(r > 0) transferEffect.at(x, y, 0f, Color.white, source);
+            if(r > 0){
+                transferEffect.at(x, y, 0f, Color.white, source);
+                ExpNetwork.transferred(this, r);
+            }
             return r;
         }
 
+        @Override
+        public void expTargets(Cons<Building> cons){
+            for(int i = 0; i < links.size; i++){
+                Building other = world.build(links.get(i));
+                if(other != null && other.pos() == links.get(i)) cons.get(other);
+            }
+        }
+
         public void sanitize(){
             for(int i = 0; i < links.size; i++){
                 Building b = world.build(links.get(i));
@@ -0,0 +1,159 @@
+package unity.world.blocks.exp;
+
+import arc.*;
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+import mindustry.world.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Caches the buildings around an exp block, or along its ray. Every {@link #chunkSize}-tile chunk of the world remembers
+ * when a block was last placed or removed in it, so a cache only rescans its tiles after a chunk it covers has changed.
+ * Buildings are cached regardless of team and may have been removed in between, so check both when using them.
+ */
+public class ExpLinks{
+    public static final int chunkSize = 8;
+    /** Extra tiles checked for changes around the range, as multiblocks are only reported at their center tile. */
+    private static final int pad = 4;
+
+    private static int[] stamps = {};
+    private static int chunksX, chunksY, stamp;
+    private static final IntSet found = new IntSet();
+
+    public final Seq<Building> buildings = new Seq<>();
+    /** For {@link #ray(Tile, int, int, int)}, the first tile each of the {@link #buildings} was hit at. */
+    public final Seq<Tile> tiles = new Seq<>();
+
+    private final boolean circle;
+    private final Boolf<Building> filter;
+    private int lastStamp = -1, lastX, lastY, lastRange, lastDx, lastDy;
+
+    static{
+        Events.on(WorldLoadEvent.class, e -> reset());
+        Events.on(TileChangeEvent.class, e -> changed(e.tile));
+    }
+
+    /**
+     * @param circle Whether to only cache buildings on tiles within a circle of the range, like {@code Geometry.circle()},
+     *               instead of a square. Unused by rays.
+     * @param filter Which buildings to cache; must only depend on things that don't change during a building's life.
+     */
+    public ExpLinks(boolean circle, Boolf<Building> filter){
+        this.circle = circle;
+        this.filter = filter;
+    }
+
+    /** @return The cached buildings within {@code range} tiles of the tile, rescanning them if anything changed. */
+    public Seq<Building> get(Tile tile, int range){
+        if(stale(tile, range, 0, 0)){
+            scan(tile.x, tile.y, range);
+            cached(tile, range, 0, 0);
+        }
+
+        return buildings;
+    }
+
+    /**
+     * @return The cached buildings on the {@code range} tiles stepping ({@code dx}, {@code dy}) away from the tile, in the
+     *         order they are hit, rescanning them if anything changed. Must not be mixed with {@link #get(Tile, int)}.
+     */
+    public Seq<Building> ray(Tile tile, int range, int dx, int dy){
+        if(stale(tile, range, dx, dy)){
+            scanRay(tile.x, tile.y, range, dx, dy);
+            cached(tile, range, dx, dy);
+        }
+
+        return buildings;
+    }
+
+    /** Forces a rescan on the next {@link #get(Tile, int)}. */
+    public void invalidate(){
+        lastStamp = -1;
+    }
+
+    private boolean stale(Tile tile, int range, int dx, int dy){
+        if(chunksX * chunkSize < world.width() || chunksY * chunkSize < world.height()) reset();
+
+        return
+            lastStamp == -1 || tile.x != lastX || tile.y != lastY || range != lastRange || dx != lastDx || dy != lastDy ||
+            changed(tile.x, tile.y, range);
+    }
+
+    private void cached(Tile tile, int range, int dx, int dy){
+        lastStamp = stamp;
+        lastX = tile.x;
+        lastY = tile.y;
+        lastRange = range;
+        lastDx = dx;
+        lastDy = dy;
+    }
+
+    private boolean changed(int x, int y, int range){
+        int r = range + pad;
+        int minX = Math.max((x - r) / chunkSize, 0), maxX = Math.min((x + r) / chunkSize, chunksX - 1);
+        int minY = Math.max((y - r) / chunkSize, 0), maxY = Math.min((y + r) / chunkSize, chunksY - 1);
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                if(stamps[cx + cy * chunksX] > lastStamp) return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void scan(int x, int y, int range){
+        buildings.clear();
+        found.clear();
+
+        Building self = world.build(x, y);
+        int r2 = range * range;
+
+        for(int dy = -range; dy <= range; dy++){
+            for(int dx = -range; dx <= range; dx++){
+                if(circle && dx * dx + dy * dy > r2) continue;
+
+                Building other = world.build(x + dx, y + dy);
+                if(other != null && other != self && filter.get(other) && found.add(other.pos())) buildings.add(other);
+            }
+        }
+    }
+
+    private void scanRay(int x, int y, int range, int dx, int dy){
+        buildings.clear();
+        tiles.clear();
+        found.clear();
+
+        Building self = world.build(x, y);
+        for(int i = 1; i <= range; i++){
+            Tile t = world.tile(x + dx * i, y + dy * i);
+            if(t == null) continue;
+
+            Building other = t.build;
+            if(other != null && other != self && filter.get(other) && found.add(other.pos())){
+                buildings.add(other);
+                tiles.add(t);
+            }
+        }
+    }
+
+    private static void reset(){
+        chunksX = Mathf.ceilPositive(world.width() / (float)chunkSize);
+        chunksY = Mathf.ceilPositive(world.height() / (float)chunkSize);
+
+        // Bumping the stamp outdates every cache made before this
+        stamps = new int[chunksX * chunksY];
+        Arrays.fill(stamps, ++stamp);
+    }
+
+    private static void changed(Tile tile){
+        int cx = tile.x / chunkSize, cy = tile.y / chunkSize;
+        if(cx < chunksX && cy < chunksY) stamps[cx + cy * chunksX] = ++stamp;
+    }
+}
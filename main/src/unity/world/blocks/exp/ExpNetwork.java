@@ -0,0 +1,261 @@
+package unity.world.blocks.exp;
+
+import arc.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.game.EventType.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * A group of exp blocks that pass exp to each other, through tower rays, node ranges, hub links or router sides, as
+ * given by {@link ExpHolder#expTargets(arc.func.Cons)}. Networks are only rebuilt after an exp block is placed or
+ * removed, or a link is {@link #invalidate() changed}; every tick, they only sum up the exp their members
+ * {@link #transferred(Building, int) reported} sending.
+ * <p>
+ * Networks where only towers send exp are also stepped here, unless {@link #solveFlow} is unset: every tower that is due
+ * fires in one pass, upstream towers first, so exp crosses a whole chain of towers in the tick it enters it instead of
+ * each tower shooting from within the shot it received. Towers fire under the same conditions as on their own, only at
+ * the start of the tick, and towers hit by an orb fire in the next pass rather than inside the orb's update. Networks
+ * with nodes, hubs or routers, or towers shooting in a cycle, keep every tower on its own timer.
+ */
+public class ExpNetwork{
+    /** Ticks over which the {@link #throughput} is measured. */
+    public static final float window = 60f;
+    /** Whether networks of only towers and blocks that just receive exp are stepped as a whole. */
+    public static boolean solveFlow = true;
+
+    private static final Seq<Building> all = new Seq<>();
+    private static final Seq<ExpNetwork> networks = new Seq<>();
+    private static IntMap<ExpNetwork> byPos = new IntMap<>(), lastByPos = new IntMap<>();
+    private static final IntMap<Building> found = new IntMap<>();
+    private static final IntMap<ExpNetwork> roots = new IntMap<>();
+    private static final IntIntMap parents = new IntIntMap();
+    /** Members that send exp without being towers, and the amount of towers shooting at each tower. */
+    private static final IntSet senders = new IntSet();
+    private static final IntIntMap shooters = new IntIntMap();
+    private static final Seq<ExpTower.ExpTowerBuild> ordered = new Seq<>();
+    private static boolean dirty = true;
+    private static float timer;
+
+    public final Seq<Building> members = new Seq<>();
+    /** Towers of this network, every one after the towers shooting at it; only used if {@link #solved}. */
+    public final Seq<ExpTower.ExpTowerBuild> towers = new Seq<>();
+    /** Whether every tower of this network is fired by {@link #solve()} if {@link #solveFlow} is set. */
+    public boolean solved;
+    /** Exp per second sent between members, measured over the last {@link #window}. */
+    public float throughput;
+    private int moved;
+
+    public static void init(){
+        // Only changes to exp blocks or blocks in a network can change one
+        Events.on(TileChangeEvent.class, e -> {
+            if(e.tile.build instanceof ExpHolder || byPos.containsKey(e.tile.pos())) dirty = true;
+        });
+        Events.on(BuildTeamChangeEvent.class, e -> {
+            if(e.build instanceof ExpHolder) dirty = true;
+        });
+        Events.on(WorldLoadEvent.class, e -> {
+            dirty = true;
+            timer = 0f;
+        });
+        Events.run(Trigger.update, () -> {
+            if(state.isPlaying()) update();
+        });
+    }
+
+    /** Registers a block that sends exp; call from {@code created()}. Blocks that only receive it are found through these. */
+    public static void add(Building build){
+        all.add(build);
+        dirty = true;
+    }
+
+    public static void remove(Building build){
+        all.remove(build, true);
+        dirty = true;
+    }
+
+    /** Rebuilds every network before they are next used, for links that changed without a tile changing. */
+    public static void invalidate(){
+        dirty = true;
+    }
+
+    /** @return The network the building belongs to, or {@code null} if it isn't part of one. */
+    public static @Nullable ExpNetwork of(Building build){
+        if(dirty) rebuild();
+        return byPos.get(build.pos());
+    }
+
+    /** @return Whether the tower is fired by its network, rather than firing on its own. */
+    public static boolean solved(Building build){
+        if(!solveFlow) return false;
+
+        // Not rebuilt here, as this is called while networks are being solved
+        ExpNetwork network = byPos.get(build.pos());
+        return network != null && network.solved;
+    }
+
+    /** Records exp a member sent to another block, towards its network's {@link #throughput}. */
+    public static void transferred(Building source, int amount){
+        if(amount <= 0) return;
+
+        ExpNetwork network = byPos.get(source.pos());
+        if(network != null) network.moved += amount;
+    }
+
+    /** @return The exp held by every member together. */
+    public int exp(){
+        int exp = 0;
+        for(Building b : members){
+            if(b.isValid() && b instanceof ExpHolder e) exp += e.getExp();
+        }
+
+        return exp;
+    }
+
+    public int size(){
+        return members.size;
+    }
+
+    private static void update(){
+        if(dirty) rebuild();
+
+        if(solveFlow){
+            for(ExpNetwork network : networks){
+                if(network.solved) network.solve();
+            }
+        }
+
+        if((timer += Time.delta) >= window){
+            for(ExpNetwork network : networks){
+                network.throughput = network.moved * 60f / timer;
+                network.moved = 0;
+            }
+
+            timer = 0f;
+        }
+    }
+
+    private static void rebuild(){
+        dirty = false;
+
+        // Blocks of a previous world never got removed
+        all.removeAll(b -> b.dead || world.build(b.tileX(), b.tileY()) != b);
+
+        found.clear();
+        parents.clear();
+        senders.clear();
+        shooters.clear();
+        for(Building b : all){
+            link(b, b);
+
+            boolean tower = b instanceof ExpTower.ExpTowerBuild;
+            ((ExpHolder)b).expTargets(other -> {
+                if(!other.isValid()) return;
+
+                link(b, other);
+                if(!tower){
+                    senders.add(b.pos());
+                }else if(other instanceof ExpTower.ExpTowerBuild){
+                    shooters.put(other.pos(), shooters.get(other.pos(), 0) + 1);
+                }
+            });
+        }
+
+        IntMap<ExpNetwork> last = byPos;
+        byPos = lastByPos;
+        lastByPos = last;
+
+        byPos.clear();
+        roots.clear();
+        networks.clear();
+
+        for(var entry : found){
+            int root = root(entry.key);
+
+            ExpNetwork network = roots.get(root);
+            if(network == null){
+                roots.put(root, network = new ExpNetwork());
+                networks.add(network);
+            }
+
+            // Carry the measurement over from the network the first member was in, so placing blocks doesn't reset it
+            ExpNetwork old = last.get(entry.key);
+            if(network.members.isEmpty() && old != null){
+                network.throughput = old.throughput;
+                network.moved = old.moved;
+            }
+
+            network.members.add(entry.value);
+            byPos.put(entry.key, network);
+        }
+
+        last.clear();
+        order();
+    }
+
+    /** Sorts every network's towers so towers come after the ones shooting at them, and finds the networks to solve. */
+    private static void order(){
+        ordered.clear();
+        for(Building b : all){
+            if(b instanceof ExpTower.ExpTowerBuild t && shooters.get(t.pos(), 0) == 0) ordered.add(t);
+        }
+
+        // Towers on a cycle never run out of shooters, so they're left out
+        for(int i = 0; i < ordered.size; i++){
+            ExpTower.ExpTowerBuild t = ordered.get(i);
+            byPos.get(t.pos()).towers.add(t);
+
+            t.expTargets(other -> {
+                if(!other.isValid() || !(other instanceof ExpTower.ExpTowerBuild o)) return;
+
+                int left = shooters.get(o.pos(), 0) - 1;
+                shooters.put(o.pos(), left);
+                if(left == 0) ordered.add(o);
+            });
+        }
+
+        ordered.clear();
+
+        for(ExpNetwork network : networks){
+            int towers = 0;
+            network.solved = true;
+
+            for(Building b : network.members){
+                if(b instanceof ExpTower.ExpTowerBuild) towers++;
+                if(senders.contains(b.pos())) network.solved = false;
+            }
+
+            if(towers == 0 || towers != network.towers.size) network.solved = false;
+        }
+    }
+
+    /** Fires every tower that is due, upstream towers first. */
+    private void solve(){
+        for(ExpTower.ExpTowerBuild t : towers){
+            if(t.isValid()) t.flow();
+        }
+    }
+
+    private static void link(Building a, Building b){
+        found.put(a.pos(), a);
+        found.put(b.pos(), b);
+
+        int ra = root(a.pos()), rb = root(b.pos());
+        if(ra != rb) parents.put(ra, rb);
+    }
+
+    private static int root(int pos){
+        int root = pos;
+        for(int p; (p = parents.get(root, root)) != root;) root = p;
+
+        while(pos != root){
+            int p = parents.get(pos, pos);
+            parents.put(pos, root);
+            pos = p;
+        }
+
+        return root;
+    }
+}
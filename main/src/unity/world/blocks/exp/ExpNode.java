@@ -1,6 +1,7 @@
 package unity.world.blocks.exp;
 
 import arc.*;
+import arc.func.*;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
@@ -72,6 +73,8 @@ public class ExpNode extends ExpTank {
         public float reload = 0;
         public float warmup = 0f;
         public boolean shooting = false;
+        /** Exp receivers in range, rescanned only when blocks around this node change. */
+        protected final ExpLinks targets = new ExpLinks(true, b -> b instanceof ExpHolder && b instanceof LevelHolder);
 
         @Override
         public void updateTile(){
@@ -92,24 +95,27 @@ public class ExpNode extends ExpTank {
             }
         }
 
+        @Override
+        public void expTargets(Cons<Building> cons){
+            for(Building other : targets.get(tile, range)){
+                if(other.team == team && !((ExpHolder)other).hubbable()) cons.get(other);
+            }
+        }
+
         public void shoot(){
             tmps.clear();
             tmpm = 0; //max exp
-            Geometry.circle(tile.x, tile.y, range, (x, y) -> {
-                Building other = world.build(x, y);
-                /*if(other != null && other != this && other.team == team && other instanceof ExpHolder exp && !exp.hubbable() && other instanceof LevelHolder && (tmpm == -1 ||exp.getExp() <= tmpm)){
-                    if(exp.getExp() < tmpm) tmps.clear(); //previous blocks are all invalid
-                    tmps.add(exp);
-                    tmpm = exp.getExp();
-                }*/
-                if(other != null && other != this && other.team == team && other instanceof ExpHolder exp && !exp.hubbable() && other instanceof LevelHolder){
+            for(Building other : targets.get(tile, range)){
+                if(other.isValid() && other.team == team && other instanceof ExpHolder exp && !exp.hubbable()){
                     tmps.add(exp);
                     if(exp.getExp() + 1 > tmpm) tmpm = exp.getExp() + 1;
                 }
-            });
+            }
 
             if(tmps.isEmpty()) return;
-            //int amount = Mathf.ceilPositive(exp / (float)tmps.size);
+            //lowest exp first, so they are the ones served if this node runs dry
+            tmps.sort(e -> e.getExp());
+
             float scoresum = 0;
             for(ExpHolder e : tmps){
                 float score = (1f - (e.getExp() + 1) / (float)(tmpm));
@@ -125,6 +131,8 @@ public class ExpNode extends ExpTank {
                 int a = e.handleExp(amount);
                 exp -= a;
             }
+
+            ExpNetwork.transferred(this, expm - exp);
         }
 
         @Override
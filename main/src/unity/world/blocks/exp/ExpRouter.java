@@ -1,5 +1,6 @@
 package unity.world.blocks.exp;
 
+import arc.func.*;
 import arc.math.*;
 import arc.util.*;
 import arc.util.io.*;
@@ -37,6 +38,25 @@ public class ExpRouter extends Junction {
             reload += edelta();
         }
 
+        @Override
+        public void created(){
+            super.created();
+            ExpNetwork.add(this);
+        }
+
+        @Override
+        public void onRemoved(){
+            super.onRemoved();
+            ExpNetwork.remove(this);
+        }
+
+        @Override
+        public void expTargets(Cons<Building> cons){
+            for(Building other : proximity){
+                if(other instanceof ExpHolder) cons.get(other);
+            }
+        }
+
         @Override
         public int getExp(){
             return 0;
@@ -95,7 +115,10 @@ public class ExpRouter extends Junction {
             Tile t = tile.nearby(dir);
             if(t == null) return false;
             if(t.solid()){
-                if(t.build instanceof ExpHolder exp && exp.acceptOrb() && exp.handleOrb(orbExp)) return true;
+                if(t.build instanceof ExpHolder exp && exp.acceptOrb() && exp.handleOrb(orbExp)){
+                    ExpNetwork.transferred(this, orbExp);
+                    return true;
+                }
                 else return t.block() instanceof Incinerator;
             }
             else{
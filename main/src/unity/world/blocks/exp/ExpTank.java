@@ -71,6 +71,18 @@ public class ExpTank extends Block {
             }
         }
 
+        @Override
+        public void created(){
+            super.created();
+            ExpNetwork.add(this);
+        }
+
+        @Override
+        public void onRemoved(){
+            super.onRemoved();
+            ExpNetwork.remove(this);
+        }
+
         public float expf(){
             return exp / (float)expCapacity;
         }
@@ -2,8 +2,10 @@ package unity.world.blocks.exp;
 
 import arc.*;
 import arc.audio.*;
+import arc.func.*;
 import arc.graphics.g2d.*;
 import arc.math.*;
+import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
 import mindustry.entities.units.*;
@@ -93,8 +95,12 @@ public class ExpTower extends ExpTank {
     public class ExpTowerBuild extends ExpTankBuild {
         public float reload = 0f;
         protected Tile lastTarget = null;
+        /** Exp holders along the laser, rescanned only when blocks around this tower change. */
+        protected final ExpLinks targets = new ExpLinks(false, b -> b instanceof ExpHolder);
         private float heat = 0f;
         private int lastSent = 0;
+        /** Whether this tower was shot at since it last fired, for {@link ExpNetwork#solved(Building) solved} towers. */
+        private boolean forward = false;
 
         @Override
         public int unloadExp(int amount){
@@ -105,7 +111,13 @@ public class ExpTower extends ExpTank {
         public int handleTower(int amount, float angle){
             if(buffer && exp > 0) return 0;
             int a = handleExp(amount);
-            if(a > 0 && reload >= reloadTime && !Angles.near(angle + 180, laserRotation(), 1f)) shoot();
+            if(a > 0 && !Angles.near(angle + 180, laserRotation(), 1f)){
+                if(ExpNetwork.solved(this)){
+                    forward = true;
+                }else if(reload >= reloadTime){
+                    shoot();
+                }
+            }
             return a;
         }
 
@@ -113,7 +125,7 @@ public class ExpTower extends ExpTank {
         public boolean handleOrb(int orbExp){
             int a = handleExp(orbExp);
             if(a <= 0) return false;
-            if(reload >= manualReload) shoot();
+            if(reload >= manualReload && !ExpNetwork.solved(this)) shoot();
             return true;
         }
 
@@ -125,7 +137,16 @@ public class ExpTower extends ExpTank {
             else reload = 0;
             if(heat > 0) heat -= delta();
 
-            if(reload >= manualReload && exp > 0) shoot();
+            if(reload >= manualReload && exp > 0 && !ExpNetwork.solved(this)) shoot();
+        }
+
+        /**
+         * Fires if this tower would have by now on its own, called by its network in one pass for every tower, after the
+         * towers shooting at it.
+         */
+        public void flow(){
+            if(exp > 0 && (reload >= manualReload || (forward && reload >= reloadTime))) shoot();
+            forward = false;
         }
 
         @Override
@@ -162,6 +183,16 @@ public class ExpTower extends ExpTank {
             return rotdeg();
         }
 
+        /** @return The exp holders this tower can shoot at, nearest first; their tiles are in {@code targets.tiles}. */
+        public Seq<Building> targets(){
+            return targets.ray(tile, range, d4x(rotation), d4y(rotation));
+        }
+
+        @Override
+        public void expTargets(Cons<Building> cons){
+            targets().each(cons);
+        }
+
         public void drawLaser(){
             if(heat <= 0 || lastSent == 0 || lastTarget == null) return;
             Draw.z(Layer.bullet + 1f);
@@ -188,19 +219,21 @@ public class ExpTower extends ExpTank {
                 exp -= a;
                 heat = manualReload;
                 lastSent = a;
+                ExpNetwork.transferred(this, a);
                 shootSound.at(x, y, 1f, shootSoundVolume);
             }
         }
 
         public int shootExp(int amount){
-            for(int i = 1; i <= range; i++){
-                Tile t = world.tile(tile.x + d4x(rotation) * i, tile.y + d4y(rotation) * i);
-                if(t != null && t.build instanceof ExpHolder exp){
-                    int a = exp.handleTower(amount, laserRotation());
-                    if(a > 0){
-                        lastTarget = t;
-                        return a;
-                    }
+            Seq<Building> hit = targets();
+            for(int i = 0; i < hit.size; i++){
+                Building other = hit.get(i);
+                if(!other.isValid()) continue;
+
+                int a = ((ExpHolder)other).handleTower(amount, laserRotation());
+                if(a > 0){
+                    lastTarget = targets.tiles.get(i);
+                    return a;
                 }
             }
 
@@ -49,7 +49,7 @@ public class HandCrank extends GraphBlock{
             GraphTorqueModule<?> tGraph = torque();
             float ratio = (20f - tGraph.getNetwork().lastVelocity) / 20f;
 
-            tGraph.force = ratio * force;
+            tGraph.setForce(ratio * force);
             cooldown += Time.delta;
             force *= 0.8f;
         }
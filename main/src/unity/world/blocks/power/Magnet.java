@@ -5,7 +5,7 @@ import arc.math.*;
 import arc.math.geom.*;
 import arc.util.*;
 import mindustry.gen.*;
-import unity.entities.ExpOrbs.*;
+import unity.entities.*;
 import unity.world.blocks.*;
 
 import static arc.Core.*;
@@ -44,21 +44,29 @@ public class Magnet extends GraphBlock{
             float f = flux().flux();
             
             Groups.bullet.intersect(x - f * 2f, y - f * 2f, f * 4f, f * 4f, bullet -> {
-                if(bullet.type == null) return;
-                
-                boolean isOrb = bullet.type instanceof ExpOrb;
-                
-                if(bullet.type.hittable || isOrb){
-                    float dx = bullet.x - x;
-                    float dy = bullet.y - y;
-                    float dis = Mathf.sqrt(dx * dx + dy * dy);
-                    
-                    if(dis < f * 2f){
-                        float mul = 1f / Math.max(1f, bullet.type.estimateDPS() / 10f) * (isOrb ? 5f : 1f) * Time.delta * 0.1f * f / (8f + dis);//invmass*forcemag
-                        
-                        bullet.vel.x += mul * Geometry.d4x(rotation);
-                        bullet.vel.y += mul * Geometry.d4y(rotation);
-                    }
+                if(bullet.type == null || !bullet.type.hittable) return;
+
+                float dx = bullet.x - x;
+                float dy = bullet.y - y;
+                float dis = Mathf.sqrt(dx * dx + dy * dy);
+
+                if(dis < f * 2f){
+                    float mul = 1f / Math.max(1f, bullet.type.estimateDPS() / 10f) * Time.delta * 0.1f * f / (8f + dis);//invmass*forcemag
+
+                    bullet.vel.x += mul * Geometry.d4x(rotation);
+                    bullet.vel.y += mul * Geometry.d4y(rotation);
+                }
+            });
+
+            ExpOrbs.intersect(x - f * 2f, y - f * 2f, f * 4f, f * 4f, i -> {
+                float dx = ExpOrbs.x(i) - x;
+                float dy = ExpOrbs.y(i) - y;
+                float dis = Mathf.sqrt(dx * dx + dy * dy);
+
+                if(dis < f * 2f){
+                    float mul = 5f * Time.delta * 0.1f * f / (8f + dis);
+
+                    ExpOrbs.push(i, mul * Geometry.d4x(rotation), mul * Geometry.d4y(rotation));
                 }
             });
         }
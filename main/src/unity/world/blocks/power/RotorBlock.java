@@ -165,9 +165,9 @@ public class RotorBlock extends PowerGenerator implements GraphBlockBase{
                 () -> productionEfficiency
             )).growX().row();
             table.add(new Bar(
-                () -> bundle.get("stat.unity.torque") + ": " + Strings.fixed(tGraph.force, 1) + "/" + Strings.fixed(mTorque, 1),
+                () -> bundle.get("stat.unity.torque") + ": " + Strings.fixed(tGraph.force(), 1) + "/" + Strings.fixed(mTorque, 1),
                 () -> Pal.darkishGray,
-                () -> tGraph.force / mTorque
+                () -> tGraph.force() / mTorque
             )).growX().row();
             table.add(new Bar(
                 () -> bundle.format("stat.unity.maxspeed") + ":" + Strings.fixed(topSpeed / 6f, 1) + "r/s",
@@ -188,7 +188,7 @@ public class RotorBlock extends PowerGenerator implements GraphBlockBase{
             productionEfficiency = Mathf.clamp(rotNeg * breakEven, 0f, 2f);
             productionEfficiency *= rotPowerEfficiency;
 
-            tGraph.force = flux * baseTorque * (efficiency() - rotNeg) * delta();
+            tGraph.setForce(flux * baseTorque * (efficiency() - rotNeg) * delta());
         }
 
         @Override
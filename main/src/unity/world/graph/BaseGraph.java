@@ -4,19 +4,24 @@ import arc.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import mindustry.world.*;
+import unity.*;
 import unity.world.blocks.GraphBlockBase.*;
 import unity.world.graphs.*;
 import unity.world.meta.*;
 import unity.world.modules.*;
 
-import java.util.*;
-
 public abstract class BaseGraph<M extends GraphModule<? extends Graph, M, G>, G extends BaseGraph<M, G>>{
     public final OrderedSet<M> connected = new OrderedSet<>();
     public final int id;
     private static int lastId;
     long lastFrameUpdated;
-    M target;
+    boolean splitPending, layoutDirty = true, sleeping;
+
+    //scratch space for resolveSplit(), graphs are only ever restructured on the main thread
+    private static final ObjectIntMap<?> splitIndices = new ObjectIntMap<>();
+    private static final Seq<?> splitModules = new Seq<>();
+    private static final IntMap<?> splitGraphs = new IntMap<>();
+    private static int[] splitParents = new int[16];
 
     {
         id = lastId++;
@@ -26,31 +31,85 @@ public abstract class BaseGraph<M extends GraphModule<? extends Graph, M, G>, G
 
     public void init(M module){
         connected.add(module);
-        updateOnGraphChanged();
+        graphChanged();
         addMergeStats(module);
     }
 
     public abstract G create(/*building*/);
 
-    G copyGraph(M module/*building*/){
-        G copygraph = create();
-        copygraph.init(module);
-        copygraph.copyGraphStatsFrom((G)this);
-        return copygraph;
-    }
-
     abstract void copyGraphStatsFrom(G graph);
 
     public void update(){
         long frameId = Core.graphics.getFrameId();
         if(frameId == lastFrameUpdated) return;
         lastFrameUpdated = frameId;
+        if(Unity.graphs != null && Unity.graphs.schedule(this)) return;
+
+        if(!alive()) return;
+        prepareStep();
+        if(alive()) step();
+    }
+
+    /** Applies pending structural changes. Must be called on the main thread. */
+    public void prepareStep(){
+        if(splitPending) resolveSplit();
+        ensureLayout();
+    }
+
+    /** Solves this network for one tick. Only reads and writes this network and its own modules. */
+    public void step(){
+        if(sleeping) return;
         updateDirect();
         updateGraph();
+        sleeping = canSleep();
+    }
+
+    /** @return Whether the last step left the network in a state that stays the same until an input changes. */
+    boolean canSleep(){
+        return false;
+    }
+
+    /** Resumes stepping a sleeping network. Modules call this when their force, inertia, friction or flux changes. */
+    public void wake(){
+        sleeping = false;
+    }
+
+    public boolean sleeping(){
+        return sleeping;
+    }
+
+    /** @return Whether {@link #step()} may run concurrently with other networks' steps. */
+    public boolean parallelStep(){
+        return true;
+    }
+
+    /** @return Whether this network still owns its modules, i.e. it was neither split nor merged into another. */
+    public boolean alive(){
+        return !connected.isEmpty() && connected.orderedItems().first().getPortOfNetwork((G)this) != -1;
     }
 
     abstract void updateOnGraphChanged();
 
+    void graphChanged(){
+        topologyChanged();
+        updateOnGraphChanged();
+    }
+
+    /** Called whenever modules or their links change; graphs holding packed solver state rebuild it lazily. */
+    public void topologyChanged(){
+        layoutDirty = true;
+        sleeping = false;
+    }
+
+    void ensureLayout(){
+        if(layoutDirty){
+            layoutDirty = false;
+            rebuildLayout();
+        }
+    }
+
+    void rebuildLayout(){}
+
     abstract void updateGraph();
 
     abstract void updateDirect();
@@ -61,7 +120,7 @@ public abstract class BaseGraph<M extends GraphModule<? extends Graph, M, G>, G
 
     void addBuilding(M module/*building*/, int connectIndex){
         connected.add(module);
-        updateOnGraphChanged();
+        graphChanged();
         module.setNetworkOfPort(connectIndex, (G)this);
         addMergeStats(module);
     }
@@ -77,11 +136,15 @@ public abstract class BaseGraph<M extends GraphModule<? extends Graph, M, G>, G
         updateDirect();
         graph.updateDirect();
         mergeStats(graph);
+        splitPending |= graph.splitPending;
         for(var module : graph.connected){
             if(!connected.contains(module) && module.replaceNetwork(graph, (G)this))
                 connected.add(module);
         }
-        updateOnGraphChanged();
+        //the absorbed graph may still be scheduled this frame; leave it nothing to restructure
+        graph.connected.clear();
+        graph.splitPending = false;
+        graphChanged();
     }
 
     abstract void mergeStats(G graph);
@@ -90,79 +153,95 @@ public abstract class BaseGraph<M extends GraphModule<? extends Graph, M, G>, G
         connected.clear();
     }
 
-    boolean isAtriculationPoint(M module/*building*/){
-        Seq<M> neighs = new Seq<>(4);
-        module.eachNeighbour(n -> {
-            if(module.getNetworkOfPort(n.value) == this) neighs.add(n.key);
-        });
-        int neighbourIndex = 1;
-        if(neighbourIndex >= neighs.size) target = null;
-        else target = neighs.get(neighbourIndex);
-        PQueue<M> front = new PQueue<>();
-        front.comparator = (a, b) -> {
-            if(target == null) return 99999999;
-            return a.hueristic(target.parent.build) - b.hueristic(target.parent.build);
-        };
-        front.add(neighs.get(0).d(0));
-        int giveUp = connected.size;
-        ObjectSet<M> visited = ObjectSet.with(module);
-        while(!front.empty()){
-            M current = front.poll();
-            if(current == target){
-                neighbourIndex++;
-                if(neighbourIndex == neighs.size) return false;
-                target = neighs.get(neighbourIndex);
-                while(target == null || visited.contains(target)){
-                    neighbourIndex++;
-                    if(neighbourIndex == neighs.size) return false;
-                    target = neighs.get(neighbourIndex);
-                }
-                front.comparator = Comparator.comparingInt(a -> a.hueristic(target.parent.build));
-            }
-            visited.add(current);
-            current.eachNeighbour(n -> {
-                if(visited.contains(n.key)) return;
-                if(current.getNetworkOfPort(n.value) == this) front.add(n.key.d(current.d + 4));
-            });
-            if(--giveUp < 0) return true;
-        }
-        return true;
-    }
-
     public void remove(M module/*building*/){
         if(!connected.contains(module)) return;
         int c = module.countNeighbours();
         if(c == 0) return;
-        if(c == 1 || !isAtriculationPoint(module)){
-            connected.remove(module);
-            module.eachNeighbourKey(n -> n.removeNeighbour(module));
-            updateOnGraphChanged();
-            return;
+        connected.remove(module);
+        Seq<M> neighs = module.neighbourKeys();
+        for(int i = 0, len = neighs.size; i < len; i++) neighs.get(i).removeNeighbour(module);
+        //only a module joining two or more others can cut the network; defer the check to the next update
+        if(c > 1) splitPending = true;
+        graphChanged();
+    }
+
+    /**
+     * Labels the remaining modules with a union-find over their neighbour links and, if the network has been cut
+     * into several pieces, hands every piece a fresh graph. Runs at most once per frame, no matter how many modules
+     * were removed since the last update.
+     */
+    void resolveSplit(){
+        splitPending = false;
+        int size = connected.size;
+        if(size <= 1) return;
+
+        Seq<M> modules = connected.orderedItems();
+        ObjectIntMap<M> indices = (ObjectIntMap<M>)splitIndices;
+        indices.clear();
+        if(splitParents.length < size) splitParents = new int[Math.max(size, splitParents.length * 2)];
+        int[] parents = splitParents;
+
+        for(int i = 0; i < size; i++){
+            indices.put(modules.get(i), i);
+            parents[i] = i;
         }
-        killGraph();
-        ObjectSet<G> networksAdded = new ObjectSet<>(c);
-        module.eachNeighbour(n -> {
-            G copyNet = module.getNetworkOfPort(n.value);
-            M temp = n.key;
-            if(copyNet == this){
-                M selfref = temp.getNeighbour(module);
-                if(selfref == null) return;
-                temp.setNetworkOfPort(temp.portIndex(selfref), copyNet.copyGraph(temp));
+
+        int components = size;
+        for(int i = 0; i < size; i++){
+            M module = modules.get(i);
+            Seq<M> neighs = module.neighbourKeys();
+            for(int n = 0, len = neighs.size; n < len; n++){
+                M other = neighs.get(n);
+                if(module.getNetworkOfPort(module.portIndex(other)) != this) continue;
+                int j = indices.get(other, -1);
+                if(j != -1 && union(parents, i, j)) components--;
             }
-        });
-        module.eachNeighbour(n -> {
-            if(module.getNetworkOfPort(n.value) == this){
-                M temp = n.key;
-                M selfref = temp.getNeighbour(module);
-                if(selfref == null) return;
-                G neiNet = temp.getNetworkOfPort(temp.portIndex(selfref));
-                if(!networksAdded.contains(neiNet)){
-                    networksAdded.add(neiNet);
-                    neiNet.rebuildGraphIndex(temp, temp.portIndex(selfref));
+        }
+
+        if(components > 1){
+            Seq<M> snapshot = (Seq<M>)splitModules;
+            snapshot.clear();
+            snapshot.addAll(modules);
+            IntMap<G> graphs = (IntMap<G>)splitGraphs;
+            graphs.clear();
+            killGraph();
+
+            for(int i = 0; i < size; i++){
+                M module = snapshot.get(i);
+                int root = find(parents, i);
+                G graph = graphs.get(root);
+                if(graph == null){
+                    graph = create();
+                    graph.copyGraphStatsFrom((G)this);
+                    graphs.put(root, graph);
                 }
+                module.replaceNetwork((G)this, graph);
+                graph.connected.add(module);
+                graph.addMergeStats(module);
             }
-        });
-        module.replaceNetwork((G)this, null);
+            for(var graph : graphs.values()) graph.graphChanged();
+
+            snapshot.clear();
+            graphs.clear();
+        }
+        indices.clear();
+    }
+
+    static int find(int[] parents, int i){
+        while(parents[i] != i){
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    static boolean union(int[] parents, int a, int b){
+        int ra = find(parents, a), rb = find(parents, b);
+        if(ra == rb) return false;
+        //keep the lower index as root so fragments come out in connection order
+        if(ra < rb) parents[rb] = ra;
+        else parents[ra] = rb;
+        return true;
     }
 
     public void rebuildGraph(M module/*building*/){
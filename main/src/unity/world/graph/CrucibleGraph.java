@@ -98,6 +98,12 @@ public class CrucibleGraph extends BaseGraph<GraphCrucibleModule, CrucibleGraph>
     @Override
     void copyGraphStatsFrom(CrucibleGraph graph){}
 
+    @Override
+    public boolean parallelStep(){
+        //melting reads the temperature of heat modules that belong to other networks
+        return false;
+    }
+
     @Override
     void updateOnGraphChanged(){
         totalCapacity = 0f;
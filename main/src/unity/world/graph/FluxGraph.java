@@ -4,6 +4,7 @@ import unity.world.modules.*;
 
 public class FluxGraph extends BaseGraph<GraphFluxModule, FluxGraph>{
     float flux, fluxTotal;
+    boolean fluxChanged;
 
     @Override
     public FluxGraph create(){
@@ -18,6 +19,7 @@ public class FluxGraph extends BaseGraph<GraphFluxModule, FluxGraph>{
 
     @Override
     void updateGraph(){
+        float prevFlux = flux;
         fluxTotal = 0f;
         int totalMags = 0;
         for(var module : connected){//building
@@ -27,6 +29,12 @@ public class FluxGraph extends BaseGraph<GraphFluxModule, FluxGraph>{
         float weight = 1f;
         if(totalMags > 1) weight = (float)(1.5 * totalMags / (Math.log10(totalMags) + 1) - 0.5);
         flux = fluxTotal / weight;
+        fluxChanged = flux != prevFlux;
+    }
+
+    @Override
+    boolean canSleep(){
+        return !fluxChanged;
     }
 
     @Override
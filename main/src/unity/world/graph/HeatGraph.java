@@ -1,11 +1,54 @@
 package unity.world.graph;
 
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import unity.world.graphs.*;
 import unity.world.modules.*;
 
 //heatGraph
 public class HeatGraph extends BaseGraph<GraphHeatModule, HeatGraph>{
+    public static final float ambientTemp = 293.15f;
+    /** Networks at least this large use {@link HeatSolveMode#implicit} when set to {@link HeatSolveMode#auto}. */
+    public static int implicitThreshold = 64;
+    /**
+     * Implicit steps iterate until the RMS residual is below this many kelvin, or {@link #implicitMaxIterations} is reached.
+     * An unconverged solve is picked up again next frame, warm-started from where it stopped.
+     */
+    public static float implicitTolerance = 0.0001f;
+    public static int implicitMaxIterations = 64;
+    /** How quickly implicit steps follow changes in the heat added from outside the solver, per step. */
+    public static float sourceSmoothing = 0.25f;
+    /**
+     * A network is considered settled once every module is within this many kelvin of the temperature its neighbours and
+     * the ambient would settle it at, i.e. once no module has any meaningful net heat flux left.
+     */
+    public static float steadyEpsilon = 0.001f;
+
+    /** Derived from the {@link GraphHeat#solveMode} of the modules whenever the layout is rebuilt. */
+    public HeatSolveMode mode = HeatSolveMode.explicit;
+    /** Whether the last step was skipped because nothing changed since the network settled. */
+    public boolean steady;
+
     float lastHeatFlow;
 
+    //packed solver layout, rebuilt lazily after updateOnGraphChanged()
+    int size;
+    GraphHeatModule[] modules = {};
+    float[] temps = {}, invCapacity = {}, conductivity = {}, radiativity = {}, maxDelta = {}, settledHeat = {};
+    /** CSR adjacency; the neighbours of module {@code i} are {@code links[linkStart[i] .. linkStart[i + 1]]}. */
+    int[] linkStart = {0}, links = {};
+    /** Whether {@link #settledHeat} holds the module heat left by a step that barely changed anything. */
+    boolean settled;
+    /** Whether {@link #settledHeat} holds the module heat left by the last step of this layout at all. */
+    boolean committed;
+
+    //implicit solver state; sources are the smoothed heat added from outside per step, in explicit-step units
+    float[] sources = {};
+    double[] solution = {}, residuals = {}, directions = {}, products = {};
+
+    private static final ObjectIntMap<GraphHeatModule> indices = new ObjectIntMap<>();
+
     @Override
     public HeatGraph create(/*building*/){
         return new HeatGraph();
@@ -13,19 +56,254 @@ public class HeatGraph extends BaseGraph<GraphHeatModule, HeatGraph>{
 
     @Override
     void copyGraphStatsFrom(HeatGraph graph){
-        //TODO ??? why lastVelocity
+        mode = graph.mode;
     }
 
     @Override
     void updateOnGraphChanged(){}
 
+    @Override
+    public void topologyChanged(){
+        super.topologyChanged();
+        settled = false;
+        committed = false;
+    }
+
+    @Override
+    void rebuildLayout(){
+        Seq<GraphHeatModule> all = connected.orderedItems();
+        size = all.size;
+        if(modules.length < size){
+            int cap = Math.max(size, modules.length * 2);
+            modules = new GraphHeatModule[cap];
+            temps = new float[cap];
+            invCapacity = new float[cap];
+            conductivity = new float[cap];
+            radiativity = new float[cap];
+            maxDelta = new float[cap];
+            settledHeat = new float[cap];
+            sources = new float[cap];
+            solution = new double[cap];
+            residuals = new double[cap];
+            directions = new double[cap];
+            products = new double[cap];
+            linkStart = new int[cap + 1];
+        }
+
+        indices.clear();
+        int linkCount = 0;
+        HeatSolveMode mode = HeatSolveMode.explicit;
+        for(int i = 0; i < size; i++){
+            GraphHeatModule module = all.get(i);
+            GraphHeat stats = module.graph;
+
+            modules[i] = module;
+            indices.put(module, i);
+            invCapacity[i] = 1f / stats.baseHeatCapacity;
+            conductivity[i] = stats.baseHeatConductivity;
+            radiativity[i] = stats.baseHeatRadiativity;
+            maxDelta[i] = 1f / stats.baseHeatConductivity;
+            linkCount += module.countNeighbours();
+
+            //any module asking for the implicit solver gets it for the whole network, then auto, then explicit
+            if(stats.solveMode.ordinal() > mode.ordinal()) mode = stats.solveMode;
+        }
+        this.mode = mode;
+        for(int i = size; i < modules.length; i++) modules[i] = null;
+
+        if(links.length < linkCount) links = new int[Math.max(linkCount, links.length * 2)];
+        int link = 0;
+        for(int i = 0; i < size; i++){
+            linkStart[i] = link;
+            Seq<GraphHeatModule> neighs = modules[i].neighbourKeys();
+            for(int n = 0, len = neighs.size; n < len; n++){
+                int j = indices.get(neighs.get(n), -1);
+                if(j != -1) links[link++] = j;
+            }
+        }
+        linkStart[size] = link;
+        indices.clear();
+        settled = false;
+        committed = false;
+    }
+
     @Override
     void updateGraph(){
-        lastHeatFlow = 0f;
-        connected.each(module -> {
-            module.heat += module.heatBuffer;
-            lastHeatFlow += module.heatBuffer;
-        });
+        ensureLayout();
+
+        int size = this.size;
+        GraphHeatModule[] modules = this.modules;
+        float[] temps = this.temps, settledHeat = this.settledHeat;
+
+        //a settled network stays put unless something outside the solver added or removed heat
+        boolean untouched = settled;
+        for(int i = 0; i < size; i++){
+            float heat = modules[i].heat;
+            if(heat != settledHeat[i]) untouched = false;
+            temps[i] = heat * invCapacity[i];
+        }
+        if(untouched){
+            steady = true;
+            lastHeatFlow = 0f;
+            for(int i = 0; i < size; i++) modules[i].heatBuffer = 0f;
+            return;
+        }
+        steady = false;
+
+        boolean implicit = mode == HeatSolveMode.implicit || (mode == HeatSolveMode.auto && size >= implicitThreshold);
+        if(implicit) solveImplicit();
+        else solveExplicit();
+
+        float flow = 0f;
+        for(int i = 0; i < size; i++){
+            GraphHeatModule module = modules[i];
+            flow += module.heatBuffer;
+            settledHeat[i] = module.heat;
+        }
+        lastHeatFlow = flow;
+        committed = true;
+        settled = residual() < steadyEpsilon;
+    }
+
+    /**
+     * @return The largest distance, in kelvin, between a module's temperature and the one that would zero its net heat flux
+     *         given its neighbours' temperatures and the ambient. Unlike the change per step, this doesn't shrink with small
+     *         conductivities or radiativities, so slowly cooling networks aren't mistaken for settled ones.
+     */
+    float residual(){
+        int size = this.size;
+        GraphHeatModule[] modules = this.modules;
+        float[] temps = this.temps;
+        int[] linkStart = this.linkStart, links = this.links;
+
+        for(int i = 0; i < size; i++) temps[i] = modules[i].heat * invCapacity[i];
+
+        float max = 0f;
+        for(int i = 0; i < size; i++){
+            int from = linkStart[i], to = linkStart[i + 1];
+            float weight = conductivity[i] * (to - from) + radiativity[i];
+            if(weight <= 0f) continue;
+
+            float sum = 0f;
+            for(int l = from; l < to; l++) sum += temps[links[l]];
+            float equilibrium = (conductivity[i] * sum + radiativity[i] * ambientTemp) / weight;
+            max = Math.max(max, Math.abs(equilibrium - temps[i]));
+        }
+        return max;
+    }
+
+    /** Forward Euler: every module exchanges heat with its neighbours' current temperatures. */
+    void solveExplicit(){
+        int size = this.size;
+        GraphHeatModule[] modules = this.modules;
+        float[] temps = this.temps;
+        int[] linkStart = this.linkStart, links = this.links;
+
+        float delta = Time.delta;
+        for(int i = 0; i < size; i++){
+            float temp = temps[i];
+            float clampedDelta = Mathf.clamp(delta, 0f, maxDelta[i]);
+
+            float diff = 0f;
+            for(int l = linkStart[i], end = linkStart[i + 1]; l < end; l++) diff += temps[links[l]] - temp;
+
+            float buffer = (diff * conductivity[i] + (ambientTemp - temp) * radiativity[i]) * clampedDelta;
+            GraphHeatModule module = modules[i];
+            module.heatBuffer = buffer;
+            module.heat += buffer;
+        }
+    }
+
+    /**
+     * Backward Euler with an unbounded time step, i.e. a direct solve for the steady state. Heat added from outside the
+     * solver since the last step is taken as a constant source, and the temperatures zeroing every module's net flux
+     * {@code k sum(Tj - T) + r (ambient - T) + source} are found with conjugate gradients on the CSR system. That state is
+     * exactly where {@link #solveExplicit()} would end up after many steps with the same sources.
+     */
+    void solveImplicit(){
+        int size = this.size;
+        GraphHeatModule[] modules = this.modules;
+        float[] temps = this.temps, sources = this.sources;
+
+        float delta = Time.delta;
+        float capacity = 0f, heat = 0f, radiating = 0f;
+        for(int i = 0; i < size; i++){
+            //per explicit step, so that equal sources settle both solvers at the same temperatures
+            float clampedDelta = Mathf.clamp(delta, 0f, maxDelta[i]);
+            if(!committed){
+                sources[i] = 0f;
+            }else if(clampedDelta > 0f){
+                float added = (modules[i].heat - settledHeat[i]) / clampedDelta;
+                sources[i] += (added - sources[i]) * sourceSmoothing;
+            }
+
+            capacity += 1f / invCapacity[i];
+            heat += modules[i].heat;
+            radiating += radiativity[i];
+        }
+
+        if(radiating <= 0f){
+            //nothing leaves the network, so it can only settle at one shared temperature holding all of its heat
+            float temp = heat / capacity;
+            for(int i = 0; i < size; i++) commit(i, temp);
+            return;
+        }
+
+        //dividing each row by its conductivity makes the system symmetric: (deg + r / k) T - sum(Tj) = (source + r ambient) / k
+        double[] x = solution, r = residuals, p = directions, ap = products;
+        for(int i = 0; i < size; i++) x[i] = temps[i];
+
+        double rr = 0d;
+        for(int i = 0; i < size; i++){
+            double k = Math.max(conductivity[i], 0.000001f);
+            double b = (sources[i] + radiativity[i] * ambientTemp) / k;
+            r[i] = b - multiply(i, x, k);
+            p[i] = r[i];
+            rr += r[i] * r[i];
+        }
+
+        double tolerance = (double)implicitTolerance * implicitTolerance * size;
+        for(int it = 0; it < implicitMaxIterations && rr > tolerance; it++){
+            double pap = 0d;
+            for(int i = 0; i < size; i++){
+                ap[i] = multiply(i, p, Math.max(conductivity[i], 0.000001f));
+                pap += p[i] * ap[i];
+            }
+            if(pap <= 0d) break;
+
+            double alpha = rr / pap, next = 0d;
+            for(int i = 0; i < size; i++){
+                x[i] += alpha * p[i];
+                r[i] -= alpha * ap[i];
+                next += r[i] * r[i];
+            }
+
+            double beta = next / rr;
+            for(int i = 0; i < size; i++) p[i] = r[i] + beta * p[i];
+            rr = next;
+        }
+
+        //explicit steps leave each module short of its balanced temperature by the heat its source adds before the next
+        //step, so hold that back too; both solvers then read the same temperatures in between steps
+        for(int i = 0; i < size; i++){
+            float clampedDelta = Mathf.clamp(delta, 0f, maxDelta[i]);
+            commit(i, (float)x[i] - sources[i] * clampedDelta * invCapacity[i]);
+        }
+    }
+
+    /** @return Row {@code i} of the conductivity-scaled steady-state system, applied to {@code x}. */
+    private double multiply(int i, double[] x, double conductivity){
+        int from = linkStart[i], to = linkStart[i + 1];
+        double sum = 0d;
+        for(int l = from; l < to; l++) sum += x[links[l]];
+        return (to - from + radiativity[i] / conductivity) * x[i] - sum;
+    }
+
+    private void commit(int i, float temp){
+        GraphHeatModule module = modules[i];
+        float buffer = temp / invCapacity[i] - module.heat;
+        module.heatBuffer = buffer;
+        module.heat += buffer;
     }
 
     @Override
@@ -38,4 +316,16 @@ public class HeatGraph extends BaseGraph<GraphHeatModule, HeatGraph>{
     void mergeStats(HeatGraph graph){
         lastHeatFlow += graph.lastHeatFlow;
     }
+
+    public enum HeatSolveMode{
+        /** Forward Euler, one neighbour exchange per frame. Cheapest per step, and the default. */
+        explicit,
+        /** {@link #implicit} for networks of at least {@link HeatGraph#implicitThreshold} modules, {@link #explicit} otherwise. */
+        auto,
+        /**
+         * Solves for the steady state directly each step, so a network reaches the equilibrium {@link #explicit} creeps
+         * towards one link per frame immediately. Transients are lost: heat capacity no longer slows anything down.
+         */
+        implicit
+    }
 }
@@ -1,11 +1,17 @@
 package unity.world.graph;
 
+import arc.struct.*;
 import arc.util.*;
 import unity.world.graphs.*;
 import unity.world.modules.*;
 
 //rotGraph
 public class TorqueGraph<T extends GraphTorque> extends BaseGraph<GraphTorqueModule<T>, TorqueGraph<T>>{
+    /** Velocity change below which {@link #setVelocity(float)} doesn't wake a sleeping network. */
+    public static float sleepThreshold = 0.0001f;
+    /** Net force, relative to the larger of the applied force and friction, treated as balanced; only rounding error. */
+    public static float forceEpsilon = 0.00001f;
+
     public float lastInertia, lastGrossForceApplied, lastNetForceApplied, lastVelocity, lastFrictionCoefficient;
 
     @Override
@@ -35,15 +41,31 @@ public class TorqueGraph<T extends GraphTorque> extends BaseGraph<GraphTorqueMod
         lastVelocity = Math.max(0f, lastVelocity);
     }
 
+    /**
+     * Only a network whose velocity can't change until an input does may sleep: either force and friction cancel out, so it
+     * keeps its speed, or it is stopped and friction holds it still. A small but nonzero acceleration isn't enough, as a
+     * network coasting or slowly spinning up would freeze short of its final speed.
+     */
+    @Override
+    boolean canSleep(){
+        if(lastInertia == 0f) return true;
+
+        float net = lastNetForceApplied;
+        boolean balanced = Math.abs(net) <= forceEpsilon * Math.max(Math.abs(lastGrossForceApplied), Math.abs(lastFrictionCoefficient));
+        return balanced || (lastVelocity <= 0f && net <= 0f);
+    }
+
     @Override
     void updateDirect(){
         float forceApply = 0f;
         float fricCoeff = 0f;
         float iner = 0f;
-        for(var module : connected){//building, GraphTorqueModule
-            forceApply += module.force;
+        Seq<GraphTorqueModule<T>> modules = connected.orderedItems();
+        for(int i = 0, len = modules.size; i < len; i++){//building, GraphTorqueModule
+            GraphTorqueModule<T> module = modules.get(i);
+            forceApply += module.force();
             fricCoeff += module.friction();
-            iner += module.inertia;
+            iner += module.inertia();
         }
         lastFrictionCoefficient = fricCoeff;
         lastGrossForceApplied = forceApply;
@@ -60,6 +82,11 @@ public class TorqueGraph<T extends GraphTorque> extends BaseGraph<GraphTorqueMod
         lastVelocity = (momentumA + mementumB) / (lastInertia + graph.lastInertia);
     }
 
+    public void setVelocity(float velocity){
+        if(Math.abs(velocity - lastVelocity) >= sleepThreshold) wake();
+        lastVelocity = velocity;
+    }
+
     public void injectInertia(float iner){
         float inerSum = lastInertia + iner;
         lastVelocity *= inerSum == 0f ? 0f : lastInertia / inerSum;
@@ -2,6 +2,7 @@ package unity.world.graphs;
 
 import arc.scene.ui.layout.*;
 import mindustry.graphics.*;
+import unity.world.graph.HeatGraph.*;
 import unity.world.meta.*;
 import unity.world.modules.*;
 
@@ -9,6 +10,8 @@ import static arc.Core.*;
 
 public class GraphHeat extends Graph{
     public final float baseHeatCapacity, baseHeatConductivity, baseHeatRadiativity;
+    /** How networks containing this block are solved; the most demanding mode among a network's blocks wins. */
+    public HeatSolveMode solveMode = HeatSolveMode.explicit;
 
     public GraphHeat(float capacity, float conductivity, float radiativity){
         baseHeatCapacity = capacity;
@@ -20,6 +23,11 @@ public class GraphHeat extends Graph{
         this(10f, 0.5f, 0.01f);
     }
 
+    public GraphHeat solveMode(HeatSolveMode mode){
+        solveMode = mode;
+        return this;
+    }
+
     @Override
     public void setStats(Table table){
         table.row().left();
@@ -74,6 +74,9 @@ public class GraphFluxModule extends GraphModule<GraphFlux, GraphFluxModule, Flu
     }
 
     public void mulFlux(float mul){
-        flux = mul * graph.baseFlux;
+        float flux = mul * graph.baseFlux;
+        if(this.flux == flux) return;
+        this.flux = flux;
+        wakeNetworks();
     }
 }
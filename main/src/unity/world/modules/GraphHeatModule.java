@@ -2,7 +2,6 @@ package unity.world.modules;
 
 import arc.*;
 import arc.graphics.*;
-import arc.math.*;
 import arc.scene.ui.layout.*;
 import arc.util.*;
 import arc.util.io.*;
@@ -22,12 +21,7 @@ public class GraphHeatModule extends GraphModule<GraphHeat, GraphHeatModule, Hea
 
     @Override
     void updateProps(HeatGraph graph, int index){
-        float temp = getTemp();
-        float cond = this.graph.baseHeatConductivity;
-        heatBuffer = 0f;
-        float clampedDelta = Mathf.clamp(Time.delta, 0, 1f / cond);
-        for(var n : neighbours.keys()) heatBuffer += (n.getTemp() - temp) * cond * clampedDelta;
-        heatBuffer += (293.15f - temp) * this.graph.baseHeatRadiativity * clampedDelta;
+        //diffusion is solved for the whole network at once in HeatGraph.updateGraph()
     }
 
     @Override
@@ -4,7 +4,6 @@ import arc.func.*;
 import arc.math.geom.*;
 import arc.scene.ui.layout.*;
 import arc.struct.*;
-import arc.struct.ObjectMap.*;
 import arc.util.io.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
@@ -22,7 +21,8 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
 
     protected final IntMap<G> networks = new IntMap<>(4);
 
-    final OrderedMap<M, Integer> neighbours = new OrderedMap<>();
+    final Seq<M> neighbours = new Seq<>(4);
+    final ObjectIntMap<M> neighbourPorts = new ObjectIntMap<>(4);
     final Seq saveCache = new Seq(4);
 
     int lastRecalc;
@@ -60,7 +60,8 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
 
     void onCreate(GraphBuildBase build){
         acceptPorts.setSize(graph.accept.length);
-        neighbours.shrink(graph.accept.length);
+        neighbours.ensureCapacity(graph.accept.length);
+        neighbourPorts.ensureCapacity(graph.accept.length);
         //blockSize = graph.accept.length / 4;
         initAllNets();
         needsNetworkUpdate = true;
@@ -84,7 +85,7 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
     }
 
     void deleteFromNeighbours(){
-        for(var n : neighbours.keys()) n.removeNeighbour((M)this);
+        for(int i = 0; i < neighbours.size; i++) neighbours.get(i).removeNeighbour((M)this);
     }
 
     void deleteSelfFromNetwork(){
@@ -112,6 +113,7 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
             dead = false;
             initAllNets();
             neighbours.clear();
+            neighbourPorts.clear();
         }
         recalcPorts();
         needsNetworkUpdate = true;
@@ -215,19 +217,27 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
     }
 
     public M getNeighbour(M module/*building*/){
-        return neighbours.containsKey(module) ? module : null;
+        return neighbourPorts.containsKey(module) ? module : null;
     }
 
-    public void eachNeighbour(Cons<Entry<M, Integer>> func){
-        for(var n : neighbours) func.get(n);
+    public void eachNeighbourKey(Cons<M> func){
+        for(int i = 0; i < neighbours.size; i++) func.get(neighbours.get(i));
     }
 
-    public void eachNeighbourKey(Cons<M> func){
-        for(var n : neighbours.keys()) func.get(n);
+    /** @return the neighbouring modules in connection order; do not modify. */
+    public Seq<M> neighbourKeys(){
+        return neighbours;
+    }
+
+    public void eachNeighbourValue(Intc func){
+        for(int i = 0; i < neighbours.size; i++) func.get(neighbourPorts.get(neighbours.get(i), -1));
     }
 
-    public void eachNeighbourValue(Cons<Integer> func){
-        for(var n : neighbours.values()) func.get(n);
+    /** Wakes every network this module belongs to; call after changing anything the networks sum up. */
+    public void wakeNetworks(){
+        for(var net : networks.values()){
+            if(net != null) net.wake();
+        }
     }
 
     float efficiency(){
@@ -239,13 +249,25 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
     }
 
     public void removeNeighbour(M module/*building*/){
-        if(module != null && neighbours.remove(module) != null) parent.build.onNeighboursChanged();
+        if(module == null || !neighbourPorts.containsKey(module)) return;
+        int port = neighbourPorts.remove(module, -1);
+        neighbours.remove(module, true);
+        G net = getNetworkOfPort(port);
+        if(net != null) net.topologyChanged();
+        parent.build.onNeighboursChanged();
     }
 
     public void addNeighbour(M n, int portIndex){
         if(n != null){
-            Integer v = neighbours.put(n, portIndex);
-            if(v == null || v == portIndex) parent.build.onNeighboursChanged();
+            boolean added = !neighbourPorts.containsKey(n);
+            int v = neighbourPorts.get(n, -1);
+            neighbourPorts.put(n, portIndex);
+            if(added) neighbours.add(n);
+            if(added || v != portIndex){
+                G net = getNetworkOfPort(portIndex);
+                if(net != null) net.topologyChanged();
+            }
+            if(added || v == portIndex) parent.build.onNeighboursChanged();
         }
     }
 
@@ -292,6 +314,7 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
 
     public boolean replaceNetwork(G old, G set){
         if(multi) return replaceNetworkMulti(old, set);
+        if(networks.get(0) != old) return false;
         networks.put(0, set);
         return true;
     }
@@ -388,7 +411,7 @@ public abstract class GraphModule<T extends Graph, M extends GraphModule<T, M, G
     }
 
     public int portIndex(M module){
-        return neighbours.get(module, -1);
+        return neighbourPorts.get(module, -1);
     }
 
     public float getTemp(){
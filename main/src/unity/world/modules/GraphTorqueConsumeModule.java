@@ -6,8 +6,8 @@ import unity.world.graphs.*;
 public class GraphTorqueConsumeModule extends GraphTorqueModule<GraphTorqueConsume>{
     @Override
     void updateExtension(){
-        if(!parent.build.enabled()) friction = graph.idleFriction;
-        else friction = graph.workingFriction;
+        if(!parent.build.enabled()) setFriction(graph.idleFriction);
+        else setFriction(graph.workingFriction);
     }
 
     @Override
@@ -16,8 +16,8 @@ public class GraphTorqueGenerateModule extends GraphTorqueModule<GraphTorqueGene
 
     @Override
     void updateExtension(){
-        force = Utils.linear(networks.get(0).lastVelocity, graph.maxSpeed, graph.maxTorque, graph.torqueCoeff)
-            * parent.build.edelta() * motorForceMult * maxMotorForceMult;
+        setForce(Utils.linear(networks.get(0).lastVelocity, graph.maxSpeed, graph.maxTorque, graph.torqueCoeff)
+            * parent.build.edelta() * motorForceMult * maxMotorForceMult);
         smoothedForce.add(force);
     }
 
@@ -15,13 +15,12 @@ import unity.world.meta.*;
 //_RotPowerPropsCommon
 public class GraphTorqueModule<T extends GraphTorque> extends GraphModule<T, GraphTorqueModule<T>, TorqueGraph<T>>{
     static final Color[] pals = new Color[]{Pal.accent, Pal.redSpark, Pal.plasticSmoke, Pal.lancerLaser};
-    public float force, inertia;
     final IntFloatMap rots = new IntFloatMap(4);//propsList
-    float friction;
+    float force, inertia, friction;
 
     @Override
     void applySaveState(TorqueGraph<T> graph, int index){
-        graph.lastVelocity = Math.max(graph.lastVelocity, ((Float[])saveCache.get(index))[0]);
+        graph.setVelocity(Math.max(graph.lastVelocity, ((Float[])saveCache.get(index))[0]));
     }
 
     @Override
@@ -84,6 +83,7 @@ public class GraphTorqueModule<T extends GraphTorque> extends GraphModule<T, Gra
         force = read.f();
         inertia = read.f();
         friction = read.f();
+        wakeNetworks();
     }
 
     @Override
@@ -117,6 +117,21 @@ public class GraphTorqueModule<T extends GraphTorque> extends GraphModule<T, Gra
             }else networks.get(0).injectInertia(diff);
         }
         inertia = iner;
+        if(diff != 0f) wakeNetworks();
+    }
+
+    public float force(){
+        return force;
+    }
+
+    public void setForce(float force){
+        if(this.force == force) return;
+        this.force = force;
+        wakeNetworks();
+    }
+
+    public float inertia(){
+        return inertia;
     }
 
     public float getRotation(){
@@ -131,5 +146,11 @@ public class GraphTorqueModule<T extends GraphTorque> extends GraphModule<T, Gra
         return friction;
     }
 
+    public void setFriction(float friction){
+        if(this.friction == friction) return;
+        this.friction = friction;
+        wakeNetworks();
+    }
+
     public void setMotorForceMult(float a){}
 }
@@ -23,7 +23,7 @@ public class GraphTorqueTransModule extends GraphTorqueModule<GraphTorqueTrans>{
             for(int i = 0; i < ratios.length; i++){
                 TorqueGraph net = networks.get(i);
                 float cratio = net.lastInertia * ratios[i] / totalMRatio;
-                net.lastVelocity = totalM * cratio / net.lastInertia;
+                net.setVelocity(totalM * cratio / net.lastInertia);
             }
         }
     }
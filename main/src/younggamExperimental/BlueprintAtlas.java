@@ -0,0 +1,166 @@
+package younggamExperimental;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.graphics.gl.*;
+import arc.struct.*;
+import arc.util.*;
+
+/**
+ * Blueprint sprites of every building of one block, drawn into cells of a few shared framebuffers. Buildings with the same
+ * blueprint share a cell, a cell is only drawn once a building using it is first drawn, and the least recently drawn cell
+ * is reused when every page is full.
+ */
+public class BlueprintAtlas{
+    /** Preferred size of a page; pages are smaller if no more cells fit. */
+    public static final int pageSize = 1024;
+    /** Empty pixels between cells, so filtering doesn't bleed neighbours in. */
+    static final int gap = 2;
+
+    public final int width, height, maxPages;
+
+    final LongMap<Cell> cells = new LongMap<>();
+    final Seq<Cell> all = new Seq<>();
+    final Seq<FrameBuffer> pages = new Seq<>();
+    /** Whether each page was cleared yet, which is done when its first cell is drawn. */
+    final BoolSeq cleared = new BoolSeq();
+    final int columns, rows;
+
+    public BlueprintAtlas(int width, int height){
+        this(width, height, 4);
+    }
+
+    public BlueprintAtlas(int width, int height, int maxPages){
+        this.width = width;
+        this.height = height;
+        this.maxPages = maxPages;
+        columns = Math.max(pageSize / (width + gap), 1);
+        rows = Math.max(pageSize / (height + gap), 1);
+    }
+
+    /** @return A 64-bit hash of the blueprint, used as its key in {@link #get(long, Runnable)}. */
+    public static long hash(IntSeq blueprint){
+        long h = 0xcbf29ce484222325L ^ blueprint.size;
+        for(int i = 0; i < blueprint.size; i++){
+            h ^= blueprint.items[i];
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Must be called while drawing, and the region must be drawn above {@link Draw#z()}, as drawing a missing blueprint is
+     * deferred to that layer.
+     * @param key    The blueprint's {@link #hash(IntSeq) hash}.
+     * @param drawer Draws the blueprint within {@code (0, 0)} to {@code (width, height)} if it isn't cached.
+     * @return The region of the blueprint's cell, flipped like a framebuffer texture. Shared between buildings and
+     *         changed when the cell is reused, so copy it before modifying it.
+     */
+    public TextureRegion get(long key, Runnable drawer){
+        long frame = Core.graphics.getFrameId();
+
+        Cell cell = cells.get(key);
+        if(cell == null){
+            cell = obtain(frame);
+            if(cell.used) cells.remove(cell.key);
+
+            cell.key = key;
+            cell.used = true;
+            cells.put(key, cell);
+            render(cell, drawer);
+        }
+
+        cell.lastUsed = frame;
+        return cell.region;
+    }
+
+    /** Disposes every page; cells are drawn again when next used. */
+    public void dispose(){
+        for(FrameBuffer page : pages) page.dispose();
+        pages.clear();
+        cleared.clear();
+        cells.clear();
+        all.clear();
+    }
+
+    Cell obtain(long frame){
+        for(Cell cell : all){
+            if(!cell.used) return cell;
+        }
+
+        if(pages.size < maxPages){
+            addPage();
+            return all.get(all.size - columns * rows);
+        }
+
+        //every cell is taken; the one drawn longest ago is redrawn by its buildings when next visible
+        Cell oldest = null;
+        for(Cell cell : all){
+            if(oldest == null || cell.lastUsed < oldest.lastUsed) oldest = cell;
+        }
+        return oldest;
+    }
+
+    void addPage(){
+        int index = pages.size;
+        FrameBuffer page = new FrameBuffer(columns * (width + gap), rows * (height + gap));
+        pages.add(page);
+        cleared.add(false);
+
+        for(int y = 0; y < rows; y++){
+            for(int x = 0; x < columns; x++){
+                Cell cell = new Cell();
+                cell.page = index;
+                cell.x = x * (width + gap);
+                cell.y = y * (height + gap);
+                cell.region.set(page.getTexture());
+                cell.region.set(cell.x, cell.y, width, height);
+
+                float v = cell.region.v;
+                cell.region.v = cell.region.v2;
+                cell.region.v2 = v;
+                all.add(cell);
+            }
+        }
+    }
+
+    void render(Cell cell, Runnable drawer){
+        Draw.draw(Draw.z(), () -> {
+            FrameBuffer page = pages.get(cell.page);
+
+            Tmp.m1.set(Draw.proj());
+            Draw.proj(-cell.x, -cell.y, page.getWidth(), page.getHeight());
+            page.begin();
+
+            //new framebuffers may hold garbage, which would bleed into the cells
+            if(!cleared.get(cell.page)){
+                cleared.set(cell.page, true);
+                Gl.clearColor(0f, 0f, 0f, 0f);
+                Gl.clear(Gl.colorBufferBit);
+            }
+
+            //only clear and draw into this cell
+            Gl.enable(Gl.scissorTest);
+            Gl.scissor(cell.x, cell.y, width, height);
+            Gl.clearColor(0f, 0f, 0f, 0f);
+            Gl.clear(Gl.colorBufferBit);
+
+            Draw.color(Color.white);
+            drawer.run();
+            Draw.flush();
+
+            Gl.disable(Gl.scissorTest);
+            page.end();
+            Draw.proj(Tmp.m1);
+            Draw.reset();
+        });
+    }
+
+    static class Cell{
+        final TextureRegion region = new TextureRegion();
+        int page, x, y;
+        long key, lastUsed;
+        boolean used;
+    }
+}
@@ -2,7 +2,6 @@ package younggamExperimental.blocks;
 
 import arc.graphics.*;
 import arc.graphics.g2d.*;
-import arc.graphics.gl.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.scene.ui.layout.*;
@@ -37,6 +36,8 @@ public class Chopper extends GraphBlock{
     final PartType[] categories = new PartType[]{PartType.blade, PartType.saw};//categorySprite
     final TextureRegion[] baseRegions = new TextureRegion[4];//base
     TextureRegion topRegion, partsRegion;//topsprite,partsAtlas
+    /** Blueprint sprites, shared between every building with the same blueprint. */
+    BlueprintAtlas blueprints;
     float partCostAccum = 0.2f, autoBuildDelay = 10;
     int gridW = 1, gridH = 1,
         spriteGridSize = 32, spriteGridPadding,
@@ -78,6 +79,7 @@ public class Chopper extends GraphBlock{
         //auto headless
         tx = spriteGridPadding * 2 + gridW * spriteGridSize;
         ty = spriteGridPadding * 2 + gridH * spriteGridSize;
+        blueprints = new BlueprintAtlas(tx, ty);
     }
 
     protected void addPart(String name, String desc, PartType category, int tx, int ty, int tw, int th, boolean cannotPlace, boolean isRoot, Point2 prePlace, ItemStack[] cost, byte[] connectOut, byte[] connectIn, PartStat... stats){
@@ -93,12 +95,15 @@ public class Chopper extends GraphBlock{
         final OrderedMap<Item, Integer> blueprintRemainingCost = new OrderedMap<>(12);
         final IntSeq bluePrint = new IntSeq();
         final Seq<Segment> hitSegments = new Seq<>();
-        final FrameBuffer buffer = new FrameBuffer(tx, ty);
+        final TextureRegion bufferRegion = new TextureRegion();
+        final Runnable drawBlueprint = this::drawBlueprint;
         final StatContainer currentStats = new StatContainer();
         final Rect detectRect = new Rect();
         float originalMaxHp,
             speedDmgMul,
             aniProg, aniSpeed, aniTime;
+        int[][] gridPrint = {};
+        long blueprintKey = BlueprintAtlas.hash(bluePrint);
         int totalItemCountCost, totalItemCountPaid,
             knockbackTorque, inertia = 5,
             bladeRadius;
@@ -117,16 +122,14 @@ public class Chopper extends GraphBlock{
             if(!bluePrint.equals(s)){
                 bluePrint.clear();
                 if(s != null) bluePrint.addAll(s);
+                blueprintKey = BlueprintAtlas.hash(bluePrint);
                 return true;
             }
             return false;
         }
 
         TextureRegion getBufferRegion(){
-            TextureRegion tex = Draw.wrap(buffer.getTexture());
-            tex.v = tex.v2;
-            tex.v2 = tex.u;
-            return tex;
+            return bufferRegion.set(blueprints.get(blueprintKey, drawBlueprint));
         }
 
         @Override
@@ -339,25 +342,17 @@ public class Chopper extends GraphBlock{
                 if(temp == 0) continue;
                 accumStats(partInfo[temp - 1], p / gridH, p % gridH, gridPrint);
             }
-            if(!Vars.headless){
-                Draw.draw(Draw.z(), () -> {
-                    //backBuffer(gridPrint)
-                    Tmp.m1.set(Draw.proj());
-                    Draw.proj(0f, 0f, tx, ty);
-                    buffer.begin(Color.clear);
-                    Draw.color(Color.white);
-                    //preDrawBuffer(gridPrint)
-                    for(int p = 0; p < len; p++){
-                        int temp = bluePrint.get(p);
-                        if(temp == 0) continue;
-                        drawPartBuffer(partInfo[temp - 1], p / gridH, p % gridH, gridPrint);
-                    }
-                    //postDrawBuffer(gridPrint)
-                    buffer.end();
-                    Draw.proj(Tmp.m1);
-                    Draw.reset();
-                });
+            this.gridPrint = gridPrint;
+        }
+
+        void drawBlueprint(){
+            //preDrawBuffer(gridPrint)
+            for(int p = 0, len = bluePrint.size; p < len; p++){
+                int temp = bluePrint.get(p);
+                if(temp == 0) continue;
+                drawPartBuffer(partInfo[temp - 1], p / gridH, p % gridH, gridPrint);
             }
+            //postDrawBuffer(gridPrint)
         }
 
         @Override
@@ -412,7 +407,7 @@ public class Chopper extends GraphBlock{
         public void updatePre(){
             GraphTorqueModule<?> tGraph = torque();
             tGraph.setInertia(inertia);
-            tGraph.force = -knockbackTorque;
+            tGraph.setForce(-knockbackTorque);
             knockbackTorque = 0;
             aniTime += Time.delta;
             float prog = getPaidRatio();
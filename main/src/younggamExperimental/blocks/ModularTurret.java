@@ -2,7 +2,6 @@ package younggamExperimental.blocks;
 
 import arc.graphics.*;
 import arc.graphics.g2d.*;
-import arc.graphics.gl.*;
 import arc.math.*;
 import arc.scene.ui.layout.*;
 import arc.struct.*;
@@ -38,6 +37,8 @@ public class ModularTurret extends Turret implements GraphBlockBase{
     PartInfo[] partInfo;//TODO
     final TextureRegion[] regions = new TextureRegion[4];
     TextureRegion partsRegion, rootRegion, rootOutlineRegion;//partAtlas,baseSprite,baseOutline;
+    /** Blueprint sprites, shared between every building with the same blueprint. */
+    BlueprintAtlas blueprints;
     protected float yShift, yScale = 1f, partCostAccum = 0.2f;
     float autoBuildDelay = 10;
     protected int spriteGridSize = 32, spriteGridPadding;
@@ -61,6 +62,7 @@ public class ModularTurret extends Turret implements GraphBlockBase{
         rootOutlineRegion = atlas.find(name + "-root-outline");
         tx = spriteGridPadding * 2 + gridW * spriteGridSize;
         ty = spriteGridPadding * 2 + gridH * spriteGridSize;
+        blueprints = new BlueprintAtlas(tx, ty);
     }
 
     @Override
@@ -112,11 +114,14 @@ public class ModularTurret extends Turret implements GraphBlockBase{
         //
         final OrderedMap<Item, Integer> blueprintRemainingCost = new OrderedMap<>(12);
         final IntSeq bluePrint = new IntSeq();
-        final FrameBuffer buffer = new FrameBuffer(tx, ty);
+        final TextureRegion bufferRegion = new TextureRegion();
+        final Runnable drawBlueprint = this::drawBlueprint;
         final StatContainer currentStats = new StatContainer();
         float turretRange = 80f,
             originalMaxHp,
             aniProg, aniSpeed, aniTime;
+        int[][] gridPrint = {};
+        long blueprintKey = BlueprintAtlas.hash(bluePrint);
         int totalItemCountCost, totalItemCountPaid,
             itemCap;
         boolean changed, validTurret;
@@ -134,16 +139,14 @@ public class ModularTurret extends Turret implements GraphBlockBase{
             if(!bluePrint.equals(s)){
                 bluePrint.clear();
                 if(s != null) bluePrint.addAll(s);
+                blueprintKey = BlueprintAtlas.hash(bluePrint);
                 return true;
             }
             return false;
         }
 
         TextureRegion getBufferRegion(){
-            TextureRegion tex = Draw.wrap(buffer.getTexture());
-            tex.v = tex.v2;
-            tex.v2 = tex.u;
-            return tex;
+            return bufferRegion.set(blueprints.get(blueprintKey, drawBlueprint));
         }
 
         @Override
@@ -354,25 +357,17 @@ public class ModularTurret extends Turret implements GraphBlockBase{
                 if(temp == 0) continue;
                 accumStats(partInfo[temp - 1], p / gridH, p % gridH, gridPrint);
             }
-            if(!Vars.headless){
-                Draw.draw(Draw.z(), () -> {
-                    //backBuffer(gridPrint)
-                    Tmp.m1.set(Draw.proj());
-                    Draw.proj(0f, 0f, tx, ty);
-                    buffer.begin(Color.clear);
-                    Draw.color(Color.white);
-                    //preDrawBuffer(gridPrint)
-                    for(int p = 0; p < len; p++){
-                        int temp = bluePrint.get(p);
-                        if(temp == 0) continue;
-                        drawPartBuffer(partInfo[temp - 1], p / gridH, p % gridH, gridPrint);
-                    }
-                    //postDrawBuffer(gridPrint)
-                    buffer.end();
-                    Draw.proj(Tmp.m1);
-                    Draw.reset();
-                });
+            this.gridPrint = gridPrint;
+        }
+
+        void drawBlueprint(){
+            //preDrawBuffer(gridPrint)
+            for(int p = 0, len = bluePrint.size; p < len; p++){
+                int temp = bluePrint.get(p);
+                if(temp == 0) continue;
+                drawPartBuffer(partInfo[temp - 1], p / gridH, p % gridH, gridPrint);
             }
+            //postDrawBuffer(gridPrint)
         }
 
         @Override
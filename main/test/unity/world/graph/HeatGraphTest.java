@@ -0,0 +1,115 @@
+package unity.world.graph;
+
+import arc.util.*;
+import org.junit.jupiter.api.*;
+import unity.world.graph.HeatGraph.*;
+import unity.world.modules.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that both heat solvers settle at the same temperatures, without any blocks or a running game. */
+public class HeatGraphTest{
+    static final float capacity = 5f, conductivity = 0.7f, radiativity = 0.008f, source = 1f;
+
+    @BeforeEach
+    void resetDelta(){
+        Time.delta = 1f;
+    }
+
+    @Test
+    void implicitMatchesExplicitSteadyState(){
+        HeatGraph explicit = chain(32, radiativity, HeatSolveMode.explicit);
+        HeatGraph implicit = chain(32, radiativity, HeatSolveMode.implicit);
+
+        run(explicit, 20000);
+        run(implicit, 200);
+
+        for(int i = 0; i < 32; i++){
+            assertEquals(temp(explicit, i), temp(implicit, i), 0.05f, "module " + i);
+        }
+        assertTrue(temp(implicit, 0) > temp(implicit, 31) + 0.5f, "heat should pool around the source");
+    }
+
+    @Test
+    void implicitSettlesFaster(){
+        HeatGraph reference = chain(32, radiativity, HeatSolveMode.explicit);
+        HeatGraph explicit = chain(32, radiativity, HeatSolveMode.explicit);
+        HeatGraph implicit = chain(32, radiativity, HeatSolveMode.implicit);
+
+        run(reference, 20000);
+        run(explicit, 100);
+        run(implicit, 100);
+
+        float far = temp(reference, 31);
+        assertEquals(far, temp(implicit, 31), 0.05f);
+        assertTrue(Math.abs(far - temp(explicit, 31)) > 0.5f, "explicit should still be warming up after 100 steps");
+    }
+
+    @Test
+    void insulatedNetworkConservesHeat(){
+        HeatGraph explicit = chain(8, 0f, HeatSolveMode.explicit);
+        HeatGraph implicit = chain(8, 0f, HeatSolveMode.implicit);
+        explicit.modules[0].heat += 100f;
+        implicit.modules[0].heat += 100f;
+
+        for(int i = 0; i < 5000; i++) explicit.updateGraph();
+        implicit.updateGraph();
+
+        float mean = HeatGraph.ambientTemp + 100f / (8 * capacity);
+        for(int i = 0; i < 8; i++){
+            assertEquals(mean, temp(explicit, i), 0.01f, "explicit module " + i);
+            assertEquals(mean, temp(implicit, i), 0.01f, "implicit module " + i);
+        }
+    }
+
+    /** Steps the network, adding {@link #source} heat to its first module before every step as a heater would. */
+    static void run(HeatGraph graph, int steps){
+        for(int i = 0; i < steps; i++){
+            graph.modules[0].heat += source * Time.delta;
+            graph.updateGraph();
+        }
+    }
+
+    static float temp(HeatGraph graph, int index){
+        return graph.modules[index].heat / capacity;
+    }
+
+    /** Lays out a line of identical modules at ambient temperature directly, as {@link HeatGraph#rebuildLayout()} would. */
+    static HeatGraph chain(int size, float radiativity, HeatSolveMode mode){
+        HeatGraph graph = new HeatGraph();
+        graph.size = size;
+        graph.mode = mode;
+        graph.modules = new GraphHeatModule[size];
+        graph.temps = new float[size];
+        graph.invCapacity = new float[size];
+        graph.conductivity = new float[size];
+        graph.radiativity = new float[size];
+        graph.maxDelta = new float[size];
+        graph.settledHeat = new float[size];
+        graph.sources = new float[size];
+        graph.solution = new double[size];
+        graph.residuals = new double[size];
+        graph.directions = new double[size];
+        graph.products = new double[size];
+        graph.linkStart = new int[size + 1];
+        graph.links = new int[2 * (size - 1)];
+
+        int link = 0;
+        for(int i = 0; i < size; i++){
+            GraphHeatModule module = new GraphHeatModule();
+            module.heat = HeatGraph.ambientTemp * capacity;
+            graph.modules[i] = module;
+            graph.invCapacity[i] = 1f / capacity;
+            graph.conductivity[i] = conductivity;
+            graph.radiativity[i] = radiativity;
+            graph.maxDelta[i] = 1f / conductivity;
+
+            graph.linkStart[i] = link;
+            if(i > 0) graph.links[link++] = i - 1;
+            if(i < size - 1) graph.links[link++] = i + 1;
+        }
+        graph.linkStart[size] = link;
+        graph.layoutDirty = false;
+        return graph;
+    }
+}
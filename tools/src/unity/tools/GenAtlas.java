@@ -3,46 +3,45 @@ package unity.tools;
 import arc.files.*;
 import arc.graphics.*;
 import arc.graphics.g2d.*;
-import arc.struct.*;
+import arc.util.*;
+
+import java.io.*;
+import java.util.concurrent.*;
 
 import static unity.tools.Tools.*;
 
 /**
  * A specialized thread-safe texture atlas for generated texture regions. No {@link Texture}s are instantiated; use
- * {@link GenRegion#pixmap()} instead.
+ * {@link GenRegion#pixmap()} instead. Regions added from files only decode their pixels once they're accessed.
  * @author GlennFolker
  */
 public class GenAtlas extends TextureAtlas{
     public GenRegion clear;
-    private final ObjectMap<String, GenRegion> regions = new ObjectMap<>();
+    private final ConcurrentHashMap<String, GenRegion> regions = new ConcurrentHashMap<>();
 
-    /** The name should be prefixed with {@code unity-} */
+    /** The name should be prefixed with {@code unity-}. The file's pixels are only decoded once they're needed. */
     public GenRegion addRegion(Fi file){
         String name = file.nameWithoutExtension();
         if(!file.path().contains("sprites/vanilla/")) name = "unity-" + name;
 
-        GenRegion reg = new GenRegion(name, new Pixmap(file));
+        GenRegion reg = new GenRegion(name, file);
 
         String path = file.path();
         path = path.substring(path.indexOf("sprites/") + "sprites/".length(), path.lastIndexOf("/"));
 
         reg.relativePath = path;
 
-        synchronized(regions){
-            regions.put(name, reg);
-            return reg;
-        }
+        regions.put(name, reg);
+        return reg;
     }
 
     /** @inheritDocs. The name should be prefixed with {@code unity-} */
     @Override
     public GenRegion addRegion(String name, TextureRegion textureRegion){
-        synchronized(regions){
-            GenRegion reg = (GenRegion)textureRegion;
+        GenRegion reg = (GenRegion)textureRegion;
 
-            regions.put(name, reg);
-            return reg;
-        }
+        regions.put(name, reg);
+        return reg;
     }
 
     /** @inheritDocs. The name should be prefixed with {@code unity-} */
@@ -51,63 +50,60 @@ public class GenAtlas extends TextureAtlas{
         Pixmap pixmap = texture.getTextureData().getPixmap();
         GenRegion reg = new GenRegion(name, Pixmaps.crop(pixmap, x, y, width, height));
 
-        synchronized(regions){
-            regions.put(name, reg);
-            return reg;
-        }
+        regions.put(name, reg);
+        return reg;
     }
 
     @Override
     public GenRegion find(String name){
-        synchronized(regions){
-            if(!regions.containsKey(name)){
-                return new GenRegion(name, null);
-            }
-
-            return regions.get(name);
-        }
+        GenRegion reg = regions.get(name);
+        SpriteCache.looked(name, reg);
+        return reg != null ? reg : new GenRegion(name, (Pixmap)null);
     }
 
     @Override
     public GenRegion find(String name, String def){
-        synchronized(regions){
-            return regions.get(name, find(def));
-        }
+        GenRegion reg = regions.get(name);
+        SpriteCache.looked(name, reg);
+        return reg != null ? reg : find(def);
     }
 
     @Override
     public GenRegion find(String name, TextureRegion def){
-        synchronized(regions){
-            return regions.get(name, (GenRegion)def);
-        }
+        GenRegion reg = regions.get(name);
+        SpriteCache.looked(name, reg);
+        return reg != null ? reg : (GenRegion)def;
     }
 
     @Override
     public boolean has(String s){
-        synchronized(regions){
-            return regions.containsKey(s);
-        }
+        boolean has = regions.containsKey(s);
+        SpriteCache.checked(s, has);
+        return has;
     }
 
     @Override
     public void dispose(){
-        synchronized(regions){
-            for(var pix : regions.values()){
-                if(pix.pixmap != null) pix.pixmap.dispose();
-            }
-
-            regions.clear();
+        for(var reg : regions.values()){
+            if(reg.pixmap != null) reg.pixmap.dispose();
         }
+
+        regions.clear();
     }
 
     public static class GenRegion extends AtlasRegion{
         public String relativePath = "";
 
-        private final Pixmap pixmap;
+        private volatile Pixmap pixmap;
+        private final Fi file;
+
+        private volatile long hash;
+        private volatile boolean hashed;
 
         public GenRegion(String name, Pixmap pixmap){
             this.name = name;
             this.pixmap = pixmap;
+            file = null;
 
             if(pixmap != null){
                 width = pixmap.width;
@@ -118,9 +114,36 @@ public class GenAtlas extends TextureAtlas{
             u2 = v2 = 1f;
         }
 
+        /** Creates a region whose pixels are decoded from the file on the first {@link #pixmap()} call. */
+        public GenRegion(String name, Fi file){
+            this.name = name;
+            this.file = file;
+
+            // Only read the IHDR chunk for the size; anything that isn't a plain PNG is decoded right away
+            byte[] header = new byte[24];
+            try(InputStream in = file.read()){
+                if(in.readNBytes(header, 0, header.length) == header.length && header[12] == 'I' && header[13] == 'H' && header[14] == 'D' && header[15] == 'R'){
+                    width = readInt(header, 16);
+                    height = readInt(header, 20);
+                }else{
+                    pixmap = new Pixmap(file);
+                    width = pixmap.width;
+                    height = pixmap.height;
+                }
+            }catch(IOException e){
+                throw new ArcRuntimeException("Couldn't read " + file, e);
+            }
+
+            u = v = 0f;
+            u2 = v2 = 1f;
+        }
+
         @Override
         public boolean found(){
-            return pixmap != null;
+            // Regions found here are recorded once their pixels are read; misses would otherwise go unnoticed
+            boolean found = pixmap != null || file != null;
+            if(!found) SpriteCache.checked(name, false);
+            return found;
         }
 
         /**
@@ -130,7 +153,30 @@ public class GenAtlas extends TextureAtlas{
          */
         public Pixmap pixmap(){
             if(!found()) throw new IllegalArgumentException("Region does not exist: " + name);
-            return pixmap;
+
+            SpriteCache.read(this);
+            return decode();
+        }
+
+        /** @return Hash of the file this region was loaded from, or of its pixels once saved. See {@link SpriteCache}. */
+        public long hash(){
+            if(!hashed){
+                synchronized(this){
+                    if(!hashed){
+                        hash = file != null ? SpriteCache.hash(file.readBytes()) : pixmap != null ? SpriteCache.hash(pixmap) : 0L;
+                        hashed = true;
+                    }
+                }
+            }
+
+            return hash;
+        }
+
+        public void hash(long hash){
+            synchronized(this){
+                this.hash = hash;
+                hashed = true;
+            }
         }
 
         public void save(){
@@ -143,10 +189,34 @@ public class GenAtlas extends TextureAtlas{
             Fi dir = spritesDir.child(relativePath);
             dir.mkdirs();
 
-            Fi file = dir.child(name.replaceFirst("unity-", "") + ".png");
-            file.writePng(pixmap);
+            Pixmap pix = decode();
+            Fi file = dir.child(fileName(name));
+            file.writePng(pix);
+
+            hash(SpriteCache.hash(pix));
+            SpriteCache.written(this, file);
 
             if(add) atlas.addRegion(name, this);
         }
+
+        public static String fileName(String name){
+            return name.replaceFirst("unity-", "") + ".png";
+        }
+
+        private Pixmap decode(){
+            Pixmap pix = pixmap;
+            if(pix == null){
+                synchronized(this){
+                    pix = pixmap;
+                    if(pix == null) pixmap = pix = new Pixmap(file);
+                }
+            }
+
+            return pix;
+        }
+
+        private static int readInt(byte[] bytes, int offset){
+            return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16 | (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
+        }
     }
 }
@@ -7,6 +7,7 @@ import unity.tools.proc.*;
 import java.util.concurrent.*;
 
 import static unity.Unity.*;
+import static unity.tools.Tools.*;
 
 /**
  * Static class containing all processors. Call {@link #process()} to initiate asset processing.
@@ -15,7 +16,9 @@ import static unity.Unity.*;
 public final class Processors{
     private static final Processor[] processes = {
         new OutlineRegionProcessor(),
-        new UnitProcessor()
+        new UnitProcessor(),
+        new WavefrontProcessor(),
+        new ModelProcessor()
     };
 
     private Processors(){}
@@ -30,7 +33,7 @@ public final class Processors{
             Threads.await(exec);
 
             process.finish();
-            print(process.getClass().getSimpleName() + " executed for " + Time.elapsed() + "ms");
+            print(process.getClass().getSimpleName() + " executed for " + Time.elapsed() + "ms (" + cache.stats() + ")");
         }
     }
 }
@@ -0,0 +1,389 @@
+package unity.tools;
+
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Log.*;
+import arc.util.io.*;
+import mindustry.ctype.*;
+import mindustry.gen.*;
+import unity.tools.GenAtlas.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.util.concurrent.atomic.*;
+
+import static unity.Unity.*;
+import static unity.tools.Tools.*;
+
+/**
+ * Keeps generated sprites between runs of the tools module. Every {@link Job} records the regions it looks up, reads
+ * and saves while it runs, including lookups of regions that don't exist; on the next run, a job whose parameters and
+ * inputs still hash the same, and whose missing regions are still missing, has its outputs copied back from the cache
+ * instead of being run again. Raw regions are hashed from their file, generated ones from their pixels.
+ */
+public class SpriteCache{
+    private static final int version = 2, maxDepth = 3;
+    /** Input hashes of regions that were looked up but didn't exist, and of ones that were only checked for existence. */
+    static final long absent = 0L, present = 1L;
+    private static final ThreadLocal<Job> current = new ThreadLocal<>();
+    private static final ObjectMap<Class<?>, Long> classHashes = new ObjectMap<>();
+
+    /** The cache directory, or {@code null} if caching is disabled and every job runs. */
+    public final @Nullable Fi dir;
+
+    private final ObjectMap<String, Job> entries = new ObjectMap<>(), next = new ObjectMap<>();
+    private final AtomicInteger restored = new AtomicInteger(), regenerated = new AtomicInteger();
+
+    public SpriteCache(@Nullable Fi dir){
+        this.dir = dir;
+    }
+
+    public void load(){
+        if(dir == null || !dir.child("index.bin").exists()) return;
+
+        try(DataInputStream in = new DataInputStream(dir.child("index.bin").read(8192))){
+            if(in.readInt() != version) return;
+
+            for(int i = 0, count = in.readInt(); i < count; i++){
+                Job job = new Job(in.readUTF(), in.readLong());
+                read(in, job.inputs, job.inputHashes);
+                read(in, job.outputs, job.outputHashes);
+                for(int j = 0; j < job.outputs.size; j++) job.paths.add(in.readUTF());
+
+                entries.put(job.id, job);
+            }
+        }catch(IOException e){
+            entries.clear();
+            print(LogLevel.warn, "Couldn't read the sprite cache, regenerating everything:", Strings.getFinalMessage(e));
+        }
+    }
+
+    /** Writes every job that ran or was restored in this run; jobs that didn't come up again are dropped. */
+    public void save(){
+        if(dir == null) return;
+
+        dir.mkdirs();
+        try(DataOutputStream out = new DataOutputStream(dir.child("index.bin").write(false, 8192))){
+            out.writeInt(version);
+
+            synchronized(next){
+                out.writeInt(next.size);
+                for(var job : next.values()){
+                    out.writeUTF(job.id);
+                    out.writeLong(job.params);
+                    write(out, job.inputs, job.inputHashes);
+                    write(out, job.outputs, job.outputHashes);
+                    for(var path : job.paths) out.writeUTF(path);
+                }
+            }
+        }catch(IOException e){
+            print(LogLevel.warn, "Couldn't write the sprite cache:", Strings.getFinalMessage(e));
+        }
+    }
+
+    /**
+     * @param owner  The processor running the job; its class file is hashed too, so changing it invalidates its jobs.
+     * @param id     A name unique to this job across all processors.
+     * @param params Anything the job's outputs depend on besides the regions it reads. Primitives, strings, enums and
+     *               colors are hashed by value, and arrays and {@link Seq}s element-wise. Contents passed here, and other
+     *               {@code unity} and {@code mindustry.type} objects, have their instance fields hashed a few levels deep;
+     *               referenced contents only by name, and everything else only by class name. Regions are skipped, as
+     *               jobs already track the ones they read.
+     */
+    public Job job(Processor owner, String id, Object... params){
+        Hasher hasher = new Hasher();
+        hasher.put(classHash(owner.getClass()));
+        for(var param : params) hasher.fingerprint(param, maxDepth);
+
+        return new Job(owner.getClass().getSimpleName() + "/" + id, hasher.get());
+    }
+
+    /** @return The amount of jobs restored and ran since the last call, formatted for logging. */
+    public String stats(){
+        return restored.getAndSet(0) + " cached, " + regenerated.getAndSet(0) + " regenerated";
+    }
+
+    static void read(GenRegion region){
+        Job job = current.get();
+        if(job != null) job.read(region);
+    }
+
+    /** Records a lookup by name; found regions are hashed whole, as the job may use more than their existence. */
+    static void looked(String name, @Nullable GenRegion region){
+        Job job = current.get();
+        if(job == null) return;
+
+        if(region != null){
+            job.read(region);
+        }else{
+            job.checked(name, false);
+        }
+    }
+
+    /** Records that the job only checked whether a region exists. */
+    static void checked(String name, boolean found){
+        Job job = current.get();
+        if(job != null) job.checked(name, found);
+    }
+
+    static void written(GenRegion region, Fi file){
+        Job job = current.get();
+        if(job != null) job.written(region, file);
+    }
+
+    public static long hash(byte[] bytes){
+        Hasher hasher = new Hasher();
+        hasher.digest.update(bytes);
+        return hasher.get();
+    }
+
+    public static long hash(Pixmap pixmap){
+        Hasher hasher = new Hasher();
+        hasher.put(pixmap.width);
+        hasher.put(pixmap.height);
+        hasher.digest.update(pixmap.getPixels().duplicate());
+        return hasher.get();
+    }
+
+    private static long classHash(Class<?> type){
+        synchronized(classHashes){
+            Long hash = classHashes.get(type);
+            if(hash != null) return hash;
+
+            long out = 0;
+            try(InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class")){
+                if(in != null) out = hash(Streams.copyBytes(in));
+            }catch(IOException ignored){}
+
+            classHashes.put(type, out);
+            return out;
+        }
+    }
+
+    private static void read(DataInputStream in, Seq<String> names, LongSeq hashes) throws IOException{
+        for(int i = 0, count = in.readInt(); i < count; i++){
+            names.add(in.readUTF());
+            hashes.add(in.readLong());
+        }
+    }
+
+    private static void write(DataOutputStream out, Seq<String> names, LongSeq hashes) throws IOException{
+        out.writeInt(names.size);
+        for(int i = 0; i < names.size; i++){
+            out.writeUTF(names.get(i));
+            out.writeLong(hashes.get(i));
+        }
+    }
+
+    /** A unit of work of a processor, such as all the sprites of one unit type. */
+    public class Job{
+        public final String id;
+        public final long params;
+
+        final Seq<String> inputs = new Seq<>(), outputs = new Seq<>(), paths = new Seq<>();
+        final LongSeq inputHashes = new LongSeq(), outputHashes = new LongSeq();
+
+        Job(String id, long params){
+            this.id = id;
+            this.params = params;
+        }
+
+        /** @return The names of the regions this job saved, or restored. */
+        public Seq<String> outputs(){
+            return outputs;
+        }
+
+        /**
+         * Copies this job's outputs from the last run back into the sprites folder and the atlas, if nothing it depends
+         * on changed since.
+         * @return Whether the outputs were restored; if not, the job should be {@link #run(UnsafeRunnable) run}.
+         */
+        public boolean restore(){
+            if(dir == null) return false;
+
+            Job last = entries.get(id);
+            if(last == null || last.params != params) return false;
+
+            for(int i = 0; i < last.inputs.size; i++){
+                GenRegion region = atlas.find(last.inputs.get(i));
+                long hash = last.inputHashes.get(i);
+
+                // A region that was missing and now exists changes the outputs as much as one that changed
+                if(hash == absent){
+                    if(region.found()) return false;
+                }else if(!region.found() || (hash != present && region.hash() != hash)){
+                    return false;
+                }
+            }
+
+            for(int i = 0; i < last.outputs.size; i++){
+                if(!cached(last.paths.get(i), last.outputs.get(i)).exists()) return false;
+            }
+
+            for(int i = 0; i < last.outputs.size; i++){
+                String path = last.paths.get(i), name = last.outputs.get(i);
+
+                Fi file = spritesDir.child(path).child(GenRegion.fileName(name));
+                cached(path, name).copyTo(file);
+
+                GenRegion region = atlas.addRegion(file);
+                region.hash(last.outputHashes.get(i));
+            }
+
+            outputs.set(last.outputs);
+            synchronized(next){
+                next.put(id, last);
+            }
+
+            restored.incrementAndGet();
+            return true;
+        }
+
+        /** Runs the job while recording what it reads and saves, then stores it in the cache if it succeeded. */
+        public void run(UnsafeRunnable run) throws Throwable{
+            current.set(this);
+            try{
+                run.run();
+            }finally{
+                current.remove();
+            }
+
+            if(dir != null){
+                synchronized(next){
+                    next.put(id, this);
+                }
+            }
+
+            regenerated.incrementAndGet();
+        }
+
+        void read(GenRegion region){
+            // Regions this job saved itself aren't inputs, and the first read is the one that matters
+            if(outputs.contains(region.name)) return;
+
+            int index = inputs.indexOf(region.name);
+            if(index == -1){
+                inputs.add(region.name);
+                inputHashes.add(region.hash());
+            }else if(inputHashes.get(index) == present){
+                inputHashes.set(index, region.hash());
+            }
+        }
+
+        void checked(String name, boolean found){
+            if(outputs.contains(name) || inputs.contains(name)) return;
+
+            inputs.add(name);
+            inputHashes.add(found ? present : absent);
+        }
+
+        void written(GenRegion region, Fi file){
+            // Looking up a region before generating it doesn't make it an input
+            int input = inputs.indexOf(region.name);
+            if(input != -1){
+                inputs.remove(input);
+                inputHashes.removeIndex(input);
+            }
+
+            int index = outputs.indexOf(region.name);
+            if(index == -1){
+                outputs.add(region.name);
+                paths.add(region.relativePath);
+                outputHashes.add(region.hash());
+            }else{
+                paths.set(index, region.relativePath);
+                outputHashes.set(index, region.hash());
+            }
+
+            if(dir != null) file.copyTo(cached(region.relativePath, region.name));
+        }
+
+        private Fi cached(String path, String name){
+            return dir.child("sprites").child(path).child(GenRegion.fileName(name));
+        }
+    }
+
+    private static class Hasher{
+        final MessageDigest digest;
+        final byte[] buffer = new byte[8];
+
+        Hasher(){
+            try{
+                digest = MessageDigest.getInstance("MD5");
+            }catch(NoSuchAlgorithmException e){
+                throw new RuntimeException(e);
+            }
+        }
+
+        void put(long value){
+            for(int i = 0; i < 8; i++) buffer[i] = (byte)(value >>> (i * 8));
+            digest.update(buffer);
+        }
+
+        void put(String value){
+            put(value.length());
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void fingerprint(Object value, int depth){
+            if(value == null){
+                put("null");
+                return;
+            }
+
+            Class<?> type = value.getClass();
+            if(
+                value instanceof Number || value instanceof Boolean || value instanceof Character ||
+                value instanceof String || value instanceof Enum<?> || value instanceof Color
+            ){
+                put(value.toString());
+            }else if(value instanceof TextureRegion){
+                put("region");
+            }else if(value instanceof MappableContent content && depth < maxDepth){
+                put(content.name);
+            }else if(type.isArray()){
+                int length = Array.getLength(value);
+                put(length);
+                for(int i = 0; i < length; i++) fingerprint(Array.get(value, i), depth);
+            }else if(value instanceof Seq<?> seq){
+                put(seq.size);
+                for(var e : seq) fingerprint(e, depth);
+            }else if(type.isSynthetic()){
+                // Lambda class names aren't stable between runs
+                put("lambda");
+            }else{
+                String name = type.getName();
+                put(name);
+
+                if(depth <= 0 || value instanceof Entityc || !(name.startsWith("unity.") || name.startsWith("mindustry.type."))) return;
+                for(Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()){
+                    Field[] fields = c.getDeclaredFields();
+                    Structs.sort(fields, Structs.comparing(Field::getName));
+
+                    for(var field : fields){
+                        int mod = field.getModifiers();
+                        if(Modifier.isStatic(mod) || Modifier.isTransient(mod) || field.isSynthetic()) continue;
+
+                        try{
+                            field.setAccessible(true);
+                            put(field.getName());
+                            fingerprint(field.get(value), depth - 1);
+                        }catch(Exception e){
+                            put("inaccessible");
+                        }
+                    }
+                }
+            }
+        }
+
+        long get(){
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        }
+    }
+}
@@ -38,6 +38,7 @@ public final class Tools{
     assetsDir, spritesDir;
 
     public static GenAtlas atlas;
+    public static SpriteCache cache;
 
     private static final TaskQueue runs = new TaskQueue();
     private static final IntSet[] initialized = new IntSet[ContentType.all.length];
@@ -94,6 +95,7 @@ public final class Tools{
         loadLogger();
 
         addRegions();
+        loadCache(args.length > 0 ? new Fi(args[0]) : null);
 
         atlas.clear = atlas.find("clear");
         Regions.load();
@@ -103,6 +105,10 @@ public final class Tools{
         Processors.process();
         runs.run();
 
+        Time.mark();
+        cache.save();
+        print("Total time to save the sprite cache: " + Time.elapsed() + "ms");
+
         atlas.dispose();
     }
 
@@ -121,6 +127,17 @@ public final class Tools{
         print("Total time to add regions: " + Time.elapsed() + "ms");
     }
 
+    /** @param dir The sprite cache directory, passed by {@code :tools:proc}. If {@code null}, every sprite is regenerated. */
+    private static void loadCache(Fi dir){
+        print("Loading sprite cache...");
+        Time.mark();
+
+        cache = new SpriteCache(dir);
+        cache.load();
+
+        print("Total time to load the sprite cache: " + Time.elapsed() + "ms");
+    }
+
     @SuppressWarnings("all")
     public static boolean init(Content content){
         synchronized(initialized){
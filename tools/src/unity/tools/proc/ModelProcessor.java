@@ -0,0 +1,34 @@
+package unity.tools.proc;
+
+import arc.files.*;
+import arc.util.serialization.*;
+import unity.assets.loaders.*;
+import unity.tools.*;
+
+import java.util.concurrent.*;
+
+import static unity.tools.Tools.*;
+
+/**
+ * Converts every g3d model in the asset directory into a {@link ModelBinary binary model} next to its source, so clients
+ * don't have to parse JSON on startup. Binary JSON sources are preferred, matching the runtime's lookup order. The binary
+ * models are build output and ignored by git; they hold a hash of their source, so clients parse the source instead if
+ * it was changed after the tools last ran.
+ */
+public class ModelProcessor implements Processor{
+    @Override
+    public void process(ExecutorService exec){
+        assetsDir.child("models").walk(file -> {
+            if(file.extEquals("g3dj")){
+                if(file.sibling(file.nameWithoutExtension() + ".g3db").exists()) return;
+            }else if(!file.extEquals("g3db")){
+                return;
+            }
+
+            submit(exec, file.name(), () -> {
+                ModelLoader loader = new ModelLoader(null, file.extEquals("g3db") ? new UBJsonReader() : new JsonReader());
+                ModelBinary.write(loader.parseModel(file), file.parent().path(), file.sibling(file.nameWithoutExtension() + "." + ModelBinary.extension), ModelBinary.sourceHash(file));
+            });
+        });
+    }
+}
@@ -7,10 +7,13 @@ import unity.gen.*;
 import unity.gen.Regions.*;
 import unity.tools.*;
 import unity.tools.GenAtlas.*;
+import unity.tools.SpriteCache.*;
 
 import java.lang.invoke.*;
 import java.util.concurrent.*;
 
+import static unity.tools.Tools.*;
+
 /**
  * A processor to outline certain regions in {@link Regions}.
  * @author GlennFolker
@@ -26,19 +29,23 @@ public class OutlineRegionProcessor implements Processor{
 
             GenRegion rawRegion = Reflect.get(Regions.class, name.replace("OutlineRegion", "Region"));
 
+            Job job = cache.job(this, name, anno.color(), anno.radius());
+
             submit(exec, "Regions.java", () -> {
-                Color color = Color.valueOf(anno.color());
-                int rad = anno.radius();
+                if(!job.restore()) job.run(() -> {
+                    Color color = Color.valueOf(anno.color());
+                    int rad = anno.radius();
 
-                PixmapRegion region = new PixmapRegion(rawRegion.pixmap());
-                Pixmap out = Pixmaps.outline(region, color, rad);
+                    PixmapRegion region = new PixmapRegion(rawRegion.pixmap());
+                    Pixmap out = Pixmaps.outline(region, color, rad);
 
-                GenRegion outlineRegion = new GenRegion(rawRegion.name + "-outline", out);
-                outlineRegion.relativePath = rawRegion.relativePath;
-                outlineRegion.save();
+                    GenRegion outlineRegion = new GenRegion(rawRegion.name + "-outline", out);
+                    outlineRegion.relativePath = rawRegion.relativePath;
+                    outlineRegion.save();
+                });
 
                 VarHandle handle = MethodHandles.publicLookup().unreflectVarHandle(field);
-                handle.setVolatile(outlineRegion);
+                handle.setVolatile(atlas.find(rawRegion.name + "-outline"));
             });
         }
     }
@@ -0,0 +1,32 @@
+package unity.tools.proc;
+
+import arc.files.*;
+import unity.tools.*;
+import unity.util.*;
+
+import java.util.concurrent.*;
+
+import static unity.tools.Tools.*;
+
+/**
+ * Parses every Wavefront object in the asset directory and caches it as a binary model next to its source, so clients
+ * don't have to parse the text format on startup. The binary models are build output and ignored by git; they hold a
+ * hash of their source, so clients parse the source instead if it was changed after the tools last ran.
+ */
+public class WavefrontProcessor implements Processor{
+    @Override
+    public void process(ExecutorService exec){
+        assetsDir.child("objects").walk(file -> {
+            if(!file.extEquals("obj")) return;
+
+            submit(exec, file.name(), () -> {
+                Fi material = file.sibling(file.nameWithoutExtension() + ".mtl");
+                if(!material.exists()) material = null;
+
+                WavefrontObject object = new WavefrontObject();
+                object.load(file, material);
+                object.write(file.sibling(file.nameWithoutExtension() + "." + WavefrontObject.binaryExtension), WavefrontObject.sourceHash(file, material));
+            });
+        });
+    }
+}